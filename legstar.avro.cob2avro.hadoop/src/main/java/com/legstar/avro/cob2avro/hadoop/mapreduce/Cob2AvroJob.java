@@ -3,6 +3,7 @@ package com.legstar.avro.cob2avro.hadoop.mapreduce;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.Job;
 
+import com.legstar.avro.cob2avro.io.AbstractZosDatumReader;
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.finder.CobolTypeFinder;
 import com.legstar.base.type.composite.CobolComplexType;
@@ -28,6 +29,33 @@ public class Cob2AvroJob {
     /** Configuration key for the input key choice strategy class. */
     private static final String CONF_INPUT_RECORD_CHOICE_STRATEGY_CLASS = "cob2avro.choice.strategy.class.input.key";
 
+    /** Configuration key for the input key generic record mode. */
+    private static final String CONF_INPUT_KEY_GENERIC_RECORD = "cob2avro.generic.record.input.key";
+
+    /** Configuration key for the size of the blocks read off input files. */
+    private static final String CONF_INPUT_READ_BUFFER_SIZE = "cob2avro.read.buffer.size.input";
+
+    /** Configuration key for the number of RDWs followed at a split start. */
+    private static final String CONF_INPUT_SEEK_CHAIN_LENGTH = "cob2avro.seek.chain.length.input";
+
+    /** Configuration key for record aligned splits from RDW file indexes. */
+    private static final String CONF_INPUT_RDW_INDEX = "cob2avro.rdw.index.input";
+
+    /** Configuration key for record aligned splits from RDW walks. */
+    private static final String CONF_INPUT_RECORD_ALIGNED_SPLITS = "cob2avro.record.aligned.splits.input";
+
+    /** Configuration key for the input fixed record length (LRECL). */
+    private static final String CONF_INPUT_RECORD_LENGTH = "cob2avro.record.length.input";
+
+    /** Configuration key for the input key reuse mode. */
+    private static final String CONF_INPUT_KEY_REUSE = "cob2avro.reuse.input.key";
+
+    /**
+     * Number of RDWs followed to confirm a split start by default, none so
+     * that split starts are found the way they always were.
+     */
+    public static final int DEFAULT_INPUT_SEEK_CHAIN_LENGTH = 0;
+
     /** Disable the constructor for this utility class. */
     private Cob2AvroJob() {}
 
@@ -111,5 +139,174 @@ public class Cob2AvroJob {
       return conf.getClass(CONF_INPUT_RECORD_CHOICE_STRATEGY_CLASS, null, FromCobolChoiceStrategy.class);
     }
 
+    /**
+     * Sets whether the job input keys are Avro generic records rather than
+     * specific records.
+     * <p/>
+     * Generic records are returned as produced by the conversion, without
+     * being copied to the specific classes.
+     *
+     * @param job The job to configure.
+     * @param genericRecord True for generic records.
+     */
+    public static void setInputKeyGenericRecord(Job job, boolean genericRecord) {
+      job.getConfiguration().setBoolean(CONF_INPUT_KEY_GENERIC_RECORD, genericRecord);
+    }
+
+    /**
+     * Gets whether the job input keys are Avro generic records.
+     *
+     * @param conf The job configuration.
+     * @return True if input keys are generic records, false (the default) for
+     *         specific records.
+     */
+    public static boolean getInputKeyGenericRecord(Configuration conf) {
+      return conf.getBoolean(CONF_INPUT_KEY_GENERIC_RECORD, false);
+    }
+
+    /**
+     * Sets the size of the blocks read off the job input files.
+     * <p/>
+     * Records are handed out of these blocks rather than read one by one off
+     * the input stream.
+     *
+     * @param job The job to configure.
+     * @param readBufferSize The block size in bytes, zero to read records
+     *            directly off the input stream.
+     */
+    public static void setInputReadBufferSize(Job job, int readBufferSize) {
+      job.getConfiguration().setInt(CONF_INPUT_READ_BUFFER_SIZE, readBufferSize);
+    }
+
+    /**
+     * Gets the size of the blocks read off the job input files.
+     *
+     * @param conf The job configuration.
+     * @return The block size in bytes, 1 MB by default.
+     */
+    public static int getInputReadBufferSize(Configuration conf) {
+      return conf.getInt(CONF_INPUT_READ_BUFFER_SIZE,
+              AbstractZosDatumReader.DEFAULT_READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Sets the number of valid descriptor words (RDWs or SDWs), starting with
+     * its own, that a record start found by the record matcher needs for a
+     * split to start there. This protects against record matcher false
+     * positives. It is off by default.
+     *
+     * @param job The job to configure.
+     * @param seekChainLength The number of descriptor words in the chain, zero
+     *            to trust the record matcher.
+     */
+    public static void setInputSeekChainLength(Job job, int seekChainLength) {
+      job.getConfiguration().setInt(CONF_INPUT_SEEK_CHAIN_LENGTH, seekChainLength);
+    }
+
+    /**
+     * Gets the number of descriptor words followed to confirm a split start.
+     *
+     * @param conf The job configuration.
+     * @return The number of descriptor words, 0 by default.
+     */
+    public static int getInputSeekChainLength(Configuration conf) {
+      return conf.getInt(CONF_INPUT_SEEK_CHAIN_LENGTH,
+              DEFAULT_INPUT_SEEK_CHAIN_LENGTH);
+    }
+
+    /**
+     * Sets whether splits are aligned on records using the index that sits
+     * next to each input file (see
+     * {@link com.legstar.avro.cob2avro.io.ZosRdwIndex}).
+     * <p/>
+     * Files with no index, or with an index that does not match the file
+     * size, are split as usual.
+     *
+     * @param job The job to configure.
+     * @param rdwIndex true to align splits using indexes.
+     */
+    public static void setInputRdwIndex(Job job, boolean rdwIndex) {
+      job.getConfiguration().setBoolean(CONF_INPUT_RDW_INDEX, rdwIndex);
+    }
+
+    /**
+     * Gets whether splits are aligned on records using indexes.
+     *
+     * @param conf The job configuration.
+     * @return true if indexes are used, false by default.
+     */
+    public static boolean getInputRdwIndex(Configuration conf) {
+      return conf.getBoolean(CONF_INPUT_RDW_INDEX, false);
+    }
+
+    /**
+     * Sets whether splits are aligned on records by walking the RDWs of input
+     * files when splits are computed. Files are read once on the client but
+     * record readers then start exactly on a record and never read past their
+     * split.
+     * <p/>
+     * When {@link #setInputRdwIndex} is also set, files that have an index are
+     * aligned using their index instead.
+     *
+     * @param job The job to configure.
+     * @param alignedSplits true to align splits by walking RDWs.
+     */
+    public static void setInputRecordAlignedSplits(Job job, boolean alignedSplits) {
+      job.getConfiguration().setBoolean(CONF_INPUT_RECORD_ALIGNED_SPLITS, alignedSplits);
+    }
+
+    /**
+     * Gets whether splits are aligned on records by walking RDWs.
+     *
+     * @param conf The job configuration.
+     * @return true if RDWs are walked, false by default.
+     */
+    public static boolean getInputRecordAlignedSplits(Configuration conf) {
+      return conf.getBoolean(CONF_INPUT_RECORD_ALIGNED_SPLITS, false);
+    }
+
+    /**
+     * Sets the record length (LRECL) of input files made of fixed size
+     * records (see {@link ZosFixedAvroInputFormat}).
+     *
+     * @param job The job to configure.
+     * @param recordLength The record length in bytes.
+     */
+    public static void setInputRecordLength(Job job, int recordLength) {
+      job.getConfiguration().setInt(CONF_INPUT_RECORD_LENGTH, recordLength);
+    }
+
+    /**
+     * Gets the record length of input files made of fixed size records.
+     *
+     * @param conf The job configuration.
+     * @return The record length in bytes, or zero if not set.
+     */
+    public static int getInputRecordLength(Configuration conf) {
+      return conf.getInt(CONF_INPUT_RECORD_LENGTH, 0);
+    }
+
+    /**
+     * Sets the input key reuse mode. When set, record readers return the
+     * same key for every record and fill the same datum in place, much like
+     * Writable based readers. Mappers must then not keep references to keys
+     * or datums (or to any of their parts) across calls to map.
+     *
+     * @param job The job to configure.
+     * @param reuse true to reuse the input key and its datum.
+     */
+    public static void setInputKeyReuse(Job job, boolean reuse) {
+      job.getConfiguration().setBoolean(CONF_INPUT_KEY_REUSE, reuse);
+    }
+
+    /**
+     * Gets the input key reuse mode.
+     *
+     * @param conf The job configuration.
+     * @return true if the input key and its datum are reused.
+     */
+    public static boolean getInputKeyReuse(Configuration conf) {
+      return conf.getBoolean(CONF_INPUT_KEY_REUSE, false);
+    }
 
 }
@@ -0,0 +1,167 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.avro.mapreduce.AvroJob;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a mainframe file of fixed size records (RECFM=F or FB) into Avro keys.
+ * <p/>
+ * Split boundaries are rounded up to multiples of the record length (LRECL)
+ * so that each split holds a whole number of records. Readers seek straight
+ * to their first record, no record matcher is needed.
+ * <p/>
+ * This InputFormat must be configured with
+ * <ul>
+ * <li>An Avro schema for the input key</li>
+ * <li>A {@link CobolComplexType}</li> class that describes the mainframe
+ * record
+ * <li>The record length, with {@link Cob2AvroJob#setInputRecordLength}. If
+ * not set, the maximum length of the mainframe record type is used</li>
+ * </ul>
+ * Input keys are Avro specific records unless
+ * {@link Cob2AvroJob#setInputKeyGenericRecord} was set.
+ * 
+ * @param <T> the Avro specific class (or GenericRecord)
+ */
+public class ZosFixedAvroInputFormat<T> extends
+        FileInputFormat < AvroKey < T >, NullWritable > {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ZosFixedAvroInputFormat.class);
+
+    @Override
+    public List < InputSplit > getSplits(JobContext job) throws IOException {
+        List < InputSplit > splits = super.getSplits(job);
+        long recordLen = getRecordLength(job.getConfiguration());
+        List < InputSplit > alignedSplits = new ArrayList < InputSplit >();
+        Path file = null;
+        long fileLen = 0;
+        for (InputSplit split : splits) {
+            FileSplit fileSplit = (FileSplit) split;
+            long start = alignOnRecord(fileSplit.getStart(), recordLen);
+            long end = alignOnRecord(
+                    fileSplit.getStart() + fileSplit.getLength(), recordLen);
+            // Splits of the same file come one after the other
+            if (!fileSplit.getPath().equals(file)) {
+                file = fileSplit.getPath();
+                fileLen = file.getFileSystem(job.getConfiguration())
+                        .getFileStatus(file).getLen();
+            }
+            end = Math.min(end, fileLen);
+            if (end > start) {
+                alignedSplits.add(new ZosRecordAlignedSplit(file, start, end
+                        - start, fileSplit.getLocations()));
+            }
+        }
+        return alignedSplits;
+    }
+
+    /**
+     * @param offset an offset in the file
+     * @param recordLen the record length
+     * @return the offset of the first record at or after offset
+     */
+    private static long alignOnRecord(long offset, long recordLen) {
+        return (offset + recordLen - 1) / recordLen * recordLen;
+    }
+
+    /**
+     * @param conf the job configuration
+     * @return the configured record length or the maximum length of the
+     *         mainframe record type
+     * @throws IOException if the record length cannot be determined
+     */
+    private static int getRecordLength(Configuration conf) throws IOException {
+        int recordLen = Cob2AvroJob.getInputRecordLength(conf);
+        if (recordLen > 0) {
+            return recordLen;
+        }
+        Class < ? extends CobolComplexType > cobolTypeClass = Cob2AvroJob
+                .getInputKeyRecordType(conf);
+        if (null == cobolTypeClass) {
+            throw new IOException(
+                    "Record length was not set. Use Cob2AvroJob.setInputRecordLength().");
+        }
+        try {
+            return (int) cobolTypeClass.newInstance().getMaxBytesLen();
+        } catch (InstantiationException e) {
+            throw new IOException(e);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public RecordReader < AvroKey < T >, NullWritable > createRecordReader(
+            InputSplit split, TaskAttemptContext context) throws IOException,
+            InterruptedException {
+        try {
+            Class < ? extends CobolContext > cobolContextClass = Cob2AvroJob
+                    .getInputKeyCobolContext(context.getConfiguration());
+            Class < ? extends CobolComplexType > cobolTypeClass = Cob2AvroJob
+                    .getInputKeyRecordType(context.getConfiguration());
+            Class < ? extends FromCobolChoiceStrategy > choiceStrategyClass = Cob2AvroJob
+                    .getInputChoiceStrategy(context.getConfiguration());
+            Schema schema = AvroJob.getInputKeySchema(context
+                    .getConfiguration());
+            boolean genericRecord = Cob2AvroJob.getInputKeyGenericRecord(context
+                    .getConfiguration());
+
+            if (!isValid(cobolContextClass, cobolTypeClass, schema)) {
+                throw new IOException("Invalid configuration");
+            }
+
+            return new ZosFixedAvroRecordReader < T >(
+                    cobolContextClass.newInstance(),
+                    cobolTypeClass.newInstance(),
+                    choiceStrategyClass == null ? null : choiceStrategyClass
+                            .newInstance(), schema, !genericRecord,
+                    getRecordLength(context.getConfiguration()));
+
+        } catch (InstantiationException e) {
+            throw new IOException(e);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private boolean isValid(Class < ? extends CobolContext > cobolContextClass,
+            Class < ? extends CobolComplexType > cobolTypeClass, Schema schema) {
+
+        boolean valid = true;
+        if (null == cobolContextClass) {
+            LOG.error("Mainframe COBOL parameters class was not set. Use Cob2AvroJob.setInputKeyCobolContext().");
+            valid = false;
+        }
+        if (null == cobolTypeClass) {
+            LOG.error("Mainframe record type class was not set. Use Cob2AvroJob.setInputKeyRecordType().");
+            valid = false;
+        }
+        if (null == schema) {
+            LOG.error("Reader schema was not set. Use AvroJob.setInputKeySchema().");
+            valid = false;
+        }
+        return valid;
+
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import com.legstar.avro.cob2avro.io.ZosFixedDatumReader;
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * A Hadoop RecordReader for a mainframe file of fixed size records (RECFM=F
+ * or FB).
+ * <p/>
+ * Since all records have the same length (LRECL), a split owns the records
+ * that start within it. The reader seeks directly to the first of them, at
+ * the first multiple of the record length at or after the split start, and
+ * stops at the first multiple at or after the split end. There is no need to
+ * look for the start of a record.
+ * <p/>
+ * Mainframe records are returned as Avro keys.
+ * 
+ * @param <T>
+ */
+public class ZosFixedAvroRecordReader<T> extends
+        RecordReader < AvroKey < T >, NullWritable > {
+
+    /** The mainframe COBOL parameters (including code page) */
+    private final CobolContext cobolContext;
+
+    /** The mainframe record type */
+    private final CobolComplexType cobolType;
+
+    /**
+     * Custom redefines alternative selector. Only needed when the incoming
+     * record has redefines and the default strategy is not good enough.
+     */
+    private final FromCobolChoiceStrategy customChoiceStrategy;
+
+    /** The Avro schema for records converted off the input mainframe file. */
+    private final Schema schema;
+
+    /** True to produce specific records, false for generic records. */
+    private final boolean specific;
+
+    /** True to reuse the key and fill its datum in place for each record. */
+    private boolean reuse;
+
+    /** The key returned for every record in reuse mode. */
+    private AvroKey < T > currentKey;
+
+    /** The record length (LRECL). */
+    private final int recordLen;
+
+    /** The current record. */
+    private T currentRecord;
+
+    // Start and end positions of the records of the current split
+    private long start = 0;
+    private long end = 0;
+
+    // Avro datum reader for a fixed size records z/OS stream
+    private ZosFixedDatumReader < T > datumReader;
+
+    /**
+     * Constructor.
+     * 
+     * @param cobolContext mainframe COBOL parameters
+     * @param cobolType mainframe record type
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema Avro schema for records converted off the input mainframe
+     *            file
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @param recordLen the record length (LRECL)
+     */
+    protected ZosFixedAvroRecordReader(CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, int recordLen) {
+        if (recordLen < 1) {
+            throw new IllegalArgumentException(
+                    "Record length must be positive");
+        }
+        this.cobolContext = cobolContext;
+        this.cobolType = cobolType;
+        this.customChoiceStrategy = customChoiceStrategy;
+        this.schema = schema;
+        this.specific = specific;
+        this.recordLen = recordLen;
+        this.currentRecord = null;
+    }
+
+    /** {@inheritDoc} */
+    public void initialize(InputSplit split, TaskAttemptContext context)
+            throws IOException, InterruptedException {
+
+        if (!(split instanceof FileSplit)) {
+            throw new IllegalArgumentException(
+                    "Only compatible with FileSplits.");
+        }
+
+        FileSplit fileSplit = (FileSplit) split;
+        final Path file = fileSplit.getPath();
+        Configuration jobConf = context.getConfiguration();
+        FileSystem fs = file.getFileSystem(jobConf);
+        long fileLen = fs.getFileStatus(file).getLen();
+
+        start = Math.min(fileLen, alignOnRecord(fileSplit.getStart()));
+        end = Math.min(fileLen, alignOnRecord(fileSplit.getStart()
+                + fileSplit.getLength()));
+
+        FSDataInputStream filein = fs.open(file);
+        if (start > 0) {
+            filein.seek(start);
+        }
+        // The split holds whole records, nothing past its end is needed
+        datumReader = new ZosFixedDatumReader < T >(filein, end - start,
+                recordLen, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific);
+        datumReader.setReadBufferSize(Cob2AvroJob
+                .getInputReadBufferSize(jobConf));
+        reuse = Cob2AvroJob.getInputKeyReuse(jobConf);
+    }
+
+    /**
+     * @param offset an offset in the file
+     * @return the offset of the first record at or after offset
+     */
+    private long alignOnRecord(long offset) {
+        return (offset + recordLen - 1) / recordLen * recordLen;
+    }
+
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        if (datumReader.getBytesRead() >= (end - start)) {
+            return false;
+        }
+        currentRecord = datumReader.next(reuse ? currentRecord : null);
+        return true;
+    }
+
+    public AvroKey < T > getCurrentKey() throws IOException,
+            InterruptedException {
+        if (!reuse) {
+            return new AvroKey < T >(currentRecord);
+        }
+        if (currentKey == null) {
+            currentKey = new AvroKey < T >(currentRecord);
+        } else {
+            currentKey.datum(currentRecord);
+        }
+        return currentKey;
+    }
+
+    public NullWritable getCurrentValue() throws IOException,
+            InterruptedException {
+        return NullWritable.get();
+    }
+
+    public float getProgress() throws IOException, InterruptedException {
+        return (start == end) ? 0.0f : Math.min(1.0f,
+                datumReader.getBytesRead() / (float) (end - start));
+    }
+
+    public void close() throws IOException {
+        if (null != datumReader) {
+            try {
+                datumReader.close();
+            } finally {
+                datumReader = null;
+            }
+        }
+    }
+
+}
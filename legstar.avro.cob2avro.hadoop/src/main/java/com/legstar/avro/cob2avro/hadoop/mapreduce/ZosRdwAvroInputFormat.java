@@ -1,18 +1,32 @@
 package com.legstar.avro.cob2avro.hadoop.mapreduce;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import org.apache.avro.Schema;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapreduce.AvroJob;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.legstar.avro.cob2avro.io.AbstractZosDatumReader;
+import com.legstar.avro.cob2avro.io.ZosRdwIndex;
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.finder.CobolTypeFinder;
 import com.legstar.base.type.composite.CobolComplexType;
@@ -36,8 +50,17 @@ import com.legstar.base.visitor.FromCobolChoiceStrategy;
  * <li>A {@link ZosRecordMatcher}</li> class that detects the start of a
  * mainframe record
  * </ul>
+ * Input keys are Avro specific records unless
+ * {@link Cob2AvroJob#setInputKeyGenericRecord} was set.
+ * <p/>
+ * When {@link Cob2AvroJob#setInputRdwIndex} is set, files that have an index
+ * (see {@link ZosRdwIndex}) are split on indexed records so that readers
+ * start on a record with no need for the record matcher. Index files are
+ * never considered input files. Similarly, when
+ * {@link Cob2AvroJob#setInputRecordAlignedSplits} is set, files are split on
+ * records found by walking their RDWs when splits are computed.
  * 
- * @param <T> the Avro specific class
+ * @param <T> the Avro specific class (or GenericRecord)
  */
 public class ZosRdwAvroInputFormat<T> extends
         FileInputFormat < AvroKey < T >, NullWritable > {
@@ -45,6 +68,166 @@ public class ZosRdwAvroInputFormat<T> extends
     private static final Logger LOG = LoggerFactory
             .getLogger(ZosRdwAvroInputFormat.class);
 
+    /**
+     * Index files that sit next to the mainframe files are not input files.
+     */
+    @Override
+    protected List < FileStatus > listStatus(JobContext job)
+            throws IOException {
+        List < FileStatus > files = super.listStatus(job);
+        for (Iterator < FileStatus > it = files.iterator(); it.hasNext();) {
+            if (it.next().getPath().getName()
+                    .endsWith(ZosRdwIndex.INDEX_FILE_SUFFIX)) {
+                it.remove();
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public List < InputSplit > getSplits(JobContext job) throws IOException {
+        List < InputSplit > splits = super.getSplits(job);
+        Configuration conf = job.getConfiguration();
+        if (!Cob2AvroJob.getInputRdwIndex(conf)
+                && !Cob2AvroJob.getInputRecordAlignedSplits(conf)) {
+            return splits;
+        }
+        // Splits of a file come one after the other
+        List < InputSplit > alignedSplits = new ArrayList < InputSplit >();
+        List < FileSplit > fileSplits = new ArrayList < FileSplit >();
+        for (InputSplit split : splits) {
+            FileSplit fileSplit = (FileSplit) split;
+            if (!fileSplits.isEmpty()
+                    && !fileSplit.getPath().equals(fileSplits.get(0).getPath())) {
+                alignedSplits.addAll(alignSplits(fileSplits, conf));
+                fileSplits.clear();
+            }
+            fileSplits.add(fileSplit);
+        }
+        if (!fileSplits.isEmpty()) {
+            alignedSplits.addAll(alignSplits(fileSplits, conf));
+        }
+        return alignedSplits;
+    }
+
+    /**
+     * Move the boundaries of the splits of a file onto record starts.
+     * <p/>
+     * Record starts come from the file index if there is one and
+     * {@link Cob2AvroJob#setInputRdwIndex} is set. Otherwise, if
+     * {@link Cob2AvroJob#setInputRecordAlignedSplits} is set, the RDWs of the
+     * file are walked here, on the client. Otherwise splits are left as they
+     * are.
+     * 
+     * @param fileSplits the splits of a file, in file order
+     * @param conf the job configuration
+     * @return the record aligned splits
+     * @throws IOException if record starts cannot be located
+     */
+    protected List < ? extends InputSplit > alignSplits(
+            List < FileSplit > fileSplits, Configuration conf)
+            throws IOException {
+        Path file = fileSplits.get(0).getPath();
+        long[] boundaries = new long[fileSplits.size() + 1];
+        for (int i = 0; i < fileSplits.size(); i++) {
+            boundaries[i] = fileSplits.get(i).getStart();
+        }
+        FileSplit lastSplit = fileSplits.get(fileSplits.size() - 1);
+        boundaries[fileSplits.size()] = lastSplit.getStart()
+                + lastSplit.getLength();
+
+        ZosRdwIndex index = Cob2AvroJob.getInputRdwIndex(conf) ? readIndex(
+                file, conf) : null;
+        long[] recordStarts;
+        if (index != null) {
+            recordStarts = new long[boundaries.length];
+            for (int i = 0; i < boundaries.length; i++) {
+                recordStarts[i] = getAlignedOffset(index, boundaries[i]);
+            }
+        } else if (Cob2AvroJob.getInputRecordAlignedSplits(conf)) {
+            recordStarts = walkRecordStarts(file, conf, boundaries);
+        } else {
+            return new ArrayList < FileSplit >(fileSplits);
+        }
+
+        List < InputSplit > alignedSplits = new ArrayList < InputSplit >();
+        for (int i = 0; i < fileSplits.size(); i++) {
+            if (recordStarts[i + 1] > recordStarts[i]) {
+                alignedSplits.add(new ZosRecordAlignedSplit(file,
+                        recordStarts[i], recordStarts[i + 1] - recordStarts[i],
+                        fileSplits.get(i).getLocations()));
+            }
+        }
+        return alignedSplits;
+    }
+
+    /**
+     * Locate the first record at or after each split boundary by reading the
+     * file RDWs. Records data is skipped but the file is still read once,
+     * sequentially, on the client.
+     * 
+     * @param file the mainframe file
+     * @param conf the job configuration
+     * @param boundaries the split boundaries in ascending order
+     * @return the record start for each boundary
+     * @throws IOException if the file is not made of RDW records
+     */
+    private static long[] walkRecordStarts(Path file, Configuration conf,
+            long[] boundaries) throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        int readBufferSize = Cob2AvroJob.getInputReadBufferSize(conf);
+        InputStream filein = new BufferedInputStream(fs.open(file),
+                readBufferSize > 0 ? readBufferSize
+                        : AbstractZosDatumReader.DEFAULT_READ_BUFFER_SIZE);
+        try {
+            return ZosRdwIndex.getRecordStarts(filein, fs.getFileStatus(file)
+                    .getLen(), boundaries);
+        } finally {
+            filein.close();
+        }
+    }
+
+    /**
+     * Read the index that sits next to a file.
+     * 
+     * @param file the mainframe file
+     * @param conf the job configuration
+     * @return the index or null if there is no index that matches the file
+     * @throws IOException if the index cannot be read
+     */
+    protected ZosRdwIndex readIndex(Path file, Configuration conf)
+            throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        Path indexFile = file.suffix(ZosRdwIndex.INDEX_FILE_SUFFIX);
+        if (!fs.exists(indexFile)) {
+            return null;
+        }
+        FSDataInputStream indexin = fs.open(indexFile);
+        try {
+            ZosRdwIndex index = ZosRdwIndex.read(indexin);
+            if (index.getLength() != fs.getFileStatus(file).getLen()) {
+                LOG.warn("Index " + indexFile + " does not match " + file
+                        + " and was ignored");
+                return null;
+            }
+            return index;
+        } finally {
+            indexin.close();
+        }
+    }
+
+    /**
+     * @param index the file index
+     * @param offset a split boundary
+     * @return the offset of the first indexed record at or after the split
+     *         boundary or the file end if there is none
+     */
+    private static long getAlignedOffset(ZosRdwIndex index, long offset) {
+        int entry = index.getEntryAfter(offset);
+        return entry < index.getEntryCount() ? index.getEntryOffset(entry)
+                : index.getLength();
+    }
+
     public RecordReader < AvroKey < T >, NullWritable > createRecordReader(
             InputSplit split, TaskAttemptContext context) throws IOException,
             InterruptedException {
@@ -59,17 +242,19 @@ public class ZosRdwAvroInputFormat<T> extends
                     .getInputChoiceStrategy(context.getConfiguration());
             Schema schema = AvroJob.getInputKeySchema(context
                     .getConfiguration());
+            boolean genericRecord = Cob2AvroJob.getInputKeyGenericRecord(context
+                    .getConfiguration());
 
             if (!isValid(cobolContextClass, cobolTypeClass, matcherClass,
                     choiceStrategyClass, schema)) {
                 throw new IOException("Invalid configuration");
             }
 
-            return new ZosRdwAvroRecordReader < T >(
-                    cobolContextClass.newInstance(),
+            return newRecordReader(cobolContextClass.newInstance(),
                     cobolTypeClass.newInstance(),
                     choiceStrategyClass == null ? null : choiceStrategyClass
-                            .newInstance(), matcherClass.newInstance(), schema);
+                            .newInstance(), matcherClass.newInstance(), schema,
+                    !genericRecord);
 
         } catch (InstantiationException e) {
             throw new IOException(e);
@@ -78,6 +263,28 @@ public class ZosRdwAvroInputFormat<T> extends
         }
     }
 
+    /**
+     * Create the record reader for a split. The default is a reader for
+     * records prefixed by an RDW.
+     * 
+     * @param cobolContext mainframe COBOL parameters
+     * @param cobolType mainframe record type
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param recordMatcher matches the start of a new record
+     * @param schema Avro schema for records converted off the input mainframe
+     *            file
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @return a record reader
+     */
+    protected RecordReader < AvroKey < T >, NullWritable > newRecordReader(
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy,
+            CobolTypeFinder recordMatcher, Schema schema, boolean specific) {
+        return new ZosRdwAvroRecordReader < T >(cobolContext, cobolType,
+                customChoiceStrategy, recordMatcher, schema, specific);
+    }
+
     private boolean isValid(Class < ? extends CobolContext > cobolContextClass,
             Class < ? extends CobolComplexType > cobolTypeClass,
             Class < ? extends CobolTypeFinder > matcherClass,
@@ -1,6 +1,7 @@
 package com.legstar.avro.cob2avro.hadoop.mapreduce;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import org.apache.avro.Schema;
 import org.apache.avro.mapred.AvroKey;
@@ -14,6 +15,7 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
+import com.legstar.avro.cob2avro.io.AbstractZosDatumReader;
 import com.legstar.avro.cob2avro.io.ZosVarRdwDatumReader;
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.finder.CobolTypeFinder;
@@ -49,6 +51,15 @@ public class ZosRdwAvroRecordReader<T> extends
     /** The Avro schema for records converted off the input mainframe file. */
     private final Schema schema;
 
+    /** True to produce specific records, false for generic records. */
+    private final boolean specific;
+
+    /** True to reuse the key and fill its datum in place for each record. */
+    private boolean reuse;
+
+    /** The key returned for every record in reuse mode. */
+    private AvroKey < T > currentKey;
+
     /** The current record from the Avro container file being read. */
     private T currentRecord;
 
@@ -59,8 +70,8 @@ public class ZosRdwAvroRecordReader<T> extends
     // Incoming file holding mainframe data
     private FSDataInputStream filein;
 
-    // Avro datum reader for an rdw z/OS stream
-    private ZosVarRdwDatumReader < T > datumReader;
+    // Avro datum reader for a z/OS stream
+    private AbstractZosDatumReader < T > datumReader;
 
     /**
      * Constructor.
@@ -77,11 +88,33 @@ public class ZosRdwAvroRecordReader<T> extends
             CobolComplexType cobolType,
             FromCobolChoiceStrategy customChoiceStrategy,
             CobolTypeFinder recordMatcher, Schema schema) {
+        this(cobolContext, cobolType, customChoiceStrategy, recordMatcher,
+                schema, true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param cobolContext mainframe COBOL parameters
+     * @param cobolType mainframe record type
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param recordMatcher provides the capability to match the start of a new
+     *            record
+     * @param schema Avro schema for records converted off the input mainframe
+     *            file
+     * @param specific true to produce specific records, false for generic
+     *            records
+     */
+    protected ZosRdwAvroRecordReader(CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy,
+            CobolTypeFinder recordMatcher, Schema schema, boolean specific) {
         this.cobolContext = cobolContext;
         this.cobolType = cobolType;
         this.customChoiceStrategy = customChoiceStrategy;
         this.schema = schema;
         this.recordMatcher = recordMatcher;
+        this.specific = specific;
         this.currentRecord = null;
     }
 
@@ -103,15 +136,28 @@ public class ZosRdwAvroRecordReader<T> extends
         FileSystem fs = file.getFileSystem(jobConf);
         filein = fs.open(fileSplit.getPath());
 
+        // Record aligned splits start exactly on a record
+        boolean aligned = split instanceof ZosRecordAlignedSplit;
+
         // The reader must be able to read past the last byte of a split if a
         // record spans this split and the next. This is why the length passed
-        // to the reader is from split start to end of file (not end of split)
-        long readLen = fs.getFileStatus(fileSplit.getPath()).getLen()
+        // to the reader is from split start to end of file (not end of split).
+        // Record aligned splits end on a record boundary so nothing past
+        // their end is ever read.
+        long readLen = aligned ? end - start : fs.getFileStatus(
+                fileSplit.getPath()).getLen()
                 - (start > 0 ? start - 1 : 0);
-        datumReader = new ZosVarRdwDatumReader < T >(filein, readLen,
-                cobolContext, cobolType, customChoiceStrategy, schema);
-
-        if (start > 0) {
+        datumReader = newDatumReader(filein, readLen, cobolContext, cobolType,
+                customChoiceStrategy, schema, specific);
+        datumReader.setReadBufferSize(Cob2AvroJob
+                .getInputReadBufferSize(jobConf));
+        datumReader.setSeekChainLength(Cob2AvroJob
+                .getInputSeekChainLength(jobConf));
+        reuse = Cob2AvroJob.getInputKeyReuse(jobConf);
+
+        if (start > 0 && aligned) {
+            filein.seek(start);
+        } else if (start > 0) {
             // This is a subsequent split
             --start;
 
@@ -122,6 +168,30 @@ public class ZosRdwAvroRecordReader<T> extends
 
     }
 
+    /**
+     * Create the datum reader for the mainframe stream. The default is a
+     * reader for records prefixed by an RDW.
+     * 
+     * @param inStream the mainframe data stream
+     * @param length the total size of the stream
+     * @param cobolContext mainframe COBOL parameters
+     * @param cobolType mainframe record type
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema Avro schema for records converted off the input mainframe
+     *            file
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @return a datum reader
+     * @throws IOException if the datum reader cannot be created
+     */
+    protected AbstractZosDatumReader < T > newDatumReader(InputStream inStream,
+            long length, CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        return new ZosVarRdwDatumReader < T >(inStream, length, cobolContext,
+                cobolType, customChoiceStrategy, schema, specific);
+    }
+
     public boolean nextKeyValue() throws IOException, InterruptedException {
         // If we have already read all bytes from this split, time to stop
         if (datumReader.getBytesRead() >= (end - start)) {
@@ -129,7 +199,7 @@ public class ZosRdwAvroRecordReader<T> extends
         }
 
         if (datumReader.hasNext()) {
-            currentRecord = datumReader.next();
+            currentRecord = datumReader.next(reuse ? currentRecord : null);
             return true;
         } else {
             return false;
@@ -138,7 +208,15 @@ public class ZosRdwAvroRecordReader<T> extends
 
     public AvroKey < T > getCurrentKey() throws IOException,
             InterruptedException {
-        return new AvroKey < T >(currentRecord);
+        if (!reuse) {
+            return new AvroKey < T >(currentRecord);
+        }
+        if (currentKey == null) {
+            currentKey = new AvroKey < T >(currentRecord);
+        } else {
+            currentKey.datum(currentRecord);
+        }
+        return currentKey;
     }
 
     public NullWritable getCurrentValue() throws IOException,
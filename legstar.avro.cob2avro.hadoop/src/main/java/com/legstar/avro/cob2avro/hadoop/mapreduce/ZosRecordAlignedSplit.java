@@ -0,0 +1,30 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * A file split that starts and ends exactly on mainframe record boundaries.
+ * <p/>
+ * Record readers start reading at the split start, with no need to look for
+ * the start of a record, and stop at the split end.
+ * 
+ */
+public class ZosRecordAlignedSplit extends FileSplit {
+
+    /** Needed for deserialization. */
+    public ZosRecordAlignedSplit() {
+    }
+
+    /**
+     * @param file the file name
+     * @param start the offset of the first record of the split
+     * @param length the number of bytes of the records in the split
+     * @param hosts the hosts where the split data resides
+     */
+    public ZosRecordAlignedSplit(Path file, long start, long length,
+            String[] hosts) {
+        super(file, start, length, hosts);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.finder.CobolTypeFinder;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a mainframe file of variable size spanned records (RECFM=VBS) into
+ * Avro keys.
+ * <p/>
+ * Records are reassembled from their segments. A record whose segments span 2
+ * splits is read by the split holding its first segment.
+ * <p/>
+ * This InputFormat is configured like {@link ZosRdwAvroInputFormat} except
+ * that the record matcher set with {@link Cob2AvroJob#setInputRecordMatcher}
+ * matches the record data alone, without any descriptor word (typically a
+ * {@link com.legstar.base.finder.CobolComplexTypeFinder}). See
+ * {@link ZosVbsAvroRecordReader}.
+ * 
+ * @param <T> the Avro specific class (or GenericRecord)
+ */
+public class ZosVbsAvroInputFormat<T> extends ZosRdwAvroInputFormat < T > {
+
+    /** RDW indexes and walks do not apply to spanned records. */
+    @Override
+    protected List < ? extends InputSplit > alignSplits(
+            List < FileSplit > fileSplits, Configuration conf) {
+        return fileSplits;
+    }
+
+    @Override
+    protected RecordReader < AvroKey < T >, NullWritable > newRecordReader(
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy,
+            CobolTypeFinder recordMatcher, Schema schema, boolean specific) {
+        return new ZosVbsAvroRecordReader < T >(cobolContext, cobolType,
+                customChoiceStrategy, recordMatcher, schema, specific);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.Schema;
+
+import com.legstar.avro.cob2avro.io.AbstractZosDatumReader;
+import com.legstar.avro.cob2avro.io.SdwCobolTypeFinder;
+import com.legstar.avro.cob2avro.io.ZosVbsDatumReader;
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.finder.CobolTypeFinder;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * A Hadoop RecordReader for a mainframe file of variable size spanned records
+ * (RECFM=VBS) where each segment is prefixed by a Segment Descriptor Word
+ * (SDW).
+ * <p/>
+ * A split that does not start the file is positioned on the first SDW for a
+ * complete record or for the first segment of a record. Middle and last
+ * segments belong to a record that the previous split reads.
+ * <p/>
+ * Mainframe records are returned as Avro keys.
+ * 
+ * @param <T>
+ */
+public class ZosVbsAvroRecordReader<T> extends ZosRdwAvroRecordReader < T > {
+
+    /**
+     * Constructor.
+     * 
+     * @param cobolContext mainframe COBOL parameters
+     * @param cobolType mainframe record type
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param recordMatcher matches the record data (without any SDW)
+     * @param schema Avro schema for records converted off the input mainframe
+     *            file
+     * @param specific true to produce specific records, false for generic
+     *            records
+     */
+    protected ZosVbsAvroRecordReader(CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy,
+            CobolTypeFinder recordMatcher, Schema schema, boolean specific) {
+        super(cobolContext, cobolType, customChoiceStrategy,
+                new SdwCobolTypeFinder(recordMatcher), schema, specific);
+    }
+
+    @Override
+    protected AbstractZosDatumReader < T > newDatumReader(InputStream inStream,
+            long length, CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        return new ZosVbsDatumReader < T >(inStream, length, cobolContext,
+                cobolType, customChoiceStrategy, schema, specific);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import legstar.test.avro.custdat.CobolCustomerData;
+
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.finder.CobolComplexTypeFinder;
+
+/**
+ * A matcher for the custdat mainframe records data (no descriptor word).
+ * <p/>
+ * The 6 first characters (field customerId) are EBCDIC digits.
+ * 
+ */
+public class CustdatZosVbsRecordMatcher extends CobolComplexTypeFinder {
+
+    public CustdatZosVbsRecordMatcher() {
+        super(new EbcdicCobolContext(), new CobolCustomerData(), "customerId");
+    }
+
+}
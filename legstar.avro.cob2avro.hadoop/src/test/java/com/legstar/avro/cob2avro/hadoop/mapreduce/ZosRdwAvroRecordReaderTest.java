@@ -3,12 +3,19 @@ package com.legstar.avro.cob2avro.hadoop.mapreduce;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 import legstar.test.avro.custdat.CobolCustomerData;
 import legstar.test.avro.custdat.CustomerData;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapreduce.AvroJob;
 import org.apache.commons.io.FileUtils;
@@ -20,12 +27,15 @@ import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -34,7 +44,12 @@ import org.junit.rules.TestName;
 
 import com.legstar.avro.cob2avro.hadoop.mapreduce.Cob2AvroJob;
 import com.legstar.avro.cob2avro.hadoop.mapreduce.ZosRdwAvroInputFormat;
+import com.legstar.avro.cob2avro.io.AbstractZosDatumReader;
+import com.legstar.avro.cob2avro.io.ZosRdwIndex;
+import com.legstar.base.context.CobolContext;
 import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
 
 public class ZosRdwAvroRecordReaderTest {
 
@@ -108,7 +123,228 @@ public class ZosRdwAvroRecordReaderTest {
         job.setReducerClass(MyReducer.class);
 
         job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
 
+    }
+
+    @Test
+    public void testRecordCountPerCustomerKeyReuse() throws Exception {
+
+        Path inPath = datFilePath;
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("recordsPerCustomerKeyReuse");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosRdwAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosRdwRecordMatcher.class);
+        Cob2AvroJob.setInputKeyReuse(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(MyReuseMapper.class);
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    @Test
+    public void testRecordCountPerCustomerGenericRecord() throws Exception {
+
+        Path inPath = datFilePath;
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("recordsPerCustomerGenericRecord");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosRdwAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosRdwRecordMatcher.class);
+        Cob2AvroJob.setInputKeyGenericRecord(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(MyGenericMapper.class);
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    @Test
+    public void testRecordCountPerCustomerIndexed() throws Exception {
+
+        // Index the local mainframe file and copy the index next to it
+        File localFile = new File(srcFilePath.toString());
+        File indexFile = new File("target/test/"
+                + ZosRdwIndex.getIndexFile(localFile).getName());
+        FileUtils.forceMkdir(indexFile.getParentFile());
+        OutputStream out = new FileOutputStream(indexFile);
+        ZosRdwIndex index = ZosRdwIndex.build(localFile, 1000);
+        index.write(out);
+        out.close();
+        fs.copyFromLocalFile(new Path(indexFile.getPath()),
+                datFilePath.suffix(ZosRdwIndex.INDEX_FILE_SUFFIX));
+
+        Path inPath = new Path("/user/legstar.avro");
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("recordsPerCustomerIndexed");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosRdwAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosRdwRecordMatcher.class);
+        Cob2AvroJob.setInputRdwIndex(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(MyMapper.class);
+
+        // Splits start on indexed records, the index file is not an input
+        List < InputSplit > splits = new ZosRdwAvroInputFormat < CustomerData >()
+                .getSplits(job);
+        assertEquals(2, splits.size());
+        long start = 0;
+        for (InputSplit split : splits) {
+            ZosRecordAlignedSplit alignedSplit = (ZosRecordAlignedSplit) split;
+            assertEquals(datFilePath.getName(), alignedSplit.getPath()
+                    .getName());
+            assertEquals(start, alignedSplit.getStart());
+            assertEquals(start, index.getEntryOffset(index
+                    .getEntryAfter(start)));
+            start += alignedSplit.getLength();
+        }
+        assertEquals(localFile.length(), start);
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    @Test
+    public void testRecordCountPerCustomerAlignedSplits() throws Exception {
+
+        Path inPath = datFilePath;
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("recordsPerCustomerAlignedSplits");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosRdwAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosRdwRecordMatcher.class);
+        Cob2AvroJob.setInputRecordAlignedSplits(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(MyMapper.class);
+
+        // The second split starts on the first record past the block boundary
+        List < InputSplit > splits = new ZosRdwAvroInputFormat < CustomerData >()
+                .getSplits(job);
+        assertEquals(2, splits.size());
+        File localFile = new File(srcFilePath.toString());
+        InputStream is = new FileInputStream(localFile);
+        long[] recordStarts = ZosRdwIndex.getRecordStarts(is,
+                localFile.length(), new long[] { 1048576 });
+        is.close();
+        ZosRecordAlignedSplit first = (ZosRecordAlignedSplit) splits.get(0);
+        ZosRecordAlignedSplit second = (ZosRecordAlignedSplit) splits.get(1);
+        assertEquals(0, first.getStart());
+        assertEquals(recordStarts[0], first.getLength());
+        assertEquals(recordStarts[0], second.getStart());
+        assertEquals(localFile.length(),
+                second.getStart() + second.getLength());
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    @Test
+    public void testAlignedSplitsReadNothingPastSplitEnd() throws Exception {
+
+        Job job = Job.getInstance(conf);
+        FileInputFormat.addInputPath(job, datFilePath);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosRdwRecordMatcher.class);
+        Cob2AvroJob.setInputRecordAlignedSplits(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+
+        List < InputSplit > splits = new ZosRdwAvroInputFormat < CustomerData >()
+                .getSplits(job);
+        assertEquals(2, splits.size());
+        int count = 0;
+        for (InputSplit split : splits) {
+            // Count the bytes pulled off the file by the datum reader
+            final long[] fetched = new long[1];
+            ZosRdwAvroRecordReader < CustomerData > reader = new ZosRdwAvroRecordReader < CustomerData >(
+                    new EbcdicCobolContext(), new CobolCustomerData(), null,
+                    new CustdatZosRdwRecordMatcher(),
+                    CustomerData.getClassSchema()) {
+                protected AbstractZosDatumReader < CustomerData > newDatumReader(
+                        InputStream inStream, long length,
+                        CobolContext cobolContext, CobolComplexType cobolType,
+                        FromCobolChoiceStrategy customChoiceStrategy,
+                        Schema schema, boolean specific) throws IOException {
+                    return super.newDatumReader(new FilterInputStream(
+                            inStream) {
+                        public int read() throws IOException {
+                            int b = super.read();
+                            fetched[0] += b < 0 ? 0 : 1;
+                            return b;
+                        }
+
+                        public int read(byte[] b, int off, int len)
+                                throws IOException {
+                            int n = super.read(b, off, len);
+                            fetched[0] += Math.max(0, n);
+                            return n;
+                        }
+                    }, length, cobolContext, cobolType, customChoiceStrategy,
+                            schema, specific);
+                }
+            };
+            reader.initialize(split, new TaskAttemptContextImpl(
+                    job.getConfiguration(), new TaskAttemptID()));
+            while (reader.nextKeyValue()) {
+                count++;
+            }
+            reader.close();
+            assertEquals(split.getLength(), fetched[0]);
+        }
+        assertEquals(10000, count);
+    }
+
+    private void checkRecordCountPerCustomer() throws IOException {
         // Get the CSV locally and check its content
         FileUtil.copyMerge(fs, new Path(OUTPUT_HADOOP_DATA_PATH),
                 FileSystem.getLocal(conf),
@@ -125,7 +361,6 @@ public class ZosRdwAvroRecordReaderTest {
             count += Integer.parseInt(cols[1]);
         }
         assertEquals(10000, count);
-
     }
 
     public static class MyMapper extends
@@ -139,6 +374,39 @@ public class ZosRdwAvroRecordReaderTest {
         }
     }
 
+    public static class MyReuseMapper extends
+            Mapper < AvroKey < CustomerData >, NullWritable, Text, IntWritable > {
+
+        private AvroKey < CustomerData > previousKey;
+
+        private CustomerData previousDatum;
+
+        public void map(AvroKey < CustomerData > key, NullWritable value,
+                Context context) throws IOException, InterruptedException {
+            if (previousKey != null) {
+                assertSame(previousKey, key);
+                assertSame(previousDatum, key.datum());
+            }
+            previousKey = key;
+            previousDatum = key.datum();
+            CharSequence customerName = key.datum().getPersonalData()
+                    .getCustomerName();
+            context.write(new Text(customerName.toString()), new IntWritable(1));
+        }
+    }
+
+    public static class MyGenericMapper extends
+            Mapper < AvroKey < GenericRecord >, NullWritable, Text, IntWritable > {
+
+        public void map(AvroKey < GenericRecord > key, NullWritable value,
+                Context context) throws IOException, InterruptedException {
+            assertFalse(key.datum() instanceof CustomerData);
+            CharSequence customerName = (CharSequence) ((GenericRecord) key
+                    .datum().get("personalData")).get("customerName");
+            context.write(new Text(customerName.toString()), new IntWritable(1));
+        }
+    }
+
     public static class MyReducer extends
             Reducer < Text, IntWritable, Text, IntWritable > {
 
@@ -0,0 +1,192 @@
+package com.legstar.avro.cob2avro.hadoop.mapreduce;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import legstar.test.avro.custdat.CobolCustomerData;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.avro.mapreduce.AvroJob;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import com.legstar.base.context.EbcdicCobolContext;
+
+public class ZosVbsAvroRecordReaderTest {
+
+    private static final String OUTPUT_LOCAL_FILE = "custdat.csv";
+
+    private static final String OUTPUT_HADOOP_DATA_PATH = "/user/legstar.avro/out";
+
+    private Configuration conf;
+    private MiniDFSCluster hdfsCluster;
+    private FileSystem fs;
+    private static final File RDW_LOCAL_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+    private Path srcFilePath = new Path("target/test/ZOS.FCUSTDAT.VBS.bin");
+    private Path datFilePath = new Path(
+            "/user/legstar.avro/ZOS.FCUSTDAT.VBS.bin");
+
+    private static final File OUTPUT_LOCAL_FOLDER = new File("target/test/csv");
+
+    @Rule
+    public TestName testName = new TestName();
+
+    @Before
+    public void setUp() throws Exception {
+        File baseDir = new File("./target/hdfs/" + testName).getAbsoluteFile();
+        FileUtil.fullyDelete(baseDir);
+        FileUtils.forceMkdir(OUTPUT_LOCAL_FOLDER);
+        FileUtils.cleanDirectory(OUTPUT_LOCAL_FOLDER);
+
+        conf = new Configuration();
+        conf.set(MiniDFSCluster.HDFS_MINIDFS_BASEDIR, baseDir.getAbsolutePath());
+
+        // Force small splits
+        conf.set("dfs.blocksize", "1048576"); // 2 splits (total bytes=1329363)
+
+        MiniDFSCluster.Builder builder = new MiniDFSCluster.Builder(conf);
+        hdfsCluster = builder.build();
+        String hdfsURI = "hdfs://localhost:" + hdfsCluster.getNameNodePort()
+                + "/";
+        System.out.println("Hadoop fs " + hdfsURI);
+
+        // Segment the RDW records into spanned records
+        FileUtils.writeByteArrayToFile(new File(srcFilePath.toString()),
+                toVbs(FileUtils.readFileToByteArray(RDW_LOCAL_FILE), 50));
+
+        // Copy the local mainframe file to hdfs (which creates splits)
+        fs = FileSystem.get(conf);
+        fs.mkdirs(new Path("/user/legstar.avro"));
+        fs.copyFromLocalFile(srcFilePath, datFilePath);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hdfsCluster.shutdown();
+    }
+
+    @Test
+    public void testRecordCountPerCustomer() throws Exception {
+
+        Path inPath = datFilePath;
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("vbsRecordsPerCustomer");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosVbsAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosVbsRecordMatcher.class);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(ZosRdwAvroRecordReaderTest.MyMapper.class);
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(ZosRdwAvroRecordReaderTest.MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    @Test
+    public void testRecordCountPerCustomerGenericRecord() throws Exception {
+
+        Path inPath = datFilePath;
+        Path outPath = new Path(OUTPUT_HADOOP_DATA_PATH);
+
+        Job job = Job.getInstance(conf);
+        job.setJobName("vbsRecordsPerCustomerGenericRecord");
+
+        FileInputFormat.addInputPath(job, inPath);
+        job.setInputFormatClass(ZosVbsAvroInputFormat.class);
+        Cob2AvroJob.setInputKeyCobolContext(job, EbcdicCobolContext.class);
+        Cob2AvroJob.setInputKeyRecordType(job, CobolCustomerData.class);
+        Cob2AvroJob.setInputRecordMatcher(job, CustdatZosVbsRecordMatcher.class);
+        Cob2AvroJob.setInputKeyGenericRecord(job, true);
+        AvroJob.setInputKeySchema(job, CustomerData.getClassSchema());
+        job.setMapperClass(ZosRdwAvroRecordReaderTest.MyGenericMapper.class);
+
+        FileOutputFormat.setOutputPath(job, outPath);
+        job.setOutputFormatClass(TextOutputFormat.class);
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(IntWritable.class);
+        job.setReducerClass(ZosRdwAvroRecordReaderTest.MyReducer.class);
+
+        job.waitForCompletion(true);
+        checkRecordCountPerCustomer();
+
+    }
+
+    private void checkRecordCountPerCustomer() throws IOException {
+        // Get the CSV locally and check its content
+        FileUtil.copyMerge(fs, new Path(OUTPUT_HADOOP_DATA_PATH),
+                FileSystem.getLocal(conf),
+                new Path(OUTPUT_LOCAL_FOLDER.getPath() + "/"
+                        + OUTPUT_LOCAL_FILE), false, conf, null);
+
+        List < String > lines = FileUtils.readLines(new File(
+                OUTPUT_LOCAL_FOLDER, OUTPUT_LOCAL_FILE));
+        assertEquals(25, lines.size());
+        int count = 0;
+        for (String line : lines) {
+            String[] cols = line.split("\t");
+            assertEquals(2, cols.length);
+            count += Integer.parseInt(cols[1]);
+        }
+        assertEquals(10000, count);
+    }
+
+    /**
+     * Split each RDW record into segments prefixed by an SDW.
+     * 
+     * @param rdwData the RDW records
+     * @param maxSegmentLen the maximum segment data length
+     * @return the spanned records
+     */
+    private static byte[] toVbs(byte[] rdwData, int maxSegmentLen) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < rdwData.length) {
+            int start = pos + 4;
+            int end = pos
+                    + ((rdwData[pos] & 0xFF) << 8 | (rdwData[pos + 1] & 0xFF));
+            for (int seg = start; seg < end; seg += maxSegmentLen) {
+                int segLen = Math.min(maxSegmentLen, end - seg);
+                boolean first = seg == start;
+                boolean last = seg + segLen == end;
+                out.write((segLen + 4) >>> 8);
+                out.write(segLen + 4);
+                out.write(first ? (last ? 0 : 1) : (last ? 2 : 3));
+                out.write(0);
+                out.write(rdwData, seg, segLen);
+            }
+            pos = end;
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,28 @@
+package com.legstar.avro.cob2avro;
+
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.IndexedRecord;
+
+/**
+ * Base class for the readers compiled at runtime for a
+ * {@link Cob2AvroSchemaPlan} (see {@link Cob2AvroPlanCompiler}).
+ * <p/>
+ * A compiled reader decodes the fields of a mainframe record in sequence, with
+ * one method per Avro record, array and REDEFINES, much like the converters
+ * produced by the generator at build time.
+ * <p/>
+ * Compiled readers are immutable and Thread safe.
+ *
+ */
+public abstract class AbstractCob2AvroCompiledReader {
+
+    /**
+     * Read a record.
+     *
+     * @param cursor positioned at the start of the mainframe record
+     * @param data the Avro data model used to create records
+     * @return the Avro record
+     */
+    public abstract IndexedRecord read(HostCursor cursor, GenericData data);
+
+}
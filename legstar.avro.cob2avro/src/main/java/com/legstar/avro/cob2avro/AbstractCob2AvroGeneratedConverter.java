@@ -0,0 +1,108 @@
+package com.legstar.avro.cob2avro;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.specific.SpecificRecord;
+
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.DefaultFromCobolChoiceStrategy;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Base class for the converters produced by the generator for each copybook.
+ * <p/>
+ * A generated converter decodes mainframe data directly into an Avro specific
+ * record, field by field, without going through {@link Cob2AvroVisitor} and
+ * without the intermediate generic record.
+ * <p/>
+ * Generated converters are immutable and Thread safe.
+ *
+ * @param <T> the Avro specific record produced
+ */
+public abstract class AbstractCob2AvroGeneratedConverter<T extends SpecificRecord>
+        extends AbstractCob2ObjectConverter < T > {
+
+    /** Used when the custom strategy, if any, does not select an alternative. */
+    private final FromCobolChoiceStrategy defaultChoiceStrategy;
+
+    /** Custom variables and variables needed by the custom choice strategy. */
+    private final Set < String > variableNames;
+
+    /** Decoders for numerics that do not need BigInteger or BigDecimal. */
+    private final Map < CobolPrimitiveType < ? >, HostNumberDecoder > numberDecoders;
+
+    public AbstractCob2AvroGeneratedConverter(Builder < T, ? > builder) {
+        super(builder);
+        defaultChoiceStrategy = new DefaultFromCobolChoiceStrategy(
+                getCobolContext());
+        Set < String > names = new HashSet < String >();
+        if (getCustomVariables() != null) {
+            names.addAll(getCustomVariables());
+        }
+        if (getCustomChoiceStrategy() != null
+                && getCustomChoiceStrategy().getVariableNames() != null) {
+            names.addAll(getCustomChoiceStrategy().getVariableNames());
+        }
+        variableNames = names.isEmpty() ? null : names;
+        numberDecoders = HostNumberDecoder.createAll(getCobolComplexType());
+    }
+
+    /**
+     * Create a new cursor to convert one record.
+     *
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the record in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @return a new cursor
+     */
+    protected HostCursor newCursor(byte[] hostData, int start, int length) {
+        return new HostCursor(getCobolContext(), hostData, start, length,
+                getCustomChoiceStrategy(), defaultChoiceStrategy, variableNames,
+                numberDecoders);
+    }
+
+    /**
+     * Locate a type in the COBOL complex type hierarchy.
+     * <p/>
+     * Each path element is a field name in a complex type or an alternative
+     * name in a choice. Arrays are transparent, the item type is returned.
+     *
+     * @param path the field and alternative names leading to the type
+     * @return the type found
+     * @throws IllegalArgumentException if the path does not lead to a type
+     */
+    protected CobolType getCobolType(String... path) {
+        CobolType type = getCobolComplexType();
+        for (String name : path) {
+            CobolType child = null;
+            if (type instanceof CobolComplexType) {
+                child = ((CobolComplexType) type).getFields().get(name);
+            } else if (type instanceof CobolChoiceType) {
+                child = ((CobolChoiceType) type).getAlternatives().get(name);
+            }
+            if (child == null) {
+                throw new IllegalArgumentException("No type named " + name
+                        + " in " + type.getCobolName());
+            }
+            type = child instanceof CobolArrayType ? ((CobolArrayType) child)
+                    .getItemType() : child;
+        }
+        return type;
+    }
+
+    protected CobolPrimitiveType < ? > getPrimitiveType(String... path) {
+        return (CobolPrimitiveType < ? >) getCobolType(path);
+    }
+
+    protected CobolChoiceType getChoiceType(String... path) {
+        return (CobolChoiceType) getCobolType(path);
+    }
+
+}
@@ -2,13 +2,32 @@ package com.legstar.avro.cob2avro;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.legstar.base.converter.AbstractCob2ObjectConverter;
 import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
 import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.DefaultFromCobolChoiceStrategy;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
 
 /**
  * Converts mainframe data to an Avro Generic record.
@@ -20,6 +39,17 @@ import com.legstar.base.type.composite.CobolComplexType;
  * The CobolComplexType describes the incoming mainframe datum and the Schema
  * describes the output Avro Generic record.
  * <p/>
+ * Options are set on the {@link Builder}: walking a precomputed
+ * {@link Cob2AvroSchemaPlan} ({@link Builder#walkPlan(boolean)}) or a reader
+ * compiled at runtime ({@link Builder#compiled(boolean)}), producing specific
+ * records ({@link Builder#specificData(boolean)}), projecting on a reader
+ * schema ({@link Builder#readerSchema(Schema)}), producing Utf8 values
+ * ({@link Builder#utf8(boolean)}) and caching short alphanumeric values
+ * ({@link Builder#cacheStrings(String, int)}). Records can also be decoded
+ * lazily ({@link #convertLazy(byte[], int, int)}), filled in place
+ * ({@link #convert(byte[], int, int, GenericRecord)}) or read from a
+ * {@link ByteBuffer} ({@link #convert(ByteBuffer, GenericRecord)}).
+ * <p/>
  * This class is immutable and Thread safe.
  * 
  */
@@ -30,14 +60,157 @@ public class Cob2AvroGenericConverter extends AbstractCob2ObjectConverter < Gene
      */
     private final Schema schema;
 
+    /** Projection of the target schema, null if there is no projection. */
+    private final Schema readerSchema;
+
+    /** True if records are converted by walking the plan. */
+    private final boolean walkPlan;
+
+    /** True if records are converted by the reader compiled for the plan. */
+    private final boolean compiled;
+
+    /** Shared by the visitors and the plan walks converting records. */
+    private final Cob2AvroSchemaPlan plan;
+
+    /** Used by the plan walks to select alternatives. */
+    private final FromCobolChoiceStrategy defaultChoiceStrategy;
+
+    /** Custom variables and variables needed by the custom choice strategy. */
+    private final Set < String > variableNames;
+
+    /** The Avro data model used to create records. */
+    private final GenericData data;
+
+    /** Produces Utf8 values for alphanumerics, null for java strings. */
+    private final HostStringDecoder stringDecoder;
+
+    /** Caches of alphanumeric values keyed by primitive type (may be null). */
+    private final Map < CobolPrimitiveType < ? >, HostStringCache > stringCaches;
+
+    private static Logger log = LoggerFactory
+            .getLogger(Cob2AvroGenericConverter.class);
+
     public FromHostResult < GenericRecord > convert(byte[] hostData, int start, int length) {
+        if (compiled) {
+            HostCursor cursor = newCursor(hostData, start, length);
+            GenericRecord record = (GenericRecord) plan.convertCompiled(
+                    cursor, data);
+            return new FromHostResult < GenericRecord >(cursor.getPos(), record);
+        }
+        if (walkPlan || readerSchema != null) {
+            HostCursor cursor = newCursor(hostData, start, length);
+            GenericRecord record = (GenericRecord) plan.convert(cursor, data,
+                    null);
+            return new FromHostResult < GenericRecord >(cursor.getPos(), record);
+        }
         Cob2AvroVisitor visitor = new Cob2AvroVisitor(getCobolContext(), hostData,
-                start, length, getCustomChoiceStrategy(), getCustomVariables(), schema);
+                start, length, getCustomChoiceStrategy(), getCustomVariables(), schema,
+                plan, data);
+        visitor.setStringDecoder(stringDecoder);
+        visitor.setStringCaches(stringCaches);
         visitor.visit(getCobolComplexType());
         return new FromHostResult < GenericRecord >(visitor.getLastPos(),
                 (GenericRecord) visitor.getResultObject());
     }
 
+    /**
+     * Convert mainframe data into a previous record.
+     * <p/>
+     * Nested records, arrays and decimal buffers of the previous record are
+     * reused whenever they fit. If the previous record is a specific record,
+     * any missing nested record is created as a specific record.
+     * 
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the record in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @param reuse the previous record (may be null)
+     * @return the result of the conversion, the value being the previous
+     *         record if it could be reused
+     */
+    public FromHostResult < GenericRecord > convert(byte[] hostData,
+            int start, int length, GenericRecord reuse) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        GenericRecord record = (GenericRecord) plan.convert(cursor,
+                reuse instanceof SpecificRecord && readerSchema == null ? SpecificData
+                        .get() : data, reuse);
+        return new FromHostResult < GenericRecord >(cursor.getPos(), record);
+    }
+
+    public FromHostResult < GenericRecord > convert(ByteBuffer hostData) {
+        return convert(hostData, null);
+    }
+
+    /**
+     * Convert mainframe data held in a byte buffer into a previous record.
+     * <p/>
+     * Mainframe data starts at the buffer position and ends at its limit. The
+     * buffer position is then moved past the mainframe data processed.
+     * <p/>
+     * Buffers backed by an accessible array are decoded in place. COBOL types
+     * decode byte arrays so other buffers, such as direct or memory mapped
+     * buffers, are first copied in a bulk operation to a new array. Callers
+     * converting many such buffers can copy them to an array they reuse and
+     * call {@link #convert(byte[], int, int, GenericRecord)} instead.
+     * 
+     * @param hostData the buffer containing mainframe data
+     * @param reuse the previous record (may be null)
+     * @return the result of the conversion, the bytes processed being
+     *         relative to the initial buffer position
+     */
+    public FromHostResult < GenericRecord > convert(ByteBuffer hostData,
+            GenericRecord reuse) {
+        int remaining = hostData.remaining();
+        byte[] bytes;
+        int start;
+        if (hostData.hasArray()) {
+            bytes = hostData.array();
+            start = hostData.arrayOffset() + hostData.position();
+        } else {
+            bytes = new byte[remaining];
+            hostData.duplicate().get(bytes);
+            start = 0;
+        }
+        FromHostResult < GenericRecord > result = reuse == null ? convert(
+                bytes, start, start + remaining) : convert(bytes, start, start
+                + remaining, reuse);
+        int bytesProcessed = result.getBytesProcessed() - start;
+        hostData.position(hostData.position() + bytesProcessed);
+        return new FromHostResult < GenericRecord >(bytesProcessed,
+                result.getValue());
+    }
+
+    public FromHostResult < GenericRecord > convertLazy(byte[] hostData) {
+        return convertLazy(hostData, 0, hostData.length);
+    }
+
+    /**
+     * Locate the fields of a record without decoding them.
+     * <p/>
+     * Fields are decoded when they are first accessed. The mainframe data
+     * must not change while the record is in use.
+     * 
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the record in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @return the result of the conversion, the value being a
+     *         {@link LazyHostRecord}
+     */
+    public FromHostResult < GenericRecord > convertLazy(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        GenericRecord record = plan.lazy(cursor);
+        return new FromHostResult < GenericRecord >(cursor.getPos(), record);
+    }
+
+    private HostCursor newCursor(byte[] hostData, int start, int length) {
+        HostCursor cursor = new HostCursor(getCobolContext(), hostData, start,
+                length, getCustomChoiceStrategy(), defaultChoiceStrategy,
+                variableNames);
+        cursor.setStringDecoder(stringDecoder);
+        cursor.setStringCaches(stringCaches);
+        return cursor;
+    }
+
     // -----------------------------------------------------------------------------
     // Builder section
     // -----------------------------------------------------------------------------
@@ -47,6 +220,18 @@ public class Cob2AvroGenericConverter extends AbstractCob2ObjectConverter < Gene
 
         private Schema schema;
 
+        private boolean walkPlan;
+
+        private boolean compiled;
+
+        private boolean specificData;
+
+        private Schema readerSchema;
+
+        private boolean utf8;
+
+        private final Map < String, Integer > cachedStrings = new LinkedHashMap < String, Integer >();
+
         public Cob2AvroGenericConverter build() {
             return new Cob2AvroGenericConverter(this);
         }
@@ -65,6 +250,95 @@ public class Cob2AvroGenericConverter extends AbstractCob2ObjectConverter < Gene
             return this;
         }
 
+        /**
+         * Convert records by walking the plan built once for the COBOL type
+         * and the Avro schema rather than with the visitor.
+         * 
+         * @param walkPlan true to walk the plan
+         * @return this builder
+         */
+        public Builder walkPlan(boolean walkPlan) {
+            this.walkPlan = walkPlan;
+            return this;
+        }
+
+        /**
+         * Convert records with a reader class compiled at runtime for the COBOL
+         * type and the Avro schema. The class is compiled once and shared by
+         * all the converters for the same COBOL type and schema instance.
+         * <p/>
+         * Compiling needs the system java compiler, which is only available
+         * on a JDK. Otherwise, a warning is logged and records are converted
+         * with the visitor. Records that follow a reader schema, that reuse a
+         * previous record or that are lazy are converted by walking the plan.
+         * 
+         * @param compiled true to use the compiled reader
+         * @return this builder
+         */
+        public Builder compiled(boolean compiled) {
+            this.compiled = compiled;
+            return this;
+        }
+
+        /**
+         * Produce records following a projection of the schema. Fields that
+         * are not in the reader schema are not decoded.
+         * 
+         * @param readerSchema a schema holding a subset of the schema fields
+         * @return this builder
+         */
+        public Builder readerSchema(Schema readerSchema) {
+            this.readerSchema = readerSchema;
+            return this;
+        }
+
+        /**
+         * Create records with the Avro specific data model. Records produced
+         * are then instances of the specific classes, if these are available.
+         * 
+         * @param specificData true to use the specific data model
+         * @return this builder
+         */
+        public Builder specificData(boolean specificData) {
+            this.specificData = specificData;
+            return this;
+        }
+
+        /**
+         * Produce Avro {@link org.apache.avro.util.Utf8} values rather than
+         * java strings for alphanumeric fields. This saves character
+         * conversions when records are serialized.
+         * 
+         * @param utf8 true to produce Utf8 values
+         * @return this builder
+         */
+        public Builder utf8(boolean utf8) {
+            this.utf8 = utf8;
+            return this;
+        }
+
+        /**
+         * Share the values of an alphanumeric field that takes few distinct
+         * values rather than decoding them for each record.
+         * <p/>
+         * The field is identified by a path made of the field names (and
+         * alternative names for REDEFINES), separated by dots. The cache
+         * applies to all items of arrays, such as
+         * <code>comArray1.comGroup1.comItem3</code>.
+         * <p/>
+         * Only fields up to {@value HostStringCache#MAX_BYTES_LEN} bytes can
+         * be cached.
+         * 
+         * @param fieldPath the path to the alphanumeric field
+         * @param maxEntries the maximum number of values kept, the least
+         *            recently used being evicted first
+         * @return this builder
+         */
+        public Builder cacheStrings(String fieldPath, int maxEntries) {
+            cachedStrings.put(fieldPath, maxEntries);
+            return this;
+        }
+
         protected Builder self() {
             return this;
         }
@@ -80,6 +354,96 @@ public class Cob2AvroGenericConverter extends AbstractCob2ObjectConverter < Gene
         if (schema == null) {
             throw new IllegalArgumentException("You must provide a valid Avro Schema");
         }
+        readerSchema = builder.readerSchema;
+        walkPlan = builder.walkPlan;
+        if (builder.compiled && readerSchema == null
+                && !Cob2AvroPlanCompiler.isAvailable()) {
+            log.warn("No system java compiler available, records of "
+                    + getCobolComplexType().getCobolName()
+                    + " are converted with the visitor");
+        }
+        compiled = builder.compiled && readerSchema == null
+                && Cob2AvroPlanCompiler.isAvailable();
+        // Specific classes hold all fields, they cannot receive projections
+        data = builder.specificData && readerSchema == null ? SpecificData
+                .get() : GenericData.get();
+        defaultChoiceStrategy = new DefaultFromCobolChoiceStrategy(
+                getCobolContext());
+        Set < String > names = new HashSet < String >();
+        if (getCustomVariables() != null) {
+            names.addAll(getCustomVariables());
+        }
+        if (getCustomChoiceStrategy() != null
+                && getCustomChoiceStrategy().getVariableNames() != null) {
+            names.addAll(getCustomChoiceStrategy().getVariableNames());
+        }
+        variableNames = names.isEmpty() ? null : names;
+        plan = Cob2AvroSchemaPlan.get(getCobolComplexType(),
+                readerSchema == null ? schema : readerSchema, variableNames);
+        stringDecoder = builder.utf8 ? new HostStringDecoder(getCobolContext())
+                : null;
+        stringCaches = createStringCaches(getCobolComplexType(),
+                builder.cachedStrings);
+    }
+
+    /**
+     * Create a cache for each alphanumeric field requested.
+     * 
+     * @param cobolComplexType the record type
+     * @param cachedStrings maximum number of values kept keyed by field path
+     * @return the caches keyed by primitive type or null if there are none
+     */
+    private static Map < CobolPrimitiveType < ? >, HostStringCache > createStringCaches(
+            CobolComplexType cobolComplexType,
+            Map < String, Integer > cachedStrings) {
+        if (cachedStrings.isEmpty()) {
+            return null;
+        }
+        Map < CobolPrimitiveType < ? >, HostStringCache > caches = new IdentityHashMap < CobolPrimitiveType < ? >, HostStringCache >();
+        for (Entry < String, Integer > entry : cachedStrings.entrySet()) {
+            CobolPrimitiveType < ? > type = getPrimitiveType(cobolComplexType,
+                    entry.getKey());
+            if (!HostStringDecoder.accepts(type)) {
+                throw new IllegalArgumentException("Field " + entry.getKey()
+                        + " is not an alphanumeric field");
+            }
+            caches.put(type,
+                    new HostStringCache(type.getBytesLen(), entry.getValue()));
+        }
+        return Collections.unmodifiableMap(caches);
+    }
+
+    /**
+     * Follow a path from the record root.
+     * 
+     * @param cobolComplexType the record type
+     * @param path the field path
+     * @return the primitive type at the end of the path
+     */
+    private static CobolPrimitiveType < ? > getPrimitiveType(
+            CobolComplexType cobolComplexType, String path) {
+        CobolType type = cobolComplexType;
+        for (String name : path.split("\\.")) {
+            CobolType child = null;
+            if (type instanceof CobolComplexType) {
+                child = ((CobolComplexType) type).getFields().get(name);
+            } else if (type instanceof CobolChoiceType) {
+                child = ((CobolChoiceType) type).getAlternatives().get(name);
+            }
+            if (child == null) {
+                throw new IllegalArgumentException("No field named " + name
+                        + " in " + path);
+            }
+            while (child instanceof CobolArrayType) {
+                child = ((CobolArrayType) child).getItemType();
+            }
+            type = child;
+        }
+        if (!(type instanceof CobolPrimitiveType)) {
+            throw new IllegalArgumentException("Field " + path
+                    + " is not an elementary field");
+        }
+        return (CobolPrimitiveType < ? >) type;
     }
 
 }
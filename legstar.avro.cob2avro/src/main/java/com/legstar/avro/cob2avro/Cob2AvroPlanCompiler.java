@@ -0,0 +1,531 @@
+package com.legstar.avro.cob2avro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+
+import com.legstar.base.type.CobolOptionalType;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Compiles, at runtime, a reader class specialized for a
+ * {@link Cob2AvroSchemaPlan}.
+ * <p/>
+ * The java source is generated from the COBOL type hierarchy and the plan
+ * layouts, then compiled in memory with the system java compiler and loaded
+ * in its own class loader. The compiled reader decodes fields in sequence,
+ * with field positions, ODO object names and COBOL types held in final
+ * fields, which the JIT can then inline.
+ * <p/>
+ * The system java compiler is only available when running on a JDK (see
+ * {@link #isAvailable()}).
+ *
+ */
+final class Cob2AvroPlanCompiler {
+
+    /** Package of the compiled readers. */
+    private static final String PACKAGE_NAME = "com.legstar.avro.cob2avro.compiled";
+
+    /** Classes the compiled readers refer to, used to build the class path. */
+    private static final Class < ? >[] CLASS_PATH_ANCHORS = new Class < ? >[] {
+            AbstractCob2AvroCompiledReader.class, Schema.class,
+            GenericData.class, CobolType.class };
+
+    /** Keeps class names unique, which helps reading stack traces. */
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+    /** The plan giving Avro positions and numeric decoders. */
+    private final Cob2AvroSchemaPlan plan;
+
+    /** Fields holding the constants of the compiled class. */
+    private final StringBuilder fields = new StringBuilder();
+
+    /** Constructor statements setting the fields. */
+    private final StringBuilder assignments = new StringBuilder();
+
+    /** Methods reading records, arrays and choices. */
+    private final StringBuilder methods = new StringBuilder();
+
+    /** Constants passed to the compiled class constructor. */
+    private final List < Object > constants = new ArrayList < Object >();
+
+    /** Field names of the constants already declared. */
+    private final Map < Object, String > constantNames = new IdentityHashMap < Object, String >();
+
+    /** Used to name methods. */
+    private int methodCount;
+
+    /**
+     * @param plan the plan to compile
+     */
+    Cob2AvroPlanCompiler(Cob2AvroSchemaPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * @return true if a system java compiler is available
+     */
+    static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Generate and compile the reader class and create an instance.
+     *
+     * @param cobolComplexType the COBOL complex type described by the plan
+     * @param schema the Avro record schema of the plan, it must hold all the
+     *            COBOL fields
+     * @return the compiled reader
+     * @throws IllegalArgumentException if a COBOL field is not part of the
+     *             schema
+     * @throws IllegalStateException if the reader cannot be compiled
+     */
+    AbstractCob2AvroCompiledReader compile(CobolComplexType cobolComplexType,
+            Schema schema) {
+        String rootMethod = recordMethod(cobolComplexType, schema);
+        String className = "Cob2AvroCompiledReader"
+                + CLASS_COUNTER.incrementAndGet();
+        String source = toSource(className, rootMethod);
+        Class < ? > clazz = compileClass(PACKAGE_NAME + "." + className,
+                source);
+        try {
+            return (AbstractCob2AvroCompiledReader) clazz.getConstructor(
+                    Object[].class).newInstance((Object) constants.toArray());
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // -----------------------------------------------------------------------------
+    // Source generation
+    // -----------------------------------------------------------------------------
+    /**
+     * Generate the expression producing the Avro value of a COBOL type.
+     *
+     * @param type the COBOL type
+     * @param fieldName the name of the field holding the type
+     * @param schema the Avro schema corresponding to the type
+     * @return the java expression
+     */
+    private String valueExpression(CobolType type, String fieldName,
+            Schema schema) {
+        if (type instanceof CobolComplexType) {
+            // Optional fields are unions between a record type and "null"
+            return recordMethod((CobolComplexType) type,
+                    schema.getType() == Schema.Type.UNION ? schema.getTypes()
+                            .get(0) : schema)
+                    + "(cursor, data)";
+        } else if (type instanceof CobolArrayType) {
+            return arrayMethod((CobolArrayType) type, fieldName,
+                    schema.getElementType())
+                    + "(cursor, data)";
+        } else if (type instanceof CobolChoiceType) {
+            return choiceMethod((CobolChoiceType) type, fieldName, schema)
+                    + "(cursor, data)";
+        } else {
+            CobolPrimitiveType < ? > primitiveType = (CobolPrimitiveType < ? >) type;
+            HostNumberDecoder numberDecoder = plan
+                    .getNumberDecoder(primitiveType);
+            return "cursor.fromHost("
+                    + typeConstant(primitiveType)
+                    + ", "
+                    + literal(fieldName)
+                    + ", null, "
+                    + (numberDecoder == null ? "null" : constant(numberDecoder,
+                            "HostNumberDecoder")) + ")";
+        }
+    }
+
+    /**
+     * Generate the method reading an Avro record.
+     *
+     * @param type the COBOL complex type
+     * @param schema the Avro record schema
+     * @return the method name
+     */
+    private String recordMethod(CobolComplexType type, Schema schema) {
+        Cob2AvroSchemaPlan.RecordLayout layout = plan.getLayout(schema);
+        String methodName = "record" + methodCount++;
+        StringBuilder body = new StringBuilder();
+        body.append("        IndexedRecord record = (IndexedRecord) data.newRecord(null, "
+                + constant(schema, "Schema") + ");\n");
+        int i = 0;
+        for (Entry < String, CobolType > entry : type.getFields().entrySet()) {
+            int pos = layout.getPosition(i++);
+            if (pos < 0) {
+                throw new IllegalArgumentException("Field " + entry.getKey()
+                        + " not found in Avro record " + schema.getFullName());
+            }
+            String put = "record.put(" + pos + ", "
+                    + valueExpression(entry.getValue(), entry.getKey(),
+                            schema.getFields().get(pos).schema()) + ");\n";
+            String dependingOn = entry.getValue() instanceof CobolOptionalType ? ((CobolOptionalType) entry
+                    .getValue()).getDependingOn() : null;
+            if (dependingOn == null) {
+                body.append("        " + put);
+            } else {
+                body.append("        if (cursor.isPresent("
+                        + literal(dependingOn) + ")) {\n");
+                body.append("            " + put);
+                body.append("        }\n");
+            }
+        }
+        body.append("        return record;\n");
+        addMethod("IndexedRecord", methodName, body);
+        return methodName;
+    }
+
+    /**
+     * Generate the method reading an Avro array.
+     *
+     * @param type the COBOL array type
+     * @param fieldName the name of the array field
+     * @param schema the Avro schema of the array items
+     * @return the method name
+     */
+    private String arrayMethod(CobolArrayType type, String fieldName,
+            Schema schema) {
+        String methodName = "array" + methodCount++;
+        StringBuilder body = new StringBuilder();
+        body.append("        int occurs = "
+                + (type.isVariableSize() ? "cursor.getOdoValue("
+                        + literal(type.getDependingOn()) + ")" : Integer
+                        .toString(type.getMaxOccurs())) + ";\n");
+        body.append("        List < Object > list = new ArrayList < Object >(occurs);\n");
+        body.append("        for (int i = 0; i < occurs; i++) {\n");
+        body.append("            list.add("
+                + valueExpression(type.getItemType(), fieldName, schema)
+                + ");\n");
+        body.append("        }\n");
+        body.append("        return list;\n");
+        addMethod("List < Object >", methodName, body);
+        return methodName;
+    }
+
+    /**
+     * Generate the method reading a REDEFINES.
+     *
+     * @param type the COBOL choice type
+     * @param fieldName the name of the choice field
+     * @param schema the Avro union schema
+     * @return the method name
+     */
+    private String choiceMethod(CobolChoiceType type, String fieldName,
+            Schema schema) {
+        String methodName = "choice" + methodCount++;
+        String choiceType = typeConstant(type);
+        StringBuilder body = new StringBuilder();
+        body.append("        CobolType alternative = cursor.chooseAlternative("
+                + literal(fieldName) + ", " + choiceType + ");\n");
+        body.append("        Object value;\n");
+        String keyword = "if";
+        for (Entry < String, CobolType > entry : type.getAlternatives()
+                .entrySet()) {
+            // Alternatives are in the same order as the union types
+            body.append("        " + keyword + " (alternative == "
+                    + typeConstant(entry.getValue()) + ") {\n");
+            body.append("            value = "
+                    + valueExpression(entry.getValue(), fieldName, schema
+                            .getTypes().get(
+                                    type.getAlternativeIndex(entry.getKey())))
+                    + ";\n");
+            keyword = "} else if";
+        }
+        body.append("        } else {\n");
+        body.append("            throw new CobolChoiceStrategyException(\n");
+        body.append("                    "
+                + literal("Unexpected alternative for choice " + fieldName)
+                + ");\n");
+        body.append("        }\n");
+        body.append("        cursor.endAlternative(" + choiceType
+                + ", alternative);\n");
+        body.append("        return value;\n");
+        addMethod("Object", methodName, body);
+        return methodName;
+    }
+
+    private void addMethod(String returnType, String methodName,
+            StringBuilder body) {
+        methods.append("\n    private " + returnType + " " + methodName
+                + "(HostCursor cursor, GenericData data) {\n");
+        methods.append(body);
+        methods.append("    }\n");
+    }
+
+    /**
+     * Declare a final field holding a COBOL type, typed so that it can be
+     * passed to the cursor.
+     *
+     * @param type the COBOL type
+     * @return the field name
+     */
+    private String typeConstant(CobolType type) {
+        if (type instanceof CobolPrimitiveType) {
+            return constant(type, "CobolPrimitiveType < ? >");
+        } else if (type instanceof CobolChoiceType) {
+            return constant(type, "CobolChoiceType");
+        }
+        return constant(type, "CobolType");
+    }
+
+    /**
+     * Declare a final field holding a constant, once per constant instance.
+     *
+     * @param value the constant
+     * @param javaType the java type of the field
+     * @return the field name
+     */
+    private String constant(Object value, String javaType) {
+        String name = constantNames.get(value);
+        if (name == null) {
+            name = "c" + constants.size();
+            fields.append("\n    private final " + javaType + " " + name
+                    + ";\n");
+            assignments.append("        " + name + " = (" + javaType
+                    + ") constants[" + constants.size() + "];\n");
+            constants.add(value);
+            constantNames.put(value, name);
+        }
+        return name;
+    }
+
+    private String toSource(String className, String rootMethod) {
+        StringBuilder source = new StringBuilder();
+        source.append("package " + PACKAGE_NAME + ";\n\n");
+        source.append("import java.util.ArrayList;\n");
+        source.append("import java.util.List;\n\n");
+        source.append("import org.apache.avro.Schema;\n");
+        source.append("import org.apache.avro.generic.GenericData;\n");
+        source.append("import org.apache.avro.generic.IndexedRecord;\n\n");
+        source.append("import com.legstar.avro.cob2avro.AbstractCob2AvroCompiledReader;\n");
+        source.append("import com.legstar.avro.cob2avro.HostCursor;\n");
+        source.append("import com.legstar.avro.cob2avro.HostNumberDecoder;\n");
+        source.append("import com.legstar.base.type.CobolType;\n");
+        source.append("import com.legstar.base.type.composite.CobolChoiceType;\n");
+        source.append("import com.legstar.base.type.primitive.CobolPrimitiveType;\n");
+        source.append("import com.legstar.base.visitor.CobolChoiceStrategyException;\n\n");
+        source.append("public final class " + className
+                + " extends AbstractCob2AvroCompiledReader {\n");
+        source.append(fields);
+        source.append("\n    public " + className + "(Object[] constants) {\n");
+        source.append(assignments);
+        source.append("    }\n");
+        source.append("\n    public IndexedRecord read(HostCursor cursor, GenericData data) {\n");
+        source.append("        return " + rootMethod + "(cursor, data);\n");
+        source.append("    }\n");
+        source.append(methods);
+        source.append("\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * @param value a string
+     * @return the java string literal for the value
+     */
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // -----------------------------------------------------------------------------
+    // Compilation
+    // -----------------------------------------------------------------------------
+    /**
+     * Compile a class in memory and load it.
+     *
+     * @param className the fully qualified class name
+     * @param source the java source
+     * @return the class loaded
+     * @throws IllegalStateException if the class does not compile
+     */
+    private static Class < ? > compileClass(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException(
+                    "No system java compiler available");
+        }
+        DiagnosticCollector < JavaFileObject > diagnostics = new DiagnosticCollector < JavaFileObject >();
+        MemoryFileManager fileManager = new MemoryFileManager(
+                compiler.getStandardFileManager(diagnostics, null, null));
+        List < String > options = Arrays.asList("-classpath", getClassPath(),
+                "-proc:none", "-g:source,lines");
+        JavaFileObject sourceFile = new SourceFile(className, source);
+        boolean success = compiler.getTask(null, fileManager, diagnostics,
+                options, null, Arrays.asList(sourceFile)).call();
+        if (!success) {
+            StringBuilder sb = new StringBuilder("Unable to compile "
+                    + className);
+            for (Diagnostic < ? extends JavaFileObject > diagnostic : diagnostics
+                    .getDiagnostics()) {
+                sb.append("\n").append(diagnostic.toString());
+            }
+            throw new IllegalStateException(sb.toString());
+        }
+        try {
+            return new MemoryClassLoader(
+                    AbstractCob2AvroCompiledReader.class.getClassLoader(),
+                    fileManager.classes).loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The class path holds the locations of the classes the compiled readers
+     * refer to, which might not be on the system class path when running in
+     * a container, followed by the system class path.
+     *
+     * @return the class path for the compiler
+     */
+    private static String getClassPath() {
+        Set < String > entries = new LinkedHashSet < String >();
+        for (Class < ? > clazz : CLASS_PATH_ANCHORS) {
+            CodeSource codeSource = clazz.getProtectionDomain()
+                    .getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                try {
+                    entries.add(new File(codeSource.getLocation().toURI())
+                            .getPath());
+                } catch (URISyntaxException e) {
+                    // Not a file location, rely on the system class path
+                } catch (IllegalArgumentException e) {
+                    // Not a file location, rely on the system class path
+                }
+            }
+        }
+        entries.add(System.getProperty("java.class.path"));
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparator);
+            }
+            sb.append(entry);
+        }
+        return sb.toString();
+    }
+
+    /** The java source of a compiled reader. */
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        public SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/')
+                    + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    /** Receives a class file produced by the compiler. */
+    private static class ClassFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        public ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/')
+                    + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+    }
+
+    /** Keeps class files in memory rather than writing them to disk. */
+    private static class MemoryFileManager extends
+            ForwardingJavaFileManager < JavaFileManager > {
+
+        private final Map < String, ClassFile > classes = new HashMap < String, ClassFile >();
+
+        public MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        public JavaFileObject getJavaFileForOutput(Location location,
+                String className, Kind kind, FileObject sibling)
+                throws IOException {
+            ClassFile classFile = new ClassFile(className);
+            classes.put(className, classFile);
+            return classFile;
+        }
+
+    }
+
+    /** Loads the classes compiled in memory. */
+    private static class MemoryClassLoader extends ClassLoader {
+
+        private final Map < String, ClassFile > classes;
+
+        public MemoryClassLoader(ClassLoader parent,
+                Map < String, ClassFile > classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        protected Class < ? > findClass(String name)
+                throws ClassNotFoundException {
+            ClassFile classFile = classes.get(name);
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes = classFile.bytes.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,853 @@
+package com.legstar.avro.cob2avro;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.IndexedRecord;
+
+import com.legstar.base.type.CobolOptionalType;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.CobolChoiceStrategyException;
+
+/**
+ * Describes how to produce Avro records, following an Avro {@link Schema},
+ * out of mainframe data described by a {@link CobolComplexType}.
+ * <p/>
+ * For each Avro record schema, the plan gives the position of each COBOL
+ * child field in the record and the schema of that child, with optional
+ * unions and array element types already resolved (see {@link RecordLayout}).
+ * It also holds decoders for the numerics that can be converted without going
+ * through {@link java.math.BigDecimal} or {@link java.math.BigInteger}.
+ * <p/>
+ * The same plan serves two purposes:
+ * <ul>
+ * <li>{@link Cob2AvroVisitor} uses the layouts and decoders, which spares it
+ * field lookups by name for each record</li>
+ * <li>records can be converted by walking a tree of nodes with a
+ * {@link HostCursor}, with no visitor and no handlers. The previous record
+ * graph can then be filled in place, nested records, arrays and decimal
+ * buffers being reused when they fit. The tree is built the first time it is
+ * walked</li>
+ * <li>records can be converted by a reader class compiled at runtime for the
+ * plan (see {@link Cob2AvroPlanCompiler}). The class is compiled the first
+ * time it is used</li>
+ * </ul>
+ * The Avro schema might be a projection, holding only some of the COBOL
+ * fields. Fields that are not part of the schema are skipped without being
+ * decoded, except for ODO objects and variables which are needed to locate
+ * subsequent fields and select REDEFINES alternatives. Fixed size groups of
+ * such fields are skipped in one go. Projections can only be converted by
+ * walking the tree.
+ * <p/>
+ * A plan also produces {@link LazyHostRecord} where fields are located when
+ * the record is created but decoded only when they are first accessed.
+ * <p/>
+ * Plans are built once per (type, schema instance, variable names) triplet.
+ * They are immutable and can be shared by any number of visitors and threads.
+ *
+ */
+public class Cob2AvroSchemaPlan {
+
+    /**
+     * Plans already built, keyed by COBOL type. Plans are softly referenced so
+     * that, once no converter uses them, they can be collected along with their
+     * COBOL type and schema.
+     */
+    private static final Map < CobolComplexType, List < SoftReference < Cob2AvroSchemaPlan > > > PLANS = new WeakHashMap < CobolComplexType, List < SoftReference < Cob2AvroSchemaPlan > > >();
+
+    /** Names of the variables needed by custom code (may be null). */
+    private final Set < String > variableNames;
+
+    /** Numeric decoders keyed by COBOL type (identity). */
+    private final Map < CobolPrimitiveType < ? >, HostNumberDecoder > numberDecoders;
+
+    /** Layouts keyed by record schema (identity). */
+    private final Map < Schema, RecordLayout > layouts;
+
+    /** The COBOL complex type described. */
+    private final CobolComplexType cobolComplexType;
+
+    /** The Avro record schema produced. */
+    private final Schema schema;
+
+    /**
+     * The root node producing the Avro record, built on first use. Nodes are
+     * immutable so building them twice under contention is harmless.
+     */
+    private volatile RecordNode root;
+
+    /** Locates the root fields of lazy records, built on first use. */
+    private volatile LazyLayout lazyLayout;
+
+    /** The reader compiled for this plan, built on first use. */
+    private volatile AbstractCob2AvroCompiledReader compiledReader;
+
+    private Cob2AvroSchemaPlan(CobolComplexType cobolComplexType,
+            Schema schema, Set < String > variableNames) {
+        this.cobolComplexType = cobolComplexType;
+        this.schema = schema;
+        this.variableNames = variableNames;
+        this.numberDecoders = Collections.unmodifiableMap(HostNumberDecoder
+                .createAll(cobolComplexType));
+        Map < Schema, RecordLayout > layouts = new IdentityHashMap < Schema, RecordLayout >();
+        addLayout(layouts, cobolComplexType, schema);
+        this.layouts = Collections.unmodifiableMap(layouts);
+    }
+
+    /**
+     * Get the plan for a COBOL complex type and an Avro schema, building it if
+     * this was not done already.
+     *
+     * @param cobolComplexType the COBOL complex type
+     * @param schema the Avro schema of the records produced
+     * @return the plan
+     */
+    public static Cob2AvroSchemaPlan get(CobolComplexType cobolComplexType,
+            Schema schema) {
+        return get(cobolComplexType, schema, null);
+    }
+
+    /**
+     * Get the plan for a COBOL complex type and an Avro schema, building it if
+     * this was not done already.
+     * <p/>
+     * Layouts are keyed by schema instance so plans are shared by converters
+     * using the same schema instance, not merely an equal one.
+     *
+     * @param cobolComplexType the COBOL complex type
+     * @param schema the Avro schema of the records produced, possibly a
+     *            projection
+     * @param variableNames names of the variables needed by custom code which
+     *            must be decoded even if not part of the schema (may be null)
+     * @return the plan
+     */
+    public static Cob2AvroSchemaPlan get(CobolComplexType cobolComplexType,
+            Schema schema, Set < String > variableNames) {
+        synchronized (PLANS) {
+            List < SoftReference < Cob2AvroSchemaPlan > > plans = PLANS
+                    .get(cobolComplexType);
+            if (plans == null) {
+                plans = new ArrayList < SoftReference < Cob2AvroSchemaPlan > >();
+                PLANS.put(cobolComplexType, plans);
+            }
+            for (Iterator < SoftReference < Cob2AvroSchemaPlan > > it = plans
+                    .iterator(); it.hasNext();) {
+                Cob2AvroSchemaPlan plan = it.next().get();
+                if (plan == null) {
+                    it.remove();
+                } else if (plan.schema == schema
+                        && (variableNames == null ? plan.variableNames == null
+                                : variableNames.equals(plan.variableNames))) {
+                    return plan;
+                }
+            }
+            Cob2AvroSchemaPlan plan = new Cob2AvroSchemaPlan(cobolComplexType,
+                    schema, variableNames);
+            plans.add(new SoftReference < Cob2AvroSchemaPlan >(plan));
+            return plan;
+        }
+    }
+
+    /**
+     * @param schema an Avro record schema which is part of this plan
+     * @return the layout of the record or null if the schema is not part of
+     *         this plan
+     */
+    public RecordLayout getLayout(Schema schema) {
+        return layouts.get(schema);
+    }
+
+    /**
+     * @param type a primitive type which is part of this plan
+     * @return the decoder for the type or null if it is not a numeric that
+     *         qualifies
+     */
+    public HostNumberDecoder getNumberDecoder(CobolPrimitiveType < ? > type) {
+        return numberDecoders.get(type);
+    }
+
+    /**
+     * Convert a record, reusing a previous record graph.
+     *
+     * @param cursor positioned at the start of the mainframe record
+     * @param data the Avro data model used to create missing records
+     * @param reuse the previous record (may be null)
+     * @return the reused record or a new one if reuse did not fit
+     */
+    IndexedRecord convert(HostCursor cursor, GenericData data,
+            IndexedRecord reuse) {
+        return (IndexedRecord) getRoot().read(cursor, data, reuse);
+    }
+
+    /**
+     * Convert a record with the reader compiled for this plan.
+     * <p/>
+     * The reader is compiled the first time it is needed (see
+     * {@link Cob2AvroPlanCompiler}).
+     *
+     * @param cursor positioned at the start of the mainframe record
+     * @param data the Avro data model used to create records
+     * @return a new record
+     */
+    IndexedRecord convertCompiled(HostCursor cursor, GenericData data) {
+        return getCompiledReader().read(cursor, data);
+    }
+
+    /**
+     * Create a lazy record.
+     * <p/>
+     * The root fields are located but not decoded (except for ODO objects and
+     * variables).
+     *
+     * @param cursor positioned at the start of the mainframe record, it is
+     *            left past the record and then used by the lazy record to
+     *            decode fields
+     * @return the lazy record
+     */
+    LazyHostRecord lazy(HostCursor cursor) {
+        RecordNode root = getRoot();
+        LazyLayout lazyLayout = getLazyLayout();
+        int[] offsets = new int[lazyLayout.childIndexes.length];
+        Arrays.fill(offsets, -1);
+        for (int i = 0; i < lazyLayout.skipNodes.length; i++) {
+            if (root.dependingOn[i] != null
+                    && !cursor.isPresent(root.dependingOn[i])) {
+                continue;
+            }
+            int offset = cursor.mark();
+            if (root.layout.positions[i] > -1) {
+                offsets[root.layout.positions[i]] = offset;
+            }
+            lazyLayout.skipNodes[i].read(cursor, null, null);
+        }
+        return new LazyHostRecord(root.layout.schema, this, cursor, offsets);
+    }
+
+    /**
+     * Decode a root field of a lazy record.
+     *
+     * @param cursor the lazy record cursor
+     * @param pos the Avro field position
+     * @param offset the field offset in the mainframe data
+     * @return the Avro value
+     */
+    Object readField(HostCursor cursor, int pos, int offset) {
+        cursor.seek(offset);
+        return getRoot().children[getLazyLayout().childIndexes[pos]].read(
+                cursor, GenericData.get(), null);
+    }
+
+    private RecordNode getRoot() {
+        RecordNode root = this.root;
+        if (root == null) {
+            root = new RecordNode(cobolComplexType, schema);
+            this.root = root;
+        }
+        return root;
+    }
+
+    /**
+     * Compiling is costly so, unlike the tree, the reader is compiled by a
+     * single thread.
+     *
+     * @return the reader compiled for this plan
+     */
+    private AbstractCob2AvroCompiledReader getCompiledReader() {
+        AbstractCob2AvroCompiledReader compiledReader = this.compiledReader;
+        if (compiledReader == null) {
+            synchronized (this) {
+                compiledReader = this.compiledReader;
+                if (compiledReader == null) {
+                    compiledReader = new Cob2AvroPlanCompiler(this).compile(
+                            cobolComplexType, schema);
+                    this.compiledReader = compiledReader;
+                }
+            }
+        }
+        return compiledReader;
+    }
+
+    private LazyLayout getLazyLayout() {
+        LazyLayout lazyLayout = this.lazyLayout;
+        if (lazyLayout == null) {
+            lazyLayout = new LazyLayout();
+            this.lazyLayout = lazyLayout;
+        }
+        return lazyLayout;
+    }
+
+    /**
+     * Create the node for a COBOL type.
+     *
+     * @param type the COBOL type
+     * @param fieldName the name of the field holding the type
+     * @param schema the Avro schema corresponding to the type
+     * @return the node
+     */
+    private Node newNode(CobolType type, String fieldName, Schema schema) {
+        if (type instanceof CobolComplexType) {
+            // Optional fields are unions between a record type and "null"
+            return new RecordNode((CobolComplexType) type,
+                    schema.getType() == Schema.Type.UNION ? schema.getTypes()
+                            .get(0) : schema);
+        } else if (type instanceof CobolArrayType) {
+            return new ArrayNode((CobolArrayType) type, fieldName,
+                    schema.getElementType());
+        } else if (type instanceof CobolChoiceType) {
+            return new ChoiceNode((CobolChoiceType) type, fieldName, schema);
+        } else {
+            return new PrimitiveNode((CobolPrimitiveType < ? >) type,
+                    fieldName);
+        }
+    }
+
+    /**
+     * Create the node for a COBOL type that is not part of the Avro schema.
+     * <p/>
+     * If the type has a fixed size and holds no variables, it is skipped in
+     * one go. Otherwise, its structure is followed.
+     *
+     * @param type the COBOL type
+     * @param fieldName the name of the field holding the type
+     * @return the node
+     */
+    private Node newSkipNode(CobolType type, String fieldName) {
+        Node walker;
+        if (type instanceof CobolComplexType) {
+            walker = new RecordSkipNode((CobolComplexType) type);
+        } else if (type instanceof CobolArrayType) {
+            walker = new ArraySkipNode((CobolArrayType) type, fieldName);
+        } else if (type instanceof CobolChoiceType) {
+            walker = new ChoiceSkipNode((CobolChoiceType) type, fieldName);
+        } else {
+            return new PrimitiveSkipNode((CobolPrimitiveType < ? >) type,
+                    fieldName);
+        }
+        int bytesLen = getFixedBytesLen(type, fieldName);
+        return bytesLen < 0 ? walker : new FixedSkipNode(bytesLen, walker);
+    }
+
+    /**
+     * Computes the size of a COBOL type that can be skipped in one go.
+     *
+     * @param type the COBOL type
+     * @param fieldName the name of the field holding the type
+     * @return the size in bytes or -1 if the type is variable size or holds
+     *         variables
+     */
+    private int getFixedBytesLen(CobolType type, String fieldName) {
+        if (type instanceof CobolComplexType) {
+            int bytesLen = 0;
+            for (Entry < String, CobolType > entry : ((CobolComplexType) type)
+                    .getFields().entrySet()) {
+                if (entry.getValue() instanceof CobolOptionalType
+                        && ((CobolOptionalType) entry.getValue())
+                                .getDependingOn() != null) {
+                    return -1;
+                }
+                int childLen = getFixedBytesLen(entry.getValue(),
+                        entry.getKey());
+                if (childLen < 0) {
+                    return -1;
+                }
+                bytesLen += childLen;
+            }
+            return bytesLen;
+        } else if (type instanceof CobolArrayType) {
+            CobolArrayType arrayType = (CobolArrayType) type;
+            if (arrayType.isVariableSize()) {
+                return -1;
+            }
+            int itemLen = getFixedBytesLen(arrayType.getItemType(), fieldName);
+            return itemLen < 0 ? -1 : itemLen * arrayType.getMaxOccurs();
+        } else if (type instanceof CobolChoiceType) {
+            // Whatever the alternative, a choice occupies its maximum size
+            for (CobolType alternative : ((CobolChoiceType) type)
+                    .getAlternatives().values()) {
+                if (getFixedBytesLen(alternative, fieldName) < 0) {
+                    return -1;
+                }
+            }
+            return (int) type.getMaxBytesLen();
+        } else {
+            CobolPrimitiveType < ? > primitiveType = (CobolPrimitiveType < ? >) type;
+            return isVariable(primitiveType, fieldName) ? -1 : primitiveType
+                    .getBytesLen();
+        }
+    }
+
+    /**
+     * @param type a primitive type
+     * @param fieldName the name of the field holding the type
+     * @return true if the value of the primitive type is needed to convert
+     *         the rest of the record
+     */
+    private boolean isVariable(CobolPrimitiveType < ? > type, String fieldName) {
+        return type.isOdoObject() || type.isCustomVariable()
+                || (variableNames != null && variableNames.contains(fieldName));
+    }
+
+    /**
+     * Record the layout of an Avro record and of the records it holds.
+     *
+     * @param layouts the layouts collected so far
+     * @param type the COBOL complex type
+     * @param schema the Avro record schema, possibly a projection
+     */
+    private static void addLayout(Map < Schema, RecordLayout > layouts,
+            CobolComplexType type, Schema schema) {
+        int size = type.getFields().size();
+        int[] positions = new int[size];
+        Schema[] childSchemas = new Schema[size];
+        int i = 0;
+        for (Entry < String, CobolType > entry : type.getFields().entrySet()) {
+            Schema.Field field = schema.getField(entry.getKey());
+            if (field == null) {
+                // Projected out
+                positions[i] = -1;
+            } else {
+                positions[i] = field.pos();
+                childSchemas[i] = resolve(layouts, entry.getValue(),
+                        field.schema());
+            }
+            i++;
+        }
+        layouts.put(schema, new RecordLayout(schema, positions, childSchemas));
+    }
+
+    /**
+     * Resolve the schema that the visitor should use for a COBOL type and
+     * record layouts for nested records.
+     *
+     * @param layouts the layouts collected so far
+     * @param type the COBOL type
+     * @param schema the Avro schema corresponding to the type
+     * @return the resolved schema
+     */
+    private static Schema resolve(Map < Schema, RecordLayout > layouts,
+            CobolType type, Schema schema) {
+        if (type instanceof CobolComplexType) {
+            // Optional fields are unions between a record type and "null"
+            Schema recordSchema = schema.getType() == Schema.Type.UNION ? schema
+                    .getTypes().get(0) : schema;
+            addLayout(layouts, (CobolComplexType) type, recordSchema);
+            return recordSchema;
+        } else if (type instanceof CobolArrayType) {
+            Schema itemSchema = schema.getElementType();
+            resolve(layouts, ((CobolArrayType) type).getItemType(), itemSchema);
+            return itemSchema;
+        } else if (type instanceof CobolChoiceType) {
+            CobolChoiceType choiceType = (CobolChoiceType) type;
+            for (Entry < String, CobolType > entry : choiceType
+                    .getAlternatives().entrySet()) {
+                // Alternatives are in the same order as the union types
+                resolve(layouts, entry.getValue(), schema.getTypes().get(
+                        choiceType.getAlternativeIndex(entry.getKey())));
+            }
+            return schema;
+        }
+        return schema;
+    }
+
+    /**
+     * Positions and schemas of the children of an Avro record, indexed by the
+     * COBOL field index.
+     */
+    public static class RecordLayout {
+
+        private final Schema schema;
+
+        private final int[] positions;
+
+        private final Schema[] childSchemas;
+
+        private RecordLayout(Schema schema, int[] positions,
+                Schema[] childSchemas) {
+            this.schema = schema;
+            this.positions = positions;
+            this.childSchemas = childSchemas;
+        }
+
+        /**
+         * @param fieldIndex the COBOL field index in its complex type
+         * @return the position of the Avro field in the record, -1 if the
+         *         field is not part of the record (projection)
+         */
+        public int getPosition(int fieldIndex) {
+            return positions[fieldIndex];
+        }
+
+        /**
+         * @param fieldIndex the COBOL field index in its complex type
+         * @return the resolved Avro schema for the field (the record type for
+         *         optional records, the element type for arrays), null if the
+         *         field is not part of the record
+         */
+        public Schema getChildSchema(int fieldIndex) {
+            return childSchemas[fieldIndex];
+        }
+
+    }
+
+    /** Locates the root fields of lazy records. */
+    private class LazyLayout {
+
+        /** Move past each root child without decoding it. */
+        private final Node[] skipNodes;
+
+        /** For each Avro field position, the index of the root child or -1. */
+        private final int[] childIndexes;
+
+        private LazyLayout() {
+            RecordNode root = getRoot();
+            skipNodes = new Node[root.children.length];
+            int i = 0;
+            for (Entry < String, CobolType > entry : root.type.getFields()
+                    .entrySet()) {
+                skipNodes[i++] = newSkipNode(entry.getValue(), entry.getKey());
+            }
+            childIndexes = new int[schema.getFields().size()];
+            Arrays.fill(childIndexes, -1);
+            for (i = 0; i < root.layout.positions.length; i++) {
+                if (root.layout.positions[i] > -1) {
+                    childIndexes[root.layout.positions[i]] = i;
+                }
+            }
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Nodes
+    // -----------------------------------------------------------------------------
+    private static abstract class Node {
+
+        /**
+         * Read the value corresponding to this node.
+         *
+         * @param cursor positioned at the start of the value
+         * @param data the Avro data model used to create records
+         * @param reuse the previous Avro value (may be null)
+         * @return the Avro value
+         */
+        public abstract Object read(HostCursor cursor, GenericData data,
+                Object reuse);
+
+    }
+
+    private class RecordNode extends Node {
+
+        private final CobolComplexType type;
+
+        private final RecordLayout layout;
+
+        private final Node[] children;
+
+        /** For each child, the ODO object it depends on if optional. */
+        private final String[] dependingOn;
+
+        public RecordNode(CobolComplexType type, Schema schema) {
+            this.type = type;
+            layout = layouts.get(schema);
+            int size = type.getFields().size();
+            children = new Node[size];
+            dependingOn = new String[size];
+            int i = 0;
+            for (Entry < String, CobolType > entry : type.getFields()
+                    .entrySet()) {
+                if (layout.positions[i] < 0) {
+                    // Projected out
+                    children[i] = newSkipNode(entry.getValue(), entry.getKey());
+                } else {
+                    children[i] = newNode(entry.getValue(), entry.getKey(),
+                            schema.getFields().get(layout.positions[i])
+                                    .schema());
+                }
+                if (entry.getValue() instanceof CobolOptionalType) {
+                    dependingOn[i] = ((CobolOptionalType) entry.getValue())
+                            .getDependingOn();
+                }
+                i++;
+            }
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            IndexedRecord record = (IndexedRecord) data.newRecord(reuse,
+                    layout.schema);
+            boolean reused = record == reuse;
+            int[] positions = layout.positions;
+            for (int i = 0; i < children.length; i++) {
+                if (dependingOn[i] != null && !cursor.isPresent(dependingOn[i])) {
+                    if (reused && positions[i] > -1) {
+                        record.put(positions[i], null);
+                    }
+                    continue;
+                }
+                if (positions[i] < 0) {
+                    children[i].read(cursor, data, null);
+                    continue;
+                }
+                record.put(positions[i], children[i].read(cursor, data,
+                        reused ? record.get(positions[i]) : null));
+            }
+            return record;
+        }
+
+    }
+
+    private class ArrayNode extends Node {
+
+        private final Node item;
+
+        private final int maxOccurs;
+
+        /** The ODO object giving the actual dimension, null if fixed size. */
+        private final String dependingOn;
+
+        public ArrayNode(CobolArrayType type, String fieldName, Schema schema) {
+            item = newNode(type.getItemType(), fieldName, schema);
+            maxOccurs = type.getMaxOccurs();
+            dependingOn = type.isVariableSize() ? type.getDependingOn() : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            int occurs = dependingOn == null ? maxOccurs : cursor
+                    .getOdoValue(dependingOn);
+            if (!(reuse instanceof List)) {
+                List < Object > list = new ArrayList < Object >(occurs);
+                for (int i = 0; i < occurs; i++) {
+                    list.add(item.read(cursor, data, null));
+                }
+                return list;
+            }
+            // Resize the previous list in place, reusing its items
+            List < Object > list = (List < Object >) reuse;
+            int size = list.size();
+            for (int i = 0; i < occurs; i++) {
+                if (i < size) {
+                    list.set(i, item.read(cursor, data, list.get(i)));
+                } else {
+                    list.add(item.read(cursor, data, null));
+                }
+            }
+            if (size > occurs) {
+                list.subList(occurs, size).clear();
+            }
+            return list;
+        }
+
+    }
+
+    private class ChoiceNode extends Node {
+
+        private final CobolChoiceType type;
+
+        private final String fieldName;
+
+        private final Map < CobolType, Node > alternatives;
+
+        public ChoiceNode(CobolChoiceType type, String fieldName,
+                Schema schema) {
+            this.type = type;
+            this.fieldName = fieldName;
+            alternatives = new IdentityHashMap < CobolType, Node >();
+            for (Entry < String, CobolType > entry : type.getAlternatives()
+                    .entrySet()) {
+                // Alternatives are in the same order as the union types
+                alternatives.put(entry.getValue(), newNode(entry.getValue(),
+                        fieldName, schema.getTypes().get(
+                                type.getAlternativeIndex(entry.getKey()))));
+            }
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            CobolType alternative = cursor.chooseAlternative(fieldName, type);
+            Node node = alternatives.get(alternative);
+            if (node == null) {
+                throw new CobolChoiceStrategyException(
+                        "Unexpected alternative for choice " + fieldName);
+            }
+            Object value = node.read(cursor, data, reuse);
+            cursor.endAlternative(type, alternative);
+            return value;
+        }
+
+    }
+
+    private class PrimitiveNode extends Node {
+
+        private final CobolPrimitiveType < ? > type;
+
+        private final String fieldName;
+
+        /** Null unless this is a numeric with up to 18 digits. */
+        private final HostNumberDecoder numberDecoder;
+
+        public PrimitiveNode(CobolPrimitiveType < ? > type, String fieldName) {
+            this.type = type;
+            this.fieldName = fieldName;
+            this.numberDecoder = numberDecoders.get(type);
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            return cursor.fromHost(type, fieldName, reuse, numberDecoder);
+        }
+
+    }
+
+    /** Skips a fixed size type in one go, unless data is short. */
+    private static class FixedSkipNode extends Node {
+
+        private final int bytesLen;
+
+        /** Follows the type structure when not enough data is left. */
+        private final Node walker;
+
+        public FixedSkipNode(int bytesLen, Node walker) {
+            this.bytesLen = bytesLen;
+            this.walker = walker;
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            if (!cursor.skip(bytesLen)) {
+                walker.read(cursor, data, null);
+            }
+            return null;
+        }
+
+    }
+
+    private class RecordSkipNode extends Node {
+
+        private final Node[] children;
+
+        private final String[] dependingOn;
+
+        public RecordSkipNode(CobolComplexType type) {
+            int size = type.getFields().size();
+            children = new Node[size];
+            dependingOn = new String[size];
+            int i = 0;
+            for (Entry < String, CobolType > entry : type.getFields()
+                    .entrySet()) {
+                children[i] = newSkipNode(entry.getValue(), entry.getKey());
+                if (entry.getValue() instanceof CobolOptionalType) {
+                    dependingOn[i] = ((CobolOptionalType) entry.getValue())
+                            .getDependingOn();
+                }
+                i++;
+            }
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            for (int i = 0; i < children.length; i++) {
+                if (dependingOn[i] != null && !cursor.isPresent(dependingOn[i])) {
+                    continue;
+                }
+                children[i].read(cursor, data, null);
+            }
+            return null;
+        }
+
+    }
+
+    private class ArraySkipNode extends Node {
+
+        private final Node item;
+
+        private final int maxOccurs;
+
+        private final String dependingOn;
+
+        public ArraySkipNode(CobolArrayType type, String fieldName) {
+            item = newSkipNode(type.getItemType(), fieldName);
+            maxOccurs = type.getMaxOccurs();
+            dependingOn = type.isVariableSize() ? type.getDependingOn() : null;
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            int occurs = dependingOn == null ? maxOccurs : cursor
+                    .getOdoValue(dependingOn);
+            for (int i = 0; i < occurs; i++) {
+                item.read(cursor, data, null);
+            }
+            return null;
+        }
+
+    }
+
+    private class ChoiceSkipNode extends Node {
+
+        private final CobolChoiceType type;
+
+        private final String fieldName;
+
+        private final Map < CobolType, Node > alternatives;
+
+        public ChoiceSkipNode(CobolChoiceType type, String fieldName) {
+            this.type = type;
+            this.fieldName = fieldName;
+            alternatives = new IdentityHashMap < CobolType, Node >();
+            for (CobolType alternative : type.getAlternatives().values()) {
+                alternatives.put(alternative, newSkipNode(alternative,
+                        fieldName));
+            }
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            CobolType alternative = cursor.chooseAlternative(fieldName, type);
+            alternatives.get(alternative).read(cursor, data, null);
+            cursor.endAlternative(type, alternative);
+            return null;
+        }
+
+    }
+
+    /**
+     * Skips a primitive type unless its value is needed later or data is
+     * short.
+     */
+    private class PrimitiveSkipNode extends Node {
+
+        private final CobolPrimitiveType < ? > type;
+
+        private final String fieldName;
+
+        private final boolean variable;
+
+        private final HostNumberDecoder numberDecoder;
+
+        public PrimitiveSkipNode(CobolPrimitiveType < ? > type,
+                String fieldName) {
+            this.type = type;
+            this.fieldName = fieldName;
+            this.variable = isVariable(type, fieldName);
+            this.numberDecoder = variable ? numberDecoders.get(type) : null;
+        }
+
+        public Object read(HostCursor cursor, GenericData data, Object reuse) {
+            if (variable || !cursor.skip(type.getBytesLen())) {
+                cursor.fromHost(type, fieldName, null, numberDecoder);
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -19,6 +19,10 @@ import com.legstar.base.visitor.Cob2ObjectValidator;
  * There is a performance hit in converting to a specific record but these are
  * much easier to manipulate than the GenericRecord.
  * <p/>
+ * The hit can be avoided by having specific records created directly during
+ * the conversion (see {@link Builder#specificData(boolean)}) rather than
+ * copying generic records.
+ * <p/>
  * In addition to converting this class offers methods to validate the content
  * of a host buffer against the proposed structure.
  * 
@@ -48,8 +52,12 @@ public class Cob2AvroSpecificConverter extends
         if (result.getValue() == null) {
             return null;
         }
-        this.specificRecord = (SpecificRecord) SpecificData.get().deepCopy(
-                result.getValue().getSchema(), result.getValue());
+        if (result.getValue() instanceof SpecificRecord) {
+            this.specificRecord = (SpecificRecord) result.getValue();
+        } else {
+            this.specificRecord = (SpecificRecord) SpecificData.get()
+                    .deepCopy(result.getValue().getSchema(), result.getValue());
+        }
         return new FromHostResult < SpecificRecord >(
                 result.getBytesProcessed(), specificRecord);
     }
@@ -81,6 +89,8 @@ public class Cob2AvroSpecificConverter extends
 
         private Schema schema;
 
+        private boolean specificData;
+
         public Cob2AvroSpecificConverter build() {
             return new Cob2AvroSpecificConverter(this);
         }
@@ -99,6 +109,18 @@ public class Cob2AvroSpecificConverter extends
             return this;
         }
 
+        /**
+         * Create the specific records directly during the conversion rather
+         * than copying a generic record.
+         * 
+         * @param specificData true to create specific records directly
+         * @return this builder
+         */
+        public Builder specificData(boolean specificData) {
+            this.specificData = specificData;
+            return this;
+        }
+
         protected Builder self() {
             return this;
         }
@@ -117,7 +139,8 @@ public class Cob2AvroSpecificConverter extends
         }
         converter = new Cob2AvroGenericConverter.Builder()
                 .cobolContext(getCobolContext())
-                .cobolComplexType(getCobolComplexType()).schema(schema).build();
+                .cobolComplexType(getCobolComplexType()).schema(schema)
+                .specificData(builder.specificData).build();
         hostBytesLen = (int) getCobolComplexType().getMaxBytesLen();
     }
 
@@ -4,11 +4,13 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
 
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.type.CobolType;
@@ -16,6 +18,7 @@ import com.legstar.base.type.composite.CobolArrayType;
 import com.legstar.base.type.composite.CobolChoiceType;
 import com.legstar.base.type.composite.CobolComplexType;
 import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.FromHostPrimitiveResult;
 import com.legstar.base.visitor.FromCobolChoiceStrategy;
 import com.legstar.base.visitor.FromCobolVisitor;
 
@@ -27,6 +30,15 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
     /** Last avro object produced by visiting a field. */
     private Object resultObject;
 
+    /** Precomputed positions and schemas of Avro record children. */
+    private Cob2AvroSchemaPlan schemaPlan;
+
+    /**
+     * Avro data model used to create records (SpecificData creates specific
+     * records when the classes are available).
+     */
+    private final GenericData data;
+
     /**
      * Set of unique handlers to receive notifications from
      * {@link FromCobolVisitor}
@@ -34,6 +46,19 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
     private final AvroPrimitiveTypeHandler primitiveTypeHandler;
     private final AvroChoiceTypeAlternativeHandler choiceTypeHandler;
 
+    /**
+     * Mirrors the offset that {@link FromCobolVisitor} keeps pending after an
+     * alternative shorter than its choice. Numerics are decoded directly only
+     * when there is no such offset.
+     */
+    private int pendingOffset;
+
+    /** Produces Utf8 values for alphanumerics, null for java strings. */
+    private HostStringDecoder stringDecoder;
+
+    /** Caches of alphanumeric values keyed by primitive type (may be null). */
+    private Map < CobolPrimitiveType < ? >, HostStringCache > stringCaches;
+
     // -----------------------------------------------------------------------------
     // Constructors
     // -----------------------------------------------------------------------------
@@ -55,9 +80,63 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
     public Cob2AvroVisitor(CobolContext cobolContext, byte[] hostData,
             int start, int length, FromCobolChoiceStrategy customChoiceStrategy,
             Set < String > customVariables, Schema schema) {
+        this(cobolContext, hostData, start, length, customChoiceStrategy,
+                customVariables, schema, null);
+    }
+
+    /**
+     * Create a visitor with a schema plan, typically shared by all the
+     * visitors converting the same kind of records.
+     * 
+     * @param cobolContext host COBOL configuration parameters
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the expected type in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @param customChoiceStrategy a custom redefines alternative selector (may
+     *            be null)
+     * @param customVariables names of variables needed by custom code (may be
+     *            null)
+     * @param schema the Avro schema of the record produced
+     * @param schemaPlan the plan for the COBOL type visited and the schema (if
+     *            null, it is obtained at the start of the visit)
+     */
+    public Cob2AvroVisitor(CobolContext cobolContext, byte[] hostData,
+            int start, int length, FromCobolChoiceStrategy customChoiceStrategy,
+            Set < String > customVariables, Schema schema,
+            Cob2AvroSchemaPlan schemaPlan) {
+        this(cobolContext, hostData, start, length, customChoiceStrategy,
+                customVariables, schema, schemaPlan, GenericData.get());
+    }
+
+    /**
+     * Create a visitor that creates records with a specific Avro data model.
+     * <p/>
+     * With {@link org.apache.avro.specific.SpecificData}, records are
+     * instances of the specific classes, when available, and are filled in
+     * place so there is no need to copy the result.
+     * 
+     * @param cobolContext host COBOL configuration parameters
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the expected type in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @param customChoiceStrategy a custom redefines alternative selector (may
+     *            be null)
+     * @param customVariables names of variables needed by custom code (may be
+     *            null)
+     * @param schema the Avro schema of the record produced
+     * @param schemaPlan the plan for the COBOL type visited and the schema (if
+     *            null, it is obtained at the start of the visit)
+     * @param data the Avro data model used to create records
+     */
+    public Cob2AvroVisitor(CobolContext cobolContext, byte[] hostData,
+            int start, int length, FromCobolChoiceStrategy customChoiceStrategy,
+            Set < String > customVariables, Schema schema,
+            Cob2AvroSchemaPlan schemaPlan, GenericData data) {
         super(cobolContext, hostData, start, length, customChoiceStrategy,
                 customVariables);
         currentSchema = schema;
+        this.schemaPlan = schemaPlan;
+        this.data = data;
         primitiveTypeHandler = new AvroPrimitiveTypeHandler();
         choiceTypeHandler = new AvroChoiceTypeAlternativeHandler();
     }
@@ -66,8 +145,13 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
     // Visit methods
     // -----------------------------------------------------------------------------
     public void visit(CobolComplexType type) {
-        GenericRecord record = new GenericData.Record(currentSchema);
-        super.visitComplexType(type, new AvroComplexTypeChildHandler(record));
+        if (schemaPlan == null) {
+            schemaPlan = Cob2AvroSchemaPlan.get(type, currentSchema);
+        }
+        GenericRecord record = (GenericRecord) data.newRecord(null,
+                currentSchema);
+        super.visitComplexType(type, new AvroComplexTypeChildHandler(record,
+                schemaPlan.getLayout(currentSchema)));
         resultObject = record;
     }
 
@@ -78,13 +162,100 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
     }
 
     public void visit(CobolChoiceType type) {
+        choiceTypeHandler.alternative = null;
         super.visitCobolChoiceType(type, choiceTypeHandler);
+        CobolType alternative = choiceTypeHandler.alternative;
+        if (alternative != null
+                && alternative.getMaxBytesLen() < type.getMaxBytesLen()) {
+            pendingOffset += type.getMaxBytesLen()
+                    - alternative.getMaxBytesLen();
+        }
     }
 
     public void visit(CobolPrimitiveType < ? > type) {
+        if (pendingOffset == 0 && (visitNumber(type) || visitString(type))) {
+            return;
+        }
+        pendingOffset = 0;
         super.visitCobolPrimitiveType(type, primitiveTypeHandler);
     }
 
+    /**
+     * Numerics with up to 18 digits are decoded to a long, which is then
+     * converted to an Avro int, long or decimal without going through
+     * {@link BigInteger} or {@link BigDecimal}.
+     * <p/>
+     * Invalid data is left to the regular visit.
+     * 
+     * @param type the primitive type
+     * @return true if the numeric was converted
+     */
+    private boolean visitNumber(CobolPrimitiveType < ? > type) {
+        HostNumberDecoder decoder = schemaPlan == null ? null : schemaPlan
+                .getNumberDecoder(type);
+        if (decoder == null) {
+            return false;
+        }
+        int pos = getLastPos();
+        if (pos >= getLength()
+                || pos + decoder.getBytesLen() > getHostData().length) {
+            return false;
+        }
+        long value = decoder.decode(getCobolContext(), getHostData(), pos);
+        if (value == HostNumberDecoder.INVALID) {
+            return false;
+        }
+        setLastPos(pos + decoder.getBytesLen());
+        if (type.isOdoObject() || isCustomVariable(type, getCurFieldName())) {
+            putVariable(getCurFieldName(), decoder.toJavaValue(value));
+        }
+        resultObject = decoder.toAvroValue(value, null);
+        return true;
+    }
+
+    /**
+     * When requested, alphanumerics are decoded to Avro {@link Utf8} values
+     * and values of some alphanumerics are shared through a cache.
+     * <p/>
+     * Variables and invalid data are left to the regular visit.
+     * 
+     * @param type the primitive type
+     * @return true if the alphanumeric was converted
+     */
+    private boolean visitString(CobolPrimitiveType < ? > type) {
+        HostStringCache cache = stringCaches == null ? null : stringCaches
+                .get(type);
+        if ((stringDecoder == null && cache == null)
+                || !HostStringDecoder.accepts(type) || type.isOdoObject()
+                || isCustomVariable(type, getCurFieldName())) {
+            return false;
+        }
+        int pos = getLastPos();
+        if (pos >= getLength()) {
+            return false;
+        }
+        Object value = cache == null ? null : cache.get(getHostData(), pos);
+        if (value == null) {
+            if (stringDecoder != null) {
+                value = stringDecoder.decode(getHostData(), pos,
+                        type.getBytesLen(), null);
+            } else {
+                FromHostPrimitiveResult < ? > result = type.fromHost(
+                        getCobolContext(), getHostData(), pos);
+                if (!result.isSuccess()) {
+                    return false;
+                }
+                value = result.getValue();
+            }
+            if (cache != null) {
+                cache.put(getHostData(), pos, value);
+            }
+        }
+        resultObject = value;
+        setLastPos(pos + type.getBytesLen());
+        return true;
+    }
+
     // -----------------------------------------------------------------------------
     // Handlers
     // -----------------------------------------------------------------------------
@@ -93,38 +264,36 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
 
         private final GenericRecord record;
 
+        private final Cob2AvroSchemaPlan.RecordLayout layout;
+
         private Schema previousSchema;
 
-        public AvroComplexTypeChildHandler(GenericRecord record) {
+        public AvroComplexTypeChildHandler(GenericRecord record,
+                Cob2AvroSchemaPlan.RecordLayout layout) {
             this.record = record;
+            this.layout = layout;
         }
 
         public boolean preVisit(String fieldName, int fieldIndex,
                 CobolType child) {
 
+            // The visitor decodes every field, it cannot follow a projection
+            if (layout.getPosition(fieldIndex) < 0) {
+                throw new IllegalArgumentException("Field " + fieldName
+                        + " not found in Avro record "
+                        + record.getSchema().getFullName());
+            }
+
             // Create the Avro schema context for the child
             previousSchema = currentSchema;
-            if (child instanceof CobolComplexType) {
-                Schema childSchema = record.getSchema().getField(fieldName).schema();
-                // Optional fields are unions between a record type and "null"
-                if (childSchema.getType().equals(Schema.Type.UNION)) {
-                    currentSchema = childSchema.getTypes().get(0);
-                } else {
-                    currentSchema = record.getSchema().getField(fieldName).schema();
-                }
-            } else if (child instanceof CobolArrayType) {
-                currentSchema = record.getSchema().getField(fieldName).schema()
-                        .getElementType();
-            } else if (child instanceof CobolChoiceType) {
-                currentSchema = record.getSchema().getField(fieldName).schema();
-            }
+            currentSchema = layout.getChildSchema(fieldIndex);
             return true;
         }
 
         public boolean postVisit(String fieldName, int fieldIndex,
                 CobolType child) {
 
-            record.put(fieldName, resultObject);
+            record.put(layout.getPosition(fieldIndex), resultObject);
 
             // Restore the Avro schema context
             currentSchema = previousSchema;
@@ -157,6 +326,9 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
 
         private Schema previousSchema;
 
+        /** The alternative last visited. */
+        private CobolType alternative;
+
         public void preVisit(String alternativeName, int alternativeIndex,
                 CobolType alternative) {
             // Set the alternative schema as current
@@ -169,6 +341,7 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
                 CobolType alternative) {
             // Restore the Avro schema context
             currentSchema = previousSchema;
+            this.alternative = alternative;
         }
 
     }
@@ -180,25 +353,59 @@ public class Cob2AvroVisitor extends FromCobolVisitor {
         }
 
         public void postVisit(CobolPrimitiveType < ? > type, Object value) {
-            if (value instanceof BigDecimal) {
-                resultObject = DecimalUtils.toByteBuffer((BigDecimal) value);
-            } else if (value instanceof BigInteger) {
-                // TODO there is a risk of overflow here but Avro does not have
-                // unsigned int/long
-                resultObject = ((BigInteger) value).longValue();
-            } else if (value instanceof Short) {
-                resultObject = ((Short) value).intValue();
-            } else {
-                resultObject = value;
-            }
+            resultObject = toAvroValue(value);
         }
 
     }
 
+    /**
+     * Map a java value produced by a COBOL primitive type to the
+     * corresponding Avro value.
+     * 
+     * @param value the java value
+     * @return the Avro value
+     */
+    static Object toAvroValue(Object value) {
+        if (value instanceof BigDecimal) {
+            return DecimalUtils.toByteBuffer((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            // TODO there is a risk of overflow here but Avro does not have
+            // unsigned int/long
+            return ((BigInteger) value).longValue();
+        } else if (value instanceof Short) {
+            return ((Short) value).intValue();
+        } else {
+            return value;
+        }
+    }
+
     // -----------------------------------------------------------------------------
     // Getters
     // -----------------------------------------------------------------------------
     public Object getResultObject() {
         return resultObject;
     }
+
+    // -----------------------------------------------------------------------------
+    // Setters
+    // -----------------------------------------------------------------------------
+    /**
+     * Produce {@link Utf8} values rather than java strings for alphanumerics.
+     * 
+     * @param stringDecoder the decoder to use (null to produce java strings)
+     */
+    public void setStringDecoder(HostStringDecoder stringDecoder) {
+        this.stringDecoder = stringDecoder;
+    }
+
+    /**
+     * Share the values of some alphanumerics rather than decoding them each
+     * time.
+     * 
+     * @param stringCaches caches keyed by primitive type (may be null)
+     */
+    void setStringCaches(
+            Map < CobolPrimitiveType < ? >, HostStringCache > stringCaches) {
+        this.stringCaches = stringCaches;
+    }
 }
@@ -0,0 +1,328 @@
+package com.legstar.avro.cob2avro;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.CobolOptionalType;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolDecimalType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.FromHostPrimitiveResult;
+import com.legstar.base.visitor.FromCobolException;
+
+/**
+ * Gives random access to individual fields of mainframe records.
+ * <p/>
+ * When there are no variable size arrays (OCCURS DEPENDING ON) and no optional
+ * fields, each field in a record has a static offset. A field can then be read
+ * directly, without visiting the fields that precede it. This is handy to
+ * extract keys, filter or partition records.
+ * <p/>
+ * In records with variable parts, fields that come before the first variable
+ * part still have a static offset and can be accessed.
+ * <p/>
+ * Fields are identified by a path made of the field names (and alternative
+ * names for REDEFINES), separated by dots. Items of fixed size arrays are
+ * identified with an index between square brackets, such as
+ * <code>comArray1[1].comGroup1.comItem3</code>.
+ * <p/>
+ * Offsets are computed once per path. This class is Thread safe.
+ *
+ */
+public class CobolFixedLayout {
+
+    private final CobolContext cobolContext;
+
+    private final CobolComplexType cobolComplexType;
+
+    /** Fields already located, keyed by path. */
+    private final Map < String, FixedField > fields = new ConcurrentHashMap < String, FixedField >();
+
+    /**
+     * Create the layout of a record type.
+     *
+     * @param cobolContext host COBOL configuration parameters
+     * @param cobolComplexType the record type
+     */
+    public CobolFixedLayout(CobolContext cobolContext,
+            CobolComplexType cobolComplexType) {
+        this.cobolContext = cobolContext;
+        this.cobolComplexType = cobolComplexType;
+    }
+
+    /**
+     * @return true if all fields in the record have a static offset
+     */
+    public boolean isFixed() {
+        return isFixedSize(cobolComplexType);
+    }
+
+    /**
+     * Locate a primitive field.
+     *
+     * @param path the field path
+     * @return the field with its offset in the record
+     * @throws IllegalArgumentException if the path does not lead to a
+     *             primitive field at a static offset
+     */
+    public FixedField getField(String path) {
+        FixedField field = fields.get(path);
+        if (field == null) {
+            field = locate(path);
+            fields.put(path, field);
+        }
+        return field;
+    }
+
+    public long getLong(byte[] hostData, String path) {
+        return getField(path).getLong(hostData, 0);
+    }
+
+    public String getString(byte[] hostData, String path) {
+        return getField(path).getString(hostData, 0);
+    }
+
+    public BigDecimal getDecimal(byte[] hostData, String path) {
+        return getField(path).getDecimal(hostData, 0);
+    }
+
+    /**
+     * Follow a path from the record root, summing the sizes of the fields
+     * that precede each path element.
+     *
+     * @param path the field path
+     * @return the field located
+     */
+    private FixedField locate(String path) {
+        CobolType type = cobolComplexType;
+        long offset = 0;
+        for (String element : path.split("\\.")) {
+            String name = element;
+            int index = -1;
+            int bracket = element.indexOf('[');
+            if (bracket > -1 && element.endsWith("]")) {
+                name = element.substring(0, bracket);
+                try {
+                    index = Integer.parseInt(element.substring(bracket + 1,
+                            element.length() - 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid index in "
+                            + path);
+                }
+            }
+            CobolType child = null;
+            if (type instanceof CobolComplexType) {
+                for (Entry < String, CobolType > entry : ((CobolComplexType) type)
+                        .getFields().entrySet()) {
+                    if (entry.getKey().equals(name)) {
+                        child = entry.getValue();
+                        break;
+                    }
+                    if (!isFixedSize(entry.getValue())
+                            || isOptional(entry.getValue())) {
+                        throw new IllegalArgumentException("Field " + path
+                                + " does not have a static offset");
+                    }
+                    offset += entry.getValue().getMaxBytesLen();
+                }
+            } else if (type instanceof CobolChoiceType) {
+                // All alternatives start at the choice offset
+                child = ((CobolChoiceType) type).getAlternatives().get(name);
+            }
+            if (child == null) {
+                throw new IllegalArgumentException("No field named " + name
+                        + " in " + path);
+            }
+            if (isOptional(child)) {
+                throw new IllegalArgumentException("Field " + path
+                        + " is optional");
+            }
+            if (child instanceof CobolArrayType) {
+                CobolArrayType arrayType = (CobolArrayType) child;
+                if (arrayType.isVariableSize()) {
+                    throw new IllegalArgumentException("Field " + path
+                            + " is part of a variable size array");
+                }
+                if (index < 0 || index >= arrayType.getMaxOccurs()) {
+                    throw new IllegalArgumentException("Missing or invalid index for array "
+                            + name + " in " + path);
+                }
+                child = arrayType.getItemType();
+                if (!isFixedSize(child)) {
+                    throw new IllegalArgumentException("Field " + path
+                            + " is part of a variable size array");
+                }
+                offset += index * child.getMaxBytesLen();
+            } else if (index > -1) {
+                throw new IllegalArgumentException("Field " + name + " in "
+                        + path + " is not an array");
+            }
+            type = child;
+        }
+        if (!(type instanceof CobolPrimitiveType)) {
+            throw new IllegalArgumentException("Field " + path
+                    + " is not an elementary field");
+        }
+        return new FixedField(cobolContext, (CobolPrimitiveType < ? >) type,
+                (int) offset);
+    }
+
+    private static boolean isOptional(CobolType type) {
+        return type instanceof CobolOptionalType
+                && ((CobolOptionalType) type).getDependingOn() != null;
+    }
+
+    /**
+     * A choice occupies the size of its largest alternative so it is fixed size
+     * as long as all its alternatives are.
+     *
+     * @param type a COBOL type
+     * @return true if the type always occupies the same number of bytes
+     */
+    private static boolean isFixedSize(CobolType type) {
+        if (type instanceof CobolComplexType) {
+            for (CobolType child : ((CobolComplexType) type).getFields()
+                    .values()) {
+                if (isOptional(child) || !isFixedSize(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (type instanceof CobolArrayType) {
+            CobolArrayType arrayType = (CobolArrayType) type;
+            return !arrayType.isVariableSize()
+                    && isFixedSize(arrayType.getItemType());
+        } else if (type instanceof CobolChoiceType) {
+            for (CobolType alternative : ((CobolChoiceType) type)
+                    .getAlternatives().values()) {
+                if (!isFixedSize(alternative)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return true;
+    }
+
+    /**
+     * A primitive field at a static offset in a record.
+     * <p/>
+     * This class is immutable and Thread safe.
+     */
+    public static class FixedField {
+
+        private final CobolContext cobolContext;
+
+        private final CobolPrimitiveType < ? > type;
+
+        private final int offset;
+
+        /** Null unless this is a numeric with up to 18 digits. */
+        private final HostNumberDecoder numberDecoder;
+
+        private FixedField(CobolContext cobolContext,
+                CobolPrimitiveType < ? > type, int offset) {
+            this.cobolContext = cobolContext;
+            this.type = type;
+            this.offset = offset;
+            this.numberDecoder = HostNumberDecoder.create(type);
+        }
+
+        /**
+         * Decode the field.
+         *
+         * @param hostData the buffer containing mainframe data
+         * @param start the start position of the record in the buffer
+         * @return the java value
+         * @throws FromCobolException if the data is not valid for the field
+         */
+        public Object getValue(byte[] hostData, int start) {
+            FromHostPrimitiveResult < ? > result = type.fromHost(cobolContext,
+                    hostData, start + offset);
+            if (!result.isSuccess()) {
+                throw new FromCobolException(result.getErrorMessage(),
+                        type.getCobolName(), type);
+            }
+            return result.getValue();
+        }
+
+        /**
+         * Decode an integer field.
+         * <p/>
+         * Numerics with up to 18 digits are decoded straight into a long.
+         * Larger ones go through the COBOL type.
+         *
+         * @param hostData the buffer containing mainframe data
+         * @param start the start position of the record in the buffer
+         * @return the field value
+         * @throws IllegalArgumentException if the field is not an integer
+         * @throws FromCobolException if the data is not valid for the field
+         */
+        public long getLong(byte[] hostData, int start) {
+            if (!(type instanceof CobolDecimalType)
+                    || ((CobolDecimalType < ? >) type).getFractionDigits() > 0) {
+                throw new IllegalArgumentException("Field "
+                        + type.getCobolName() + " is not an integer");
+            }
+            if (numberDecoder != null) {
+                long value = numberDecoder.decode(cobolContext, hostData,
+                        start + offset);
+                if (value != HostNumberDecoder.INVALID) {
+                    return value;
+                }
+            }
+            // The COBOL type reports invalid data
+            Number value = (Number) getValue(hostData, start);
+            if (value instanceof BigInteger
+                    && ((BigInteger) value).bitLength() > 63) {
+                throw new ArithmeticException("Field " + type.getCobolName()
+                        + " value " + value + " does not fit in a long");
+            }
+            return value.longValue();
+        }
+
+        public String getString(byte[] hostData, int start) {
+            return getValue(hostData, start).toString();
+        }
+
+        public BigDecimal getDecimal(byte[] hostData, int start) {
+            Object value = getValue(hostData, start);
+            if (value instanceof BigDecimal) {
+                return (BigDecimal) value;
+            } else if (value instanceof BigInteger) {
+                return new BigDecimal((BigInteger) value);
+            } else if (value instanceof Number) {
+                return new BigDecimal(value.toString());
+            }
+            throw new NumberFormatException("Field " + type.getCobolName()
+                    + " is not numeric");
+        }
+
+        public CobolPrimitiveType < ? > getType() {
+            return type;
+        }
+
+        /**
+         * @return the offset of the field relative to the record start
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the size of the field in bytes
+         */
+        public int getBytesLen() {
+            return type.getBytesLen();
+        }
+
+    }
+
+}
@@ -9,11 +9,61 @@ public class DecimalUtils {
 	private DecimalUtils() {}
 	
 	public static BigDecimal toBigDecimal(ByteBuffer avroDecimal, int scale) {
-		return new BigDecimal(new BigInteger(avroDecimal.array()), scale);
+		// Reused buffers might have a backing array larger than the content
+		byte[] unscaled = new byte[avroDecimal.remaining()];
+		avroDecimal.duplicate().get(unscaled);
+		return new BigDecimal(new BigInteger(unscaled), scale);
 	}
 	
 	public static ByteBuffer toByteBuffer(BigDecimal decimal) {
 		return ByteBuffer.wrap(decimal.unscaledValue().toByteArray());
 	}
 
+	/**
+	 * Same as above but fills a previous buffer if it is large enough.
+	 * 
+	 * @param decimal the decimal value
+	 * @param reuse a buffer to reuse (may be null)
+	 * @return the reused buffer or a new one
+	 */
+	public static ByteBuffer toByteBuffer(BigDecimal decimal, ByteBuffer reuse) {
+		byte[] unscaled = decimal.unscaledValue().toByteArray();
+		if (reuse == null || reuse.isReadOnly()
+				|| reuse.capacity() < unscaled.length) {
+			return ByteBuffer.wrap(unscaled);
+		}
+		reuse.clear();
+		reuse.put(unscaled);
+		reuse.flip();
+		return reuse;
+	}
+
+	/**
+	 * Store an unscaled decimal value as Avro decimal bytes without going
+	 * through BigInteger.
+	 * <p/>
+	 * Bytes are the shortest big-endian two's complement, same as
+	 * {@link BigInteger#toByteArray()}.
+	 *
+	 * @param unscaled the unscaled decimal value
+	 * @param reuse a buffer to reuse (may be null)
+	 * @return the reused buffer or a new one
+	 */
+	public static ByteBuffer toByteBuffer(long unscaled, ByteBuffer reuse) {
+		int len = (64 - Long.numberOfLeadingZeros(unscaled < 0 ? ~unscaled
+				: unscaled)) / 8 + 1;
+		ByteBuffer buffer;
+		if (reuse == null || reuse.isReadOnly() || reuse.capacity() < len) {
+			buffer = ByteBuffer.allocate(len);
+		} else {
+			buffer = reuse;
+			buffer.clear();
+		}
+		for (int i = len - 1; i >= 0; i--) {
+			buffer.put((byte) (unscaled >> (i * 8)));
+		}
+		buffer.flip();
+		return buffer;
+	}
+
 }
@@ -0,0 +1,448 @@
+package com.legstar.avro.cob2avro;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.util.Utf8;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.FromHostPrimitiveResult;
+import com.legstar.base.visitor.CobolChoiceStrategyException;
+import com.legstar.base.visitor.CobolODOResolutionException;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+import com.legstar.base.visitor.FromCobolException;
+
+/**
+ * Keeps track of the position in a mainframe buffer while a generated
+ * converter decodes a record.
+ * <p/>
+ * This is the straight-line counterpart of the state kept by
+ * {@link com.legstar.base.visitor.FromCobolVisitor}: current position, pending
+ * offset left by a short REDEFINES alternative and the variables (ODO objects,
+ * custom variables) collected so far.
+ * <p/>
+ * A cursor is created for each record converted and is not Thread safe.
+ *
+ */
+public class HostCursor {
+
+    private final CobolContext cobolContext;
+
+    private final byte[] hostData;
+
+    /** Absolute position in hostData past which there is no more data. */
+    private final int length;
+
+    /** Values of ODO objects and custom variables collected so far. */
+    private final Map < String, Object > variables;
+
+    /** Names of the variables requested by custom code. */
+    private final Set < String > variableNames;
+
+    private final FromCobolChoiceStrategy customChoiceStrategy;
+
+    private final FromCobolChoiceStrategy defaultChoiceStrategy;
+
+    /** Numeric decoders keyed by primitive type (may be null). */
+    private final Map < CobolPrimitiveType < ? >, HostNumberDecoder > numberDecoders;
+
+    /** Produces Utf8 values for alphanumerics, null for java strings. */
+    private HostStringDecoder stringDecoder;
+
+    /** Caches of alphanumeric values keyed by primitive type (may be null). */
+    private Map < CobolPrimitiveType < ? >, HostStringCache > stringCaches;
+
+    /** Absolute position in hostData of the next field. */
+    private int pos;
+
+    /**
+     * Bytes to skip before the next primitive field (when an alternative
+     * shorter than its choice was decoded).
+     */
+    private int extraOffset;
+
+    /**
+     * Create a cursor.
+     *
+     * @param cobolContext host COBOL configuration parameters
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the expected type in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @param customChoiceStrategy a custom redefines alternative selector (may
+     *            be null)
+     * @param defaultChoiceStrategy the default redefines alternative selector
+     * @param variableNames names of variables needed by custom code (may be
+     *            null)
+     */
+    public HostCursor(CobolContext cobolContext, byte[] hostData, int start,
+            int length, FromCobolChoiceStrategy customChoiceStrategy,
+            FromCobolChoiceStrategy defaultChoiceStrategy,
+            Set < String > variableNames) {
+        this(cobolContext, hostData, start, length, customChoiceStrategy,
+                defaultChoiceStrategy, variableNames, null);
+    }
+
+    /**
+     * Create a cursor that decodes numerics with the decoders provided.
+     *
+     * @param cobolContext host COBOL configuration parameters
+     * @param hostData the buffer containing mainframe data
+     * @param start the start position for the expected type in the buffer
+     * @param length the position past which there is no more mainframe data
+     * @param customChoiceStrategy a custom redefines alternative selector (may
+     *            be null)
+     * @param defaultChoiceStrategy the default redefines alternative selector
+     * @param variableNames names of variables needed by custom code (may be
+     *            null)
+     * @param numberDecoders numeric decoders keyed by primitive type, as
+     *            produced by {@link HostNumberDecoder#createAll} (may be null)
+     */
+    public HostCursor(CobolContext cobolContext, byte[] hostData, int start,
+            int length, FromCobolChoiceStrategy customChoiceStrategy,
+            FromCobolChoiceStrategy defaultChoiceStrategy,
+            Set < String > variableNames,
+            Map < CobolPrimitiveType < ? >, HostNumberDecoder > numberDecoders) {
+        this.cobolContext = cobolContext;
+        this.hostData = hostData;
+        this.pos = start;
+        this.length = length;
+        this.customChoiceStrategy = customChoiceStrategy;
+        this.defaultChoiceStrategy = defaultChoiceStrategy;
+        this.variableNames = variableNames;
+        this.numberDecoders = numberDecoders;
+        this.variables = new HashMap < String, Object >();
+    }
+
+    /**
+     * Decode the primitive field at the current position and move past it.
+     * <p/>
+     * ODO objects and custom variables are kept for later use by arrays,
+     * optional fields and choice strategies.
+     *
+     * @param type the primitive type to decode
+     * @param fieldName the name of the field (the array or choice name for
+     *            items and alternatives)
+     * @return the Avro value or null if there is no data left
+     */
+    public Object fromHost(CobolPrimitiveType < ? > type, String fieldName) {
+        return fromHost(type, fieldName, null);
+    }
+
+    /**
+     * Same as above but decimal values are stored in the previous value buffer
+     * when possible.
+     *
+     * @param type the primitive type to decode
+     * @param fieldName the name of the field
+     * @param reuse the previous Avro value for this field (may be null)
+     * @return the Avro value or null if there is no data left
+     */
+    public Object fromHost(CobolPrimitiveType < ? > type, String fieldName,
+            Object reuse) {
+        return fromHost(type, fieldName, reuse, getNumberDecoder(type));
+    }
+
+    /**
+     * Same as above but numerics are decoded directly to Avro values when a
+     * decoder is available.
+     * <p/>
+     * Invalid values are decoded by the COBOL type so that errors are reported
+     * the usual way.
+     *
+     * @param type the primitive type to decode
+     * @param fieldName the name of the field
+     * @param reuse the previous Avro value for this field (may be null)
+     * @param decoder the numeric decoder for the type (may be null)
+     * @return the Avro value or null if there is no data left
+     */
+    public Object fromHost(CobolPrimitiveType < ? > type, String fieldName,
+            Object reuse, HostNumberDecoder decoder) {
+        applyExtraOffset();
+        if (pos >= length) {
+            return null;
+        }
+        if (decoder != null) {
+            long value = decodeNumber(type, fieldName, decoder);
+            if (value != HostNumberDecoder.INVALID) {
+                return decoder.toAvroValue(value, reuse);
+            }
+        } else if ((stringDecoder != null || stringCaches != null)
+                && HostStringDecoder.accepts(type) && !type.isOdoObject()
+                && !isCustomVariable(type, fieldName)) {
+            return decodeString(type, reuse);
+        }
+        FromHostPrimitiveResult < ? > result = type.fromHost(cobolContext,
+                hostData, pos);
+        if (!result.isSuccess()) {
+            throw new FromCobolException(result.getErrorMessage(),
+                    type.getCobolName(), type);
+        }
+        pos += type.getBytesLen();
+        if (type.isOdoObject() || isCustomVariable(type, fieldName)) {
+            variables.put(fieldName, result.getValue());
+        }
+        if (reuse instanceof ByteBuffer
+                && result.getValue() instanceof BigDecimal) {
+            return DecimalUtils.toByteBuffer((BigDecimal) result.getValue(),
+                    (ByteBuffer) reuse);
+        }
+        return Cob2AvroVisitor.toAvroValue(result.getValue());
+    }
+
+    /**
+     * Decode a numeric field at the current position and move past it.
+     * <p/>
+     * This is meant for integer keys that the caller needs as a primitive, for
+     * instance to partition or filter records.
+     *
+     * @param type the numeric type to decode
+     * @param fieldName the name of the field
+     * @return the value (the unscaled value for decimals)
+     * @throws FromCobolException if the data is invalid or there is no data
+     *             left
+     */
+    public long fromHostLong(CobolPrimitiveType < ? > type, String fieldName) {
+        HostNumberDecoder decoder = getNumberDecoder(type);
+        if (decoder != null) {
+            long value = decodeNumber(type, fieldName, decoder);
+            if (value != HostNumberDecoder.INVALID) {
+                return value;
+            }
+        }
+        Object value = fromHost(type, fieldName);
+        if (value == null) {
+            throw new FromCobolException("No data left", type.getCobolName(),
+                    type);
+        }
+        if (value instanceof ByteBuffer) {
+            return DecimalUtils.toBigDecimal((ByteBuffer) value, 0)
+                    .longValue();
+        }
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Decode a numeric at the current position and move past it, keeping
+     * variables.
+     *
+     * @return the value or {@link HostNumberDecoder#INVALID} in which case
+     *         the position does not change
+     */
+    private long decodeNumber(CobolPrimitiveType < ? > type, String fieldName,
+            HostNumberDecoder decoder) {
+        applyExtraOffset();
+        if (pos >= length || pos + decoder.getBytesLen() > hostData.length) {
+            return HostNumberDecoder.INVALID;
+        }
+        long value = decoder.decode(cobolContext, hostData, pos);
+        if (value != HostNumberDecoder.INVALID) {
+            pos += decoder.getBytesLen();
+            if (type.isOdoObject() || isCustomVariable(type, fieldName)) {
+                variables.put(fieldName, decoder.toJavaValue(value));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Decode an alphanumeric at the current position and move past it.
+     * <p/>
+     * Cached values are shared so previous values are only refilled when
+     * there is no cache for the field.
+     */
+    private Object decodeString(CobolPrimitiveType < ? > type, Object reuse) {
+        HostStringCache cache = stringCaches == null ? null : stringCaches
+                .get(type);
+        Object value = cache == null ? null : cache.get(hostData, pos);
+        if (value == null) {
+            if (stringDecoder != null) {
+                value = stringDecoder.decode(hostData, pos, type.getBytesLen(),
+                        cache == null && reuse instanceof Utf8 ? (Utf8) reuse
+                                : null);
+            } else {
+                FromHostPrimitiveResult < ? > result = type.fromHost(
+                        cobolContext, hostData, pos);
+                if (!result.isSuccess()) {
+                    throw new FromCobolException(result.getErrorMessage(),
+                            type.getCobolName(), type);
+                }
+                value = result.getValue();
+            }
+            if (cache != null) {
+                cache.put(hostData, pos, value);
+            }
+        }
+        pos += type.getBytesLen();
+        return value;
+    }
+
+    /**
+     * Move past a number of bytes without decoding them.
+     * <p/>
+     * Nothing happens if there is not enough data left, in which case the
+     * caller is expected to decode fields one by one.
+     *
+     * @param bytesLen the number of bytes to skip
+     * @return true if the bytes were skipped
+     */
+    public boolean skip(int bytesLen) {
+        applyExtraOffset();
+        if (pos + bytesLen > length) {
+            return false;
+        }
+        pos += bytesLen;
+        return true;
+    }
+
+    /**
+     * Apply any pending offset and return the current position.
+     *
+     * @return the absolute position of the next field
+     */
+    public int mark() {
+        applyExtraOffset();
+        return pos;
+    }
+
+    /**
+     * Move to a position previously returned by {@link #mark()}.
+     * <p/>
+     * Variables collected so far are kept.
+     *
+     * @param pos the absolute position of the next field
+     */
+    public void seek(int pos) {
+        this.pos = pos;
+        this.extraOffset = 0;
+    }
+
+    /**
+     * Select the alternative of a choice that fits the current data.
+     * <p/>
+     * The custom strategy, if any, is tried first.
+     *
+     * @param choiceFieldName the choice field name
+     * @param choiceType the choice type
+     * @return the alternative selected (one of the choice alternatives)
+     * @throws CobolChoiceStrategyException if no alternative could be selected
+     */
+    public CobolType chooseAlternative(String choiceFieldName,
+            CobolChoiceType choiceType) {
+        CobolType alternative = null;
+        if (customChoiceStrategy != null) {
+            alternative = customChoiceStrategy.choose(choiceFieldName,
+                    choiceType, variables, hostData, pos, length);
+        }
+        if (alternative == null) {
+            alternative = defaultChoiceStrategy.choose(choiceFieldName,
+                    choiceType, variables, hostData, pos, length);
+        }
+        if (alternative == null) {
+            throw new CobolChoiceStrategyException(
+                    "Unable to select an alternative for choice "
+                            + choiceFieldName);
+        }
+        if (choiceType.getAlternativeName(alternative) == null) {
+            throw new CobolChoiceStrategyException(
+                    "Alternative does not correspond to a known alternative for choice "
+                            + choiceFieldName);
+        }
+        return alternative;
+    }
+
+    /**
+     * Once an alternative is decoded, account for the bytes it does not
+     * occupy in the choice.
+     *
+     * @param choiceType the choice type
+     * @param alternative the alternative that was decoded
+     */
+    public void endAlternative(CobolChoiceType choiceType, CobolType alternative) {
+        if (alternative.getMaxBytesLen() < choiceType.getMaxBytesLen()) {
+            extraOffset += choiceType.getMaxBytesLen()
+                    - alternative.getMaxBytesLen();
+        }
+    }
+
+    /**
+     * @param odoObjectName the name of an ODO object
+     * @return the value of the ODO object (0 if it was not decoded)
+     */
+    public int getOdoValue(String odoObjectName) {
+        Object value = variables.get(odoObjectName);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        throw new CobolODOResolutionException("The value " + value
+                + " for ODO object " + odoObjectName + " is not numeric");
+    }
+
+    /**
+     * @param dependingOn the name of the ODO object an optional field depends
+     *            on
+     * @return true if the optional field is present
+     */
+    public boolean isPresent(String dependingOn) {
+        return getOdoValue(dependingOn) > 0;
+    }
+
+    /**
+     * @return the absolute position past the last field decoded
+     */
+    public int getPos() {
+        return pos;
+    }
+
+    public Map < String, Object > getVariables() {
+        return variables;
+    }
+
+    /**
+     * Produce {@link Utf8} values rather than java strings for alphanumerics.
+     * <p/>
+     * Variables are still java strings.
+     *
+     * @param stringDecoder the decoder to use (null to produce java strings)
+     */
+    public void setStringDecoder(HostStringDecoder stringDecoder) {
+        this.stringDecoder = stringDecoder;
+    }
+
+    /**
+     * Share the values of some alphanumerics rather than decoding them each
+     * time.
+     *
+     * @param stringCaches caches keyed by primitive type (may be null)
+     */
+    void setStringCaches(
+            Map < CobolPrimitiveType < ? >, HostStringCache > stringCaches) {
+        this.stringCaches = stringCaches;
+    }
+
+    private HostNumberDecoder getNumberDecoder(CobolPrimitiveType < ? > type) {
+        return numberDecoders == null ? null : numberDecoders.get(type);
+    }
+
+    private void applyExtraOffset() {
+        if (extraOffset > 0) {
+            pos += extraOffset;
+            extraOffset = 0;
+        }
+    }
+
+    private boolean isCustomVariable(CobolPrimitiveType < ? > type,
+            String fieldName) {
+        return type.isCustomVariable()
+                || (variableNames != null && variableNames.contains(fieldName));
+    }
+
+}
@@ -0,0 +1,369 @@
+package com.legstar.avro.cob2avro;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolArrayType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.type.primitive.CobolBinaryType;
+import com.legstar.base.type.primitive.CobolDecimalType;
+import com.legstar.base.type.primitive.CobolPackedDecimalType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.CobolZonedDecimalType;
+
+/**
+ * Decodes COBOL numerics with up to 18 digits straight into a primitive long.
+ * <p/>
+ * Packed decimals (COMP-3), zoned decimals (DISPLAY) and binaries (COMP) are
+ * supported. For decimals, the long is the unscaled value which Avro stores as
+ * two's complement bytes. For integers, the long is the value itself. Either
+ * way, there is no need to go through {@link BigDecimal}, {@link BigInteger}
+ * or character strings.
+ * <p/>
+ * Data that is invalid or out of range is not decoded. Callers are expected to
+ * fall back to the COBOL type which reports the error.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public abstract class HostNumberDecoder {
+
+    /** Returned when the data is not a valid value for the type. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /** The largest number of digits that always fits in a long. */
+    public static final int MAX_DIGITS = 18;
+
+    private final Class < ? > javaClass;
+
+    private final int bytesLen;
+
+    private final int fractionDigits;
+
+    private final boolean signed;
+
+    /** Lowest unscaled value accepted. */
+    private final long minUnscaled;
+
+    /** Highest unscaled value accepted. */
+    private final long maxUnscaled;
+
+    private HostNumberDecoder(CobolDecimalType < ? > type) {
+        javaClass = type.getJavaClass();
+        bytesLen = type.getBytesLen();
+        fractionDigits = type.getFractionDigits();
+        signed = type.isSigned();
+        minUnscaled = toUnscaled(type.getMinInclusive(), fractionDigits,
+                RoundingMode.CEILING);
+        maxUnscaled = toUnscaled(type.getMaxInclusive(), fractionDigits,
+                RoundingMode.FLOOR);
+    }
+
+    /**
+     * Create a decoder for a primitive type if it qualifies.
+     * <p/>
+     * Packed, zoned and binary numerics with no more than {@link #MAX_DIGITS}
+     * digits qualify if they are mapped to java {@link BigDecimal} (Avro
+     * decimals) or, when they have no fraction digits, to java integer types.
+     *
+     * @param type a COBOL primitive type
+     * @return a decoder or null if the type does not qualify
+     */
+    public static HostNumberDecoder create(CobolPrimitiveType < ? > type) {
+        if (!(type instanceof CobolDecimalType)) {
+            return null;
+        }
+        CobolDecimalType < ? > decimalType = (CobolDecimalType < ? >) type;
+        if (decimalType.getTotalDigits() > MAX_DIGITS) {
+            return null;
+        }
+        Class < ? > javaClass = type.getJavaClass();
+        if (!BigDecimal.class.equals(javaClass)
+                && (decimalType.getFractionDigits() > 0 || !(Short.class
+                        .equals(javaClass)
+                        || Integer.class.equals(javaClass)
+                        || Long.class.equals(javaClass) || BigInteger.class
+                            .equals(javaClass)))) {
+            return null;
+        }
+        if (type instanceof CobolPackedDecimalType) {
+            return new PackedDecoder(decimalType);
+        } else if (type instanceof CobolZonedDecimalType) {
+            return new ZonedDecoder((CobolZonedDecimalType < ? >) type);
+        } else if (type instanceof CobolBinaryType) {
+            return new BinaryDecoder(decimalType);
+        }
+        return null;
+    }
+
+    /**
+     * Create decoders for all the primitive types that qualify in a COBOL type
+     * hierarchy.
+     *
+     * @param type the COBOL type (usually a complex type)
+     * @return the decoders keyed by primitive type (identity)
+     */
+    public static Map < CobolPrimitiveType < ? >, HostNumberDecoder > createAll(
+            CobolType type) {
+        Map < CobolPrimitiveType < ? >, HostNumberDecoder > decoders = new IdentityHashMap < CobolPrimitiveType < ? >, HostNumberDecoder >();
+        addDecoders(decoders, type);
+        return decoders;
+    }
+
+    private static void addDecoders(
+            Map < CobolPrimitiveType < ? >, HostNumberDecoder > decoders,
+            CobolType type) {
+        if (type instanceof CobolComplexType) {
+            for (CobolType child : ((CobolComplexType) type).getFields()
+                    .values()) {
+                addDecoders(decoders, child);
+            }
+        } else if (type instanceof CobolArrayType) {
+            addDecoders(decoders, ((CobolArrayType) type).getItemType());
+        } else if (type instanceof CobolChoiceType) {
+            for (CobolType alternative : ((CobolChoiceType) type)
+                    .getAlternatives().values()) {
+                addDecoders(decoders, alternative);
+            }
+        } else if (type instanceof CobolPrimitiveType) {
+            HostNumberDecoder decoder = create((CobolPrimitiveType < ? >) type);
+            if (decoder != null) {
+                decoders.put((CobolPrimitiveType < ? >) type, decoder);
+            }
+        }
+    }
+
+    /**
+     * Decode a numeric.
+     * <p/>
+     * The caller is responsible for making sure there are enough bytes in the
+     * buffer.
+     *
+     * @param cobolContext host COBOL configuration parameters (signs)
+     * @param hostData the buffer containing mainframe data
+     * @param pos the position of the numeric in the buffer
+     * @return the unscaled value or {@link #INVALID}
+     */
+    public long decode(CobolContext cobolContext, byte[] hostData, int pos) {
+        long value = decodeInternal(cobolContext, hostData, pos);
+        if (value == INVALID || value < minUnscaled || value > maxUnscaled) {
+            return INVALID;
+        }
+        return value;
+    }
+
+    /**
+     * @param cobolContext host COBOL configuration parameters
+     * @param hostData the buffer containing mainframe data
+     * @param pos the position of the numeric in the buffer
+     * @return the unscaled value, not checked against the type range, or
+     *         {@link #INVALID}
+     */
+    protected abstract long decodeInternal(CobolContext cobolContext,
+            byte[] hostData, int pos);
+
+    /**
+     * Map a decoded value to the Avro value, as
+     * {@link Cob2AvroVisitor#toAvroValue(Object)} would.
+     *
+     * @param value the unscaled value
+     * @param reuse the previous Avro value for this field (may be null)
+     * @return the Avro value
+     */
+    public Object toAvroValue(long value, Object reuse) {
+        if (javaClass == BigDecimal.class) {
+            return DecimalUtils.toByteBuffer(value,
+                    reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null);
+        } else if (javaClass == Short.class || javaClass == Integer.class) {
+            return Integer.valueOf((int) value);
+        } else {
+            return Long.valueOf(value);
+        }
+    }
+
+    /**
+     * Map a decoded value to the java value that the COBOL type would have
+     * produced. This is used for variables (ODO objects...).
+     *
+     * @param value the unscaled value
+     * @return the java value
+     */
+    public Object toJavaValue(long value) {
+        if (javaClass == BigDecimal.class) {
+            return BigDecimal.valueOf(value, fractionDigits);
+        } else if (javaClass == Short.class) {
+            return Short.valueOf((short) value);
+        } else if (javaClass == Integer.class) {
+            return Integer.valueOf((int) value);
+        } else if (javaClass == Long.class) {
+            return Long.valueOf(value);
+        } else {
+            return BigInteger.valueOf(value);
+        }
+    }
+
+    /**
+     * @return the number of bytes occupied by the numeric
+     */
+    public int getBytesLen() {
+        return bytesLen;
+    }
+
+    /**
+     * @return true if values are decimals (unscaled), false if integers
+     */
+    public boolean isDecimal() {
+        return javaClass == BigDecimal.class;
+    }
+
+    protected boolean isSigned() {
+        return signed;
+    }
+
+    /**
+     * Bounds are within the range of the total digits but might be restricted
+     * further by the COBOL type.
+     */
+    private static long toUnscaled(Number bound, int fractionDigits,
+            RoundingMode roundingMode) {
+        if (bound == null) {
+            return roundingMode == RoundingMode.CEILING ? -Long.MAX_VALUE
+                    : Long.MAX_VALUE;
+        }
+        BigDecimal unscaled = new BigDecimal(bound.toString()).movePointRight(
+                fractionDigits).setScale(0, roundingMode);
+        BigDecimal limit = BigDecimal.valueOf(Long.MAX_VALUE);
+        if (unscaled.compareTo(limit) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (unscaled.compareTo(limit.negate()) < 0) {
+            return -Long.MAX_VALUE;
+        }
+        return unscaled.longValue();
+    }
+
+    /** Packed decimals (COMP-3), 2 digits per byte, sign in the last nibble. */
+    private static class PackedDecoder extends HostNumberDecoder {
+
+        public PackedDecoder(CobolDecimalType < ? > type) {
+            super(type);
+        }
+
+        protected long decodeInternal(CobolContext cobolContext,
+                byte[] hostData, int pos) {
+            int last = pos + getBytesLen() - 1;
+            long value = 0;
+            // An 18 digits field has an extra high order digit that must be
+            // zero
+            if (2 * getBytesLen() - 1 > MAX_DIGITS
+                    && (hostData[pos] & 0xF0) != 0) {
+                return INVALID;
+            }
+            for (int i = pos; i < last; i++) {
+                int high = (hostData[i] >> 4) & 0x0F;
+                int low = hostData[i] & 0x0F;
+                if (high > 9 || low > 9) {
+                    return INVALID;
+                }
+                value = value * 100 + high * 10 + low;
+            }
+            int high = (hostData[last] >> 4) & 0x0F;
+            int sign = hostData[last] & 0x0F;
+            if (high > 9) {
+                return INVALID;
+            }
+            value = value * 10 + high;
+            if (isSigned()) {
+                if (sign == cobolContext.getNegativeSignNibbleValue()) {
+                    value = -value;
+                } else if (sign != cobolContext.getPositiveSignNibbleValue()) {
+                    return INVALID;
+                }
+            } else if (sign != cobolContext.getUnspecifiedSignNibbleValue()) {
+                return INVALID;
+            }
+            return value;
+        }
+
+    }
+
+    /**
+     * Zoned decimals (DISPLAY), one digit per byte, sign either in the zone of
+     * the first or last byte or in a separate character.
+     */
+    private static class ZonedDecoder extends HostNumberDecoder {
+
+        private final boolean signLeading;
+
+        private final boolean signSeparate;
+
+        public ZonedDecoder(CobolZonedDecimalType < ? > type) {
+            super(type);
+            signLeading = type.isSignLeading();
+            signSeparate = type.isSignSeparate();
+        }
+
+        protected long decodeInternal(CobolContext cobolContext,
+                byte[] hostData, int pos) {
+            int end = pos + getBytesLen();
+            int signPos = signLeading ? pos : end - 1;
+            int from = signSeparate && signLeading ? pos + 1 : pos;
+            int to = signSeparate && !signLeading ? end - 1 : end;
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = hostData[i] & 0x0F;
+                if (digit > 9) {
+                    return INVALID;
+                }
+                value = value * 10 + digit;
+            }
+            if (signSeparate) {
+                int sign = hostData[signPos] & 0xFF;
+                if (sign == cobolContext.getHostMinusSign()) {
+                    value = -value;
+                } else if (sign != cobolContext.getHostPlusSign()) {
+                    return INVALID;
+                }
+            } else if (isSigned()
+                    && ((hostData[signPos] >> 4) & 0x0F) == cobolContext
+                            .getNegativeSignNibbleValue()) {
+                // Like COBOL, any zone other than negative means positive
+                value = -value;
+            }
+            return value;
+        }
+
+    }
+
+    /** Binaries (COMP), big-endian on 2, 4 or 8 bytes. */
+    private static class BinaryDecoder extends HostNumberDecoder {
+
+        public BinaryDecoder(CobolDecimalType < ? > type) {
+            super(type);
+        }
+
+        protected long decodeInternal(CobolContext cobolContext,
+                byte[] hostData, int pos) {
+            int end = pos + getBytesLen();
+            // Sign extension for signed binaries
+            long value = isSigned() && hostData[pos] < 0 ? -1 : 0;
+            for (int i = pos; i < end; i++) {
+                value = (value << 8) | (hostData[i] & 0xFF);
+            }
+            // Unsigned values that do not fit in a long are out of range
+            if (!isSigned() && value < 0) {
+                return INVALID;
+            }
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.legstar.avro.cob2avro;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the values of an alphanumeric field keyed by their raw mainframe
+ * bytes.
+ * <p/>
+ * Fields such as status codes, currency codes or branch identifiers take
+ * few distinct values. Returning the same String or Utf8 instance for each
+ * occurrence of a value saves decoding it again and, when records are
+ * buffered, saves holding many copies of it.
+ * <p/>
+ * The number of values kept is bounded, the least recently used value being
+ * evicted first. Only short fields can be cached.
+ * <p/>
+ * Values returned are shared and must not be modified. This class is Thread
+ * safe.
+ *
+ */
+class HostStringCache {
+
+    /** Longest field, in bytes, that can be cached. */
+    public static final int MAX_BYTES_LEN = 32;
+
+    /** Number of bytes occupied by the field. */
+    private final int bytesLen;
+
+    private final Map < Key, Object > values;
+
+    /** Looks up the values without copying the mainframe bytes. */
+    private final Key probe = new Key();
+
+    /**
+     * Create a cache for a field.
+     *
+     * @param bytesLen the number of bytes occupied by the field
+     * @param maxEntries the maximum number of values kept
+     */
+    public HostStringCache(int bytesLen, final int maxEntries) {
+        if (bytesLen > MAX_BYTES_LEN) {
+            throw new IllegalArgumentException("Fields longer than "
+                    + MAX_BYTES_LEN + " bytes cannot be cached");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException(
+                    "The number of cached values must be positive");
+        }
+        this.bytesLen = bytesLen;
+        this.values = new LinkedHashMap < Key, Object >(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry < Key, Object > eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the value previously decoded from the same mainframe bytes.
+     *
+     * @param hostData the buffer containing mainframe data
+     * @param pos the position of the field in the buffer
+     * @return the value or null if there is none in the cache
+     */
+    public synchronized Object get(byte[] hostData, int pos) {
+        probe.set(hostData, pos, getLength(hostData, pos));
+        Object value = values.get(probe);
+        probe.set(null, 0, 0);
+        return value;
+    }
+
+    /**
+     * Keep the value decoded from mainframe bytes.
+     *
+     * @param hostData the buffer containing mainframe data
+     * @param pos the position of the field in the buffer
+     * @param value the value decoded
+     */
+    public synchronized void put(byte[] hostData, int pos, Object value) {
+        int length = getLength(hostData, pos);
+        byte[] bytes = new byte[length];
+        System.arraycopy(hostData, pos, bytes, 0, length);
+        Key key = new Key();
+        key.set(bytes, 0, length);
+        values.put(key, value);
+    }
+
+    /**
+     * @return the number of values kept
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * Like the COBOL types, the field is decoded from whatever bytes are left
+     * when the buffer is too short.
+     */
+    private int getLength(byte[] hostData, int pos) {
+        return Math.min(bytesLen, hostData.length - pos);
+    }
+
+    /**
+     * A range of bytes in a buffer.
+     */
+    private static class Key {
+
+        private byte[] bytes;
+
+        private int offset;
+
+        private int length;
+
+        private int hash;
+
+        public void set(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            this.hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (other.length != length || other.hash != hash) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.legstar.avro.cob2avro;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+import org.apache.avro.util.Utf8;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.CobolStringType;
+
+/**
+ * Decodes COBOL alphanumerics (PIC X) straight into Avro {@link Utf8} values.
+ * <p/>
+ * Avro writes strings as UTF-8. Producing {@link Utf8} values rather than
+ * java strings saves decoding the host characters into a char array and then
+ * encoding that array back to UTF-8 when records are written.
+ * <p/>
+ * For single byte host character sets, a 256 entries table gives the UTF-8
+ * bytes for each host character. Values are trimmed the way COBOL strings
+ * usually are: trailing low-values always, trailing spaces if the
+ * {@link CobolContext} says so. Other low-values become spaces.
+ * <p/>
+ * Other character sets go through a java string.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class HostStringDecoder {
+
+    private static final String UTF8 = "UTF-8";
+
+    private final String hostCharsetName;
+
+    private final int hostSpaceCharCode;
+
+    private final boolean truncateTrailingSpaces;
+
+    /**
+     * For each host character, up to 3 UTF-8 bytes in the low order bytes and
+     * their number in the high order byte. Null if the host character set is
+     * not a single byte one.
+     */
+    private final int[] table;
+
+    /**
+     * Create a decoder for the host character set described by a COBOL
+     * context.
+     *
+     * @param cobolContext host COBOL configuration parameters
+     */
+    public HostStringDecoder(CobolContext cobolContext) {
+        hostCharsetName = cobolContext.getHostCharsetName();
+        hostSpaceCharCode = cobolContext.getHostSpaceCharCode();
+        truncateTrailingSpaces = cobolContext
+                .isTruncateHostStringsTrailingSpaces();
+        table = createTable(hostCharsetName, hostSpaceCharCode);
+    }
+
+    /**
+     * @param type a COBOL primitive type
+     * @return true if the type is an alphanumeric mapped to a java string
+     */
+    public static boolean accepts(CobolPrimitiveType < ? > type) {
+        return type instanceof CobolStringType
+                && String.class.equals(type.getJavaClass());
+    }
+
+    /**
+     * Decode an alphanumeric.
+     * <p/>
+     * If there are less than bytesLen bytes available, the remaining bytes
+     * are decoded.
+     *
+     * @param hostData the buffer containing mainframe data
+     * @param pos the position of the alphanumeric in the buffer
+     * @param bytesLen the number of bytes occupied by the alphanumeric
+     * @param reuse a previous value whose byte array is reused if large enough
+     *            (may be null)
+     * @return the UTF-8 value
+     */
+    public Utf8 decode(byte[] hostData, int pos, int bytesLen, Utf8 reuse) {
+        int end = Math.min(pos + bytesLen, hostData.length);
+        while (end > pos) {
+            int c = hostData[end - 1] & 0xFF;
+            if (c != 0 && (!truncateTrailingSpaces || c != hostSpaceCharCode)) {
+                break;
+            }
+            end--;
+        }
+        Utf8 utf8 = reuse == null ? new Utf8() : reuse;
+        if (table == null) {
+            return utf8.set(toString(hostData, pos, end));
+        }
+        int utf8Len = 0;
+        for (int i = pos; i < end; i++) {
+            utf8Len += table[hostData[i] & 0xFF] >>> 24;
+        }
+        utf8.setByteLength(utf8Len);
+        byte[] bytes = utf8.getBytes();
+        int j = 0;
+        for (int i = pos; i < end; i++) {
+            int entry = table[hostData[i] & 0xFF];
+            switch (entry >>> 24) {
+            case 1:
+                bytes[j++] = (byte) entry;
+                break;
+            case 2:
+                bytes[j++] = (byte) (entry >> 8);
+                bytes[j++] = (byte) entry;
+                break;
+            default:
+                bytes[j++] = (byte) (entry >> 16);
+                bytes[j++] = (byte) (entry >> 8);
+                bytes[j++] = (byte) entry;
+            }
+        }
+        return utf8;
+    }
+
+    /**
+     * @return true if host characters are translated with a table
+     */
+    public boolean isTableDriven() {
+        return table != null;
+    }
+
+    private String toString(byte[] hostData, int pos, int end) {
+        byte[] bytes = new byte[end - pos];
+        for (int i = pos; i < end; i++) {
+            bytes[i - pos] = hostData[i] == 0 ? (byte) hostSpaceCharCode
+                    : hostData[i];
+        }
+        try {
+            return new String(bytes, hostCharsetName);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Build the host character to UTF-8 table.
+     *
+     * @param hostCharsetName the host character set
+     * @param hostSpaceCharCode the host space, which replaces low-values
+     * @return the table or null if the host character set is not a single
+     *         byte one
+     */
+    private static int[] createTable(String hostCharsetName,
+            int hostSpaceCharCode) {
+        Charset charset = Charset.forName(hostCharsetName);
+        if (!charset.canEncode()
+                || charset.newEncoder().maxBytesPerChar() != 1.0f
+                || charset.newDecoder().maxCharsPerByte() != 1.0f) {
+            return null;
+        }
+        int[] table = new int[256];
+        for (int c = 0; c < 256; c++) {
+            byte hostChar = (byte) (c == 0 ? hostSpaceCharCode : c);
+            String s = new String(new byte[] { hostChar }, charset);
+            byte[] utf8;
+            try {
+                utf8 = s.getBytes(UTF8);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            if (s.length() != 1 || utf8.length > 3) {
+                return null;
+            }
+            int entry = utf8.length << 24;
+            for (byte b : utf8) {
+                entry = (entry & 0xFF000000) | ((entry << 8) & 0x00FFFF00)
+                        | (b & 0xFF);
+            }
+            table[c] = entry;
+        }
+        return table;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.legstar.avro.cob2avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+
+/**
+ * An Avro Generic record backed by mainframe data.
+ * <p/>
+ * The offsets of the record fields are computed when the record is created but
+ * a field value is decoded only the first time it is accessed. The value is
+ * then kept so that subsequent accesses are free.
+ * <p/>
+ * Nested records, arrays and choices are decoded entirely when the
+ * corresponding field is first accessed.
+ * <p/>
+ * The record keeps a reference to the mainframe data which must not change
+ * while the record is in use.
+ * <p/>
+ * Lazy records are Avro Generic data records, with the same equality, hash
+ * code and ordering. A lazy record and the Generic record produced by an eager
+ * conversion of the same data are therefore equal, both ways. Like
+ * {@link #toString()}, {@link #equals(Object)} and {@link #hashCode()} decode
+ * all fields.
+ * <p/>
+ * This class is not Thread safe.
+ *
+ */
+public class LazyHostRecord extends GenericData.Record {
+
+    private final Cob2AvroSchemaPlan plan;
+
+    /** Positioned on the mainframe data, holds variables (ODO objects...). */
+    private final HostCursor cursor;
+
+    /** For each Avro field, the offset in the mainframe data, -1 if absent. */
+    private final int[] offsets;
+
+    /** True for each Avro field whose value was decoded or set. */
+    private final boolean[] decoded;
+
+    LazyHostRecord(Schema schema, Cob2AvroSchemaPlan plan,
+            HostCursor cursor, int[] offsets) {
+        super(schema);
+        this.plan = plan;
+        this.cursor = cursor;
+        this.offsets = offsets;
+        this.decoded = new boolean[offsets.length];
+    }
+
+    public Object get(int i) {
+        if (!decoded[i]) {
+            super.put(i, offsets[i] < 0 ? null : plan.readField(cursor, i,
+                    offsets[i]));
+            decoded[i] = true;
+        }
+        return super.get(i);
+    }
+
+    public void put(int i, Object v) {
+        super.put(i, v);
+        decoded[i] = true;
+    }
+
+    public Object get(String key) {
+        Schema.Field field = getSchema().getField(key);
+        return field == null ? null : get(field.pos());
+    }
+
+    public void put(String key, Object v) {
+        Schema.Field field = getSchema().getField(key);
+        if (field == null) {
+            throw new IllegalArgumentException("Not a valid schema field: "
+                    + key);
+        }
+        put(field.pos(), v);
+    }
+
+    /**
+     * @param i the Avro field position
+     * @return true if the field value was already decoded (or set)
+     */
+    public boolean isDecoded(int i) {
+        return decoded[i];
+    }
+
+}
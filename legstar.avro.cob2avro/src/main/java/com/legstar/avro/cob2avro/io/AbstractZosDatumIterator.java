@@ -0,0 +1,277 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Turns mainframe records into datums, whatever the way records are laid out
+ * and read.
+ * <p/>
+ * Datums are Avro specific class instances or, optionally, Avro generic
+ * records. Generic records might follow a projection of the schema, in which
+ * case mainframe fields that are not part of the reader schema are skipped
+ * rather than decoded. They might also be lazy, fields being decoded only when
+ * accessed (see {@link #setLazy(boolean)}).
+ * <p/>
+ * Callers can pass the previous datum to {@link #next(Object)} to have it
+ * filled in place rather than getting a new datum for each record.
+ * <p/>
+ * Subclasses locate the records (see {@link #readDatum(Object)}) and hand
+ * them over to {@link #convert(byte[], int, int, Object)} or
+ * {@link #convert(ByteBuffer, Object)}.
+ *
+ * @param <D>
+ */
+public abstract class AbstractZosDatumIterator<D> implements Iterator < D >,
+        Iterable < D >, Closeable {
+
+    /**
+     * Performs the actual conversion from mainframe representation to an Avro
+     * record.
+     */
+    private final AbstractCob2ObjectConverter < ? > converter;
+
+    /**
+     * True if the converter produces generic records that need to be copied to
+     * specific records.
+     */
+    private final boolean copyToSpecific;
+
+    /** True if datums are lazy records. */
+    private boolean lazy;
+
+    /** Receives records that are not held in a byte array. */
+    private byte[] copyBytes = new byte[0];
+
+    private static Logger log = LoggerFactory
+            .getLogger(AbstractZosDatumIterator.class);
+
+    /**
+     * @param converter the mainframe to datum converter
+     * @param copyToSpecific true if the converter produces generic records
+     *            that need to be copied to specific records
+     */
+    protected AbstractZosDatumIterator(
+            AbstractCob2ObjectConverter < ? > converter, boolean copyToSpecific) {
+        this.converter = converter;
+        this.copyToSpecific = copyToSpecific;
+    }
+
+    /**
+     * Create a converter producing either specific or generic records.
+     * <p/>
+     * Specific records can be created directly by the conversion, rather than
+     * copied from the generic records it produces.
+     *
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolComplexType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specificData true to create specific records directly
+     * @return the converter
+     */
+    protected static Cob2AvroGenericConverter newConverter(
+            CobolContext cobolContext, CobolComplexType cobolComplexType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specificData) {
+        return new Cob2AvroGenericConverter.Builder()
+                .cobolContext(cobolContext).cobolComplexType(cobolComplexType)
+                .customChoiceStrategy(customChoiceStrategy).schema(schema)
+                .specificData(specificData).build();
+    }
+
+    /**
+     * Create a converter producing generic records that follow a projection
+     * of the schema.
+     *
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolComplexType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema corresponding to the mainframe records
+     * @param readerSchema the Avro schema of the output records, holding a
+     *            subset of the schema fields
+     * @return the converter
+     */
+    protected static Cob2AvroGenericConverter newConverter(
+            CobolContext cobolContext, CobolComplexType cobolComplexType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) {
+        return new Cob2AvroGenericConverter.Builder()
+                .cobolContext(cobolContext).cobolComplexType(cobolComplexType)
+                .customChoiceStrategy(customChoiceStrategy).schema(schema)
+                .readerSchema(readerSchema).build();
+    }
+
+    public Iterator < D > iterator() {
+        return this;
+    }
+
+    public D next() {
+        return next(null);
+    }
+
+    /**
+     * Read the next datum, reusing a previous one.
+     * <p/>
+     * The previous datum graph is filled in place: nested records, OCCURS
+     * lists and decimal buffers are reused whenever they fit. This is only
+     * possible when the datums are produced by a
+     * {@link Cob2AvroGenericConverter}, otherwise a new datum is returned.
+     * <p/>
+     * Since the datum is overwritten by the next call, callers should not keep
+     * references to it (or to any of its parts) across calls.
+     *
+     * @param reuse the previous datum (may be null)
+     * @return the datum read, the same instance as reuse if it could be
+     *         reused
+     */
+    public D next(D reuse) {
+        try {
+            D datum = readDatum(reuse);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Avro record=" + datum.toString());
+            }
+
+            return datum;
+        } catch (IOException e) {
+            throw new AvroRuntimeException(e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Locate the next record and convert it.
+     *
+     * @param reuse the previous datum (may be null)
+     * @return the datum read
+     * @throws IOException if the next record cannot be read
+     */
+    protected abstract D readDatum(D reuse) throws IOException;
+
+    /**
+     * Convert a record held in a byte array.
+     *
+     * @param hostData the buffer containing the record
+     * @param start the start position for the record in the buffer
+     * @param length the position past which there is no more record data
+     * @param reuse the previous datum (may be null)
+     * @return the result of the conversion, the value being the datum
+     */
+    protected FromHostResult < D > convert(byte[] hostData, int start,
+            int length, D reuse) {
+        FromHostResult < ? > result;
+        if (lazy) {
+            // Lazy records need their own copy of the mainframe data
+            result = ((Cob2AvroGenericConverter) converter).convertLazy(
+                    Arrays.copyOfRange(hostData, start, length), 0, length
+                            - start);
+            return new FromHostResult < D >(start + result.getBytesProcessed(),
+                    toDatum(result.getValue()));
+        } else if (reuse instanceof GenericRecord
+                && converter instanceof Cob2AvroGenericConverter) {
+            result = ((Cob2AvroGenericConverter) converter).convert(hostData,
+                    start, length, (GenericRecord) reuse);
+        } else {
+            result = converter.convert(hostData, start, length);
+        }
+        return new FromHostResult < D >(result.getBytesProcessed(),
+                toDatum(result.getValue()));
+    }
+
+    /**
+     * Convert a record held in a byte buffer.
+     * <p/>
+     * A {@link Cob2AvroGenericConverter} receives buffers backed by an array
+     * as is. Otherwise, since COBOL types decode byte arrays, the record is
+     * first copied in a single bulk operation to an array reused from one
+     * record to the next. Lazy records get their own copy.
+     *
+     * @param record the record data, from the buffer position to its limit
+     * @param reuse the previous datum (may be null)
+     * @return the result of the conversion, the value being the datum
+     */
+    protected FromHostResult < D > convert(ByteBuffer record, D reuse) {
+        if (!lazy && record.hasArray()
+                && converter instanceof Cob2AvroGenericConverter) {
+            FromHostResult < GenericRecord > result = ((Cob2AvroGenericConverter) converter)
+                    .convert(record, reuse instanceof GenericRecord ? (GenericRecord) reuse
+                            : null);
+            return new FromHostResult < D >(result.getBytesProcessed(),
+                    toDatum(result.getValue()));
+        }
+        int recordLen = record.remaining();
+        if (copyBytes.length < recordLen) {
+            copyBytes = new byte[recordLen];
+        }
+        record.duplicate().get(copyBytes, 0, recordLen);
+        FromHostResult < D > result = convert(copyBytes, 0, recordLen, reuse);
+        record.position(record.position() + result.getBytesProcessed());
+        return result;
+    }
+
+    /**
+     * @param value the value produced by the converter
+     * @return the datum, copied to a specific record if needed
+     */
+    @SuppressWarnings("unchecked")
+    private D toDatum(Object value) {
+        if (copyToSpecific && !(value instanceof SpecificRecord)) {
+            GenericRecord record = (GenericRecord) value;
+            return (D) SpecificData.get().deepCopy(record.getSchema(), record);
+        }
+        return (D) value;
+    }
+
+    /**
+     * Produce lazy generic records where fields are decoded only when they are
+     * accessed (see {@link com.legstar.avro.cob2avro.LazyHostRecord}).
+     * <p/>
+     * Only possible when the reader produces generic records.
+     *
+     * @param lazy true to produce lazy records
+     * @throws IllegalStateException if the reader does not produce generic
+     *             records
+     */
+    public void setLazy(boolean lazy) {
+        if (lazy
+                && (copyToSpecific || !(converter instanceof Cob2AvroGenericConverter))) {
+            throw new IllegalStateException(
+                    "Lazy records are only available for generic records");
+        }
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return the mainframe to datum converter
+     */
+    public AbstractCob2ObjectConverter < ? > getConverter() {
+        return converter;
+    }
+
+}
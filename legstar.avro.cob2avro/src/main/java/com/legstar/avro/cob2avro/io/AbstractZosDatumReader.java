@@ -1,20 +1,17 @@
 package com.legstar.avro.cob2avro.io;
 
-import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
 
-import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.specific.SpecificData;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
 import com.legstar.base.context.CobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
 import com.legstar.base.converter.FromHostResult;
 import com.legstar.base.finder.CobolTypeFinder;
 import com.legstar.base.type.composite.CobolComplexType;
@@ -23,19 +20,32 @@ import com.legstar.base.visitor.FromCobolChoiceStrategy;
 /**
  * Reads a mainframe byte stream made of concatenated records.
  * <p/>
- * Turns each mainframe record into an Avro specific class instance.
+ * Records are turned into datums as described in
+ * {@link AbstractZosDatumIterator}.
+ * <p/>
+ * The stream is read in large blocks (see {@link #setReadBufferSize(int)}) so
+ * that unbuffered streams, such as HDFS or local file streams, are not hit
+ * with small reads for each record. No byte is ever read past the stream
+ * length given at construction time.
  * <p/>
  * Offers optional seek capability to position stream at start of a record (with
- * help of a custom {@link ZosRecordMatcher} to be provided).
+ * help of a custom {@link ZosRecordMatcher} to be provided). The stream is
+ * scanned in bulk, in the read buffer.
  * 
  * @param <D>
  */
-public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
-        Iterable < D >, Closeable {
+public abstract class AbstractZosDatumReader<D> extends
+        AbstractZosDatumIterator < D > {
     
     /** No 01 level item can be larger than this (COBOL for z/OS) */
     private static final int MAX_COBOL_RECORD_LEN = 134217727; 
 
+    /** Size of the blocks read off the stream by default. */
+    public static final int DEFAULT_READ_BUFFER_SIZE = 1024 * 1024;
+
+    /** Size of the chunks scanned for a record start with no read buffer. */
+    private static final int SEEK_BUFFER_SIZE = 64 * 1024;
+
     /** Buffer holding the last record read. */
     private final byte[] hostBytes;
 
@@ -44,24 +54,39 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
      */
     private final InputStream inStream;
 
-    /**
-     * Performs the actual conversion from mainframe representation to an Avro
-     * generic record.
-     */
-    private final Cob2AvroGenericConverter converter;
-
     /** Total size of the input stream */
     private long available;
 
     /** How many bytes of the original stream were already read */
     private long bytesRead;
 
+    /**
+     * How many bytes were pulled off the stream (might be larger than
+     * bytesRead when some are still in the read buffer).
+     */
+    private long bytesFetched;
+
     /**
      * Position in hostBytes where we should start filling data after some was
      * already prefetched (generally to perform record matching).
      */
     private int bytesPrefetched;
 
+    /** Size of the blocks read off the stream, zero for no read buffer. */
+    private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+
+    /** Holds a block read off the stream (null until the first read). */
+    private byte[] readBuffer;
+
+    /** Position in readBuffer of the next byte to hand out. */
+    private int readBufferPos;
+
+    /** Position in readBuffer past the last byte read off the stream. */
+    private int readBufferLimit;
+
+    /** Number of descriptor words followed to confirm a record start. */
+    private int seekChainLength;
+
     /** Number of bytes in hostBytes that were last used to produce a datum. */
     private int lastProcessed;
 
@@ -89,11 +114,110 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
             CobolContext cobolContext, CobolComplexType cobolComplexType,
             FromCobolChoiceStrategy customChoiceStrategy, Schema schema)
             throws IOException {
+        this(inStream, length, cobolContext, cobolComplexType,
+                customChoiceStrategy, schema, true);
+    }
+
+    /**
+     * Create a zos datum reader producing either specific or generic records.
+     * <p/>
+     * In generic mode, datums are the Avro generic records produced by
+     * {@link Cob2AvroGenericConverter}, returned without copying them to the
+     * specific classes.
+     * 
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolComplexType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @throws IOException if reading fails
+     */
+    public AbstractZosDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolComplexType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inStream, length, cobolContext, cobolComplexType,
+                customChoiceStrategy, schema, specific, false);
+    }
+
+    /**
+     * Create a zos datum reader producing either specific or generic records.
+     * <p/>
+     * Specific records can be created directly by the conversion, rather than
+     * copied from the generic records it produces.
+     * 
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolComplexType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @param specificData true to create specific records directly (ignored
+     *            when producing generic records)
+     * @throws IOException if reading fails
+     */
+    public AbstractZosDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolComplexType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, boolean specificData) throws IOException {
+        this(inStream, length, newConverter(cobolContext, cobolComplexType,
+                customChoiceStrategy, schema, specific && specificData),
+                specific);
+    }
+
+    /**
+     * Create a zos datum reader producing generic records that follow a
+     * projection of the schema.
+     * <p/>
+     * Mainframe fields that are not part of the reader schema are skipped
+     * rather than decoded.
+     * 
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolComplexType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema corresponding to the mainframe records
+     * @param readerSchema the Avro schema of the output records, holding a
+     *            subset of the schema fields
+     * @throws IOException if reading fails
+     */
+    public AbstractZosDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolComplexType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        this(inStream, length, newConverter(cobolContext, cobolComplexType,
+                customChoiceStrategy, schema, readerSchema), false);
+    }
+
+    /**
+     * Create a zos datum reader using a converter that directly produces the
+     * datums (such as the converters generated for each copybook).
+     * <p/>
+     * Datums produced by the converter are returned as is.
+     * 
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param converter the mainframe to datum converter
+     * @throws IOException if reading fails
+     */
+    public AbstractZosDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        this(inStream, length, converter, false);
+    }
+
+    private AbstractZosDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? > converter, boolean copyToSpecific)
+            throws IOException {
+        super(converter, copyToSpecific);
         this.inStream = inStream;
-        this.converter = new Cob2AvroGenericConverter.Builder()
-                .cobolContext(cobolContext).cobolComplexType(cobolComplexType)
-                .customChoiceStrategy(customChoiceStrategy).schema(schema)
-                .build();
+        CobolComplexType cobolComplexType = converter.getCobolComplexType();
         long recordLen = cobolComplexType.getMaxBytesLen();
         if (recordLen > MAX_COBOL_RECORD_LEN) {
             log.warn("Record maximum length of "
@@ -105,41 +229,20 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
         this.available = length;
     }
 
-    public Iterator < D > iterator() {
-        return this;
-    }
-
     public boolean hasNext() {
         return available - bytesProcessed > 0;
     }
 
-    @SuppressWarnings("unchecked")
-    public D next() {
-        try {
-            ReadRecordStatus status = readRecord(hostBytes, lastProcessed);
-            bytesRead += status.getBytesRead();
-            int prefixLen = hostBytesPrefixLen();
-            FromHostResult < GenericRecord > result = converter.convert(
-                    hostBytes,
-                    prefixLen,
-                    status.getRecordLen() == -1 ? hostBytes.length : status
-                            .getRecordLen() + prefixLen);
-            bytesProcessed += lastProcessed = result.getBytesProcessed();
-            D specific = (D) SpecificData.get().deepCopy(
-                    result.getValue().getSchema(), result.getValue());
-
-            if (log.isDebugEnabled()) {
-                log.debug("Avro record=" + specific.toString());
-            }
-
-            return specific;
-        } catch (IOException e) {
-            throw new AvroRuntimeException(e);
-        }
-    }
-
-    public void remove() {
-        throw new UnsupportedOperationException();
+    protected D readDatum(D reuse) throws IOException {
+        ReadRecordStatus status = readRecord(hostBytes, lastProcessed);
+        bytesRead += status.getBytesRead();
+        int prefixLen = hostBytesPrefixLen();
+        int length = status.getRecordLen() == -1 ? hostBytes.length : status
+                .getRecordLen() + prefixLen;
+        FromHostResult < D > result = convert(hostBytes, prefixLen, length,
+                reuse);
+        bytesProcessed += lastProcessed = result.getBytesProcessed();
+        return result.getValue();
     }
 
     public void close() throws IOException {
@@ -151,8 +254,12 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
     /**
      * Match incoming data with the start of record pattern.
      * <p/>
-     * After the initial try, slides one byte at a time until the start of a
-     * record is found.
+     * A large chunk of the stream is read into the read buffer and candidate
+     * offsets are tested in place. Each candidate goes through
+     * {@link #isRecordStartCandidate(byte[], int, int)}, a cheap plausibility
+     * check, before the record matcher is invoked. Once the start of a
+     * record is found, the bytes that follow it are handed out of the read
+     * buffer as usual.
      * 
      * @param recordMatcher matches the start of a record
      * @throws IOException typically if file does not contain a matching record
@@ -165,30 +272,124 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
             throw new IllegalArgumentException(
                     "The record matcher signature length is longer that the total record length");
         }
-        int bytesRead = readFully(hostBytes, 0, signatureLen);
-        if (bytesRead < signatureLen) {
-            throw new IOException(
-                    "Not enough bytes left for a record signature");
+        // The buffer must hold a signature and a chain of records, within
+        // bounds. Longer chains are only followed within the buffer
+        long chainLen = (long) seekChainLength * hostBytes.length
+                + hostBytesPrefixLen();
+        int seekBufferSize = Math.max(signatureLen, (int) Math.min(chainLen,
+                Math.max(readBufferSize, SEEK_BUFFER_SIZE)));
+        if (readBuffer == null) {
+            readBuffer = new byte[Math.max(seekBufferSize,
+                    readBufferSize > 0 ? readBufferSize : SEEK_BUFFER_SIZE)];
+        } else if (readBuffer.length < seekBufferSize) {
+            byte[] buffer = new byte[seekBufferSize];
+            readBufferLimit -= readBufferPos;
+            System.arraycopy(readBuffer, readBufferPos, buffer, 0,
+                    readBufferLimit);
+            readBufferPos = 0;
+            readBuffer = buffer;
         }
+        long skipped = 0;
         while (true) {
-            if (recordMatcher.match(hostBytes, 0, signatureLen)) {
-                break;
+            if (readBufferLimit - readBufferPos < signatureLen
+                    && !compactReadBuffer()) {
+                throw new IOException(
+                        "Not enough bytes left for a record signature");
+            }
+            int pos = readBufferPos;
+            int last = readBufferLimit - signatureLen;
+            while (pos <= last
+                    && !(isRecordStartCandidate(readBuffer, pos,
+                            readBufferLimit) && recordMatcher.match(
+                            readBuffer, pos, pos + signatureLen))) {
+                pos++;
+            }
+            skipped += pos - readBufferPos;
+            readBufferPos = pos;
+            if (pos <= last) {
+                if (isRecordChain()) {
+                    break;
+                }
+                // False positive, resume scanning past it
+                readBufferPos++;
+                skipped++;
             }
-            // Shift the buffer one byte to the left
-            System.arraycopy(hostBytes, 1, hostBytes, 0, signatureLen - 1);
-
-            // Read one byte at end of buffer
-            bytesRead += readFully(hostBytes, signatureLen - 1, 1);
         }
 
-        // Keep track of the record part that was read to match the signature
-        setBytesPrefetched(signatureLen);
-
-        // Keep tally of how many bytes were read
-        this.bytesRead += bytesRead;
+        // Keep tally of how many bytes were skipped
+        this.bytesRead += skipped;
 
         // Consider all bytes before the found record to be already processed
-        this.bytesProcessed = this.bytesRead - signatureLen;
+        this.bytesProcessed = this.bytesRead;
+    }
+
+    /**
+     * Confirm that the record start at the read buffer position starts a
+     * chain of valid descriptor words (see
+     * {@link #setSeekChainLength(int)}).
+     * <p/>
+     * The chain is followed in the read buffer. More bytes are read off the
+     * stream only when the chain extends past the bytes already buffered. If
+     * the chain extends past a full buffer, the part that was followed is
+     * considered good enough.
+     * 
+     * @return true if the chain is valid or reaches the end of the stream
+     * @throws IOException if a read error occurs
+     */
+    private boolean isRecordChain() throws IOException {
+        int descriptorLen = hostBytesPrefixLen();
+        int pos = readBufferPos;
+        for (int i = 0; i < seekChainLength; i++) {
+            while (pos + descriptorLen > readBufferLimit) {
+                if (readBufferPos == 0 && readBufferLimit == readBuffer.length) {
+                    return true;
+                }
+                int shift = readBufferPos;
+                if (!compactReadBuffer()) {
+                    return pos - shift == readBufferLimit;
+                }
+                pos -= shift;
+            }
+            pos = nextDescriptorOffset(readBuffer, pos);
+            if (pos < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Follow a descriptor word to the one that comes next. Used to verify
+     * candidate record starts (see {@link #setSeekChainLength(int)}).
+     * <p/>
+     * Only readers of records (or segments) prefixed with a descriptor word
+     * that holds their length can follow descriptor words. Others cannot
+     * verify record starts and return -1. They are never asked to since
+     * seek chains require a prefix.
+     * 
+     * @param hostData the mainframe data
+     * @param start where the descriptor word starts, there are at least
+     *            {@link #hostBytesPrefixLen()} bytes available
+     * @return the offset of the next descriptor word or -1 if the descriptor
+     *         word at start is invalid or cannot be verified
+     */
+    protected abstract int nextDescriptorOffset(byte[] hostData, int start);
+
+    /**
+     * A cheap test performed on each candidate offset before the record
+     * matcher is invoked.
+     * <p/>
+     * Readers that know how records are laid out (such as records starting
+     * with a descriptor word) can rule out most offsets here.
+     * 
+     * @param hostData the mainframe data
+     * @param start the candidate offset
+     * @param end the position past the last byte available in hostData
+     * @return false if a record cannot possibly start at this offset
+     */
+    protected boolean isRecordStartCandidate(byte[] hostData, int start,
+            int end) {
+        return true;
     }
 
     /**
@@ -253,7 +454,11 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
      *             bytes
      */
     public int readFully(byte b[], int off, int len) throws IOException {
-        IOUtils.readFully(inStream, b, off, len);
+        int actual = read(b, off, len);
+        if (actual != len) {
+            throw new EOFException("Length to read: " + len + " actual: "
+                    + actual);
+        }
         return len;
     }
 
@@ -268,13 +473,174 @@ public abstract class AbstractZosDatumReader<D> implements Iterator < D >,
      * @throws IOException if a read error occurs
      */
     public int read(byte b[], int off, int len) throws IOException {
-        return IOUtils.read(inStream, b, off, len);
+        int count = 0;
+        while (count < len) {
+            int buffered = readBufferLimit - readBufferPos;
+            if (buffered == 0) {
+                if (len - count >= readBufferSize) {
+                    // No point buffering reads that are larger than a block
+                    // (always the case with no read buffer)
+                    return count + fetch(b, off + count, len - count);
+                }
+                if (!fillReadBuffer()) {
+                    break;
+                }
+                continue;
+            }
+            int n = Math.min(buffered, len - count);
+            System.arraycopy(readBuffer, readBufferPos, b, off + count, n);
+            readBufferPos += n;
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Read the next block off the stream.
+     * 
+     * @return false if the end of the stream was reached
+     * @throws IOException if a read error occurs
+     */
+    private boolean fillReadBuffer() throws IOException {
+        if (readBuffer == null) {
+            readBuffer = new byte[readBufferSize];
+        }
+        readBufferPos = 0;
+        readBufferLimit = fetch(readBuffer, 0, readBuffer.length);
+        return readBufferLimit > 0;
+    }
+
+    /**
+     * Read bytes off the stream, never past the stream length given at
+     * construction time. The underlying stream might hold more bytes (such
+     * as the next split of a file) which must not be read.
+     * 
+     * @param b the buffer to fill
+     * @param off offset in buffer where to start filling
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, zero at the end of the stream
+     * @throws IOException if a read error occurs
+     */
+    private int fetch(byte b[], int off, int len) throws IOException {
+        int count = IOUtils.read(inStream, b, off,
+                (int) Math.min(len, available - bytesFetched));
+        bytesFetched += count;
+        return count;
+    }
+
+    /**
+     * Move forward in the stream. Bytes skipped are considered read and
+     * processed, they are not converted.
+     * 
+     * @param len the number of bytes to skip
+     * @throws IOException if the stream does not hold that many bytes
+     */
+    protected void skip(long len) throws IOException {
+        int buffered = (int) Math.min(len, readBufferLimit - readBufferPos);
+        readBufferPos += buffered;
+        IOUtils.skipFully(inStream, len - buffered);
+        bytesFetched += len - buffered;
+        addBytesSkipped(len);
+    }
+
+    /**
+     * Account for bytes read off the stream that were not used to produce a
+     * datum (such as the RDWs of records skipped).
+     * 
+     * @param len the number of bytes
+     */
+    protected void addBytesSkipped(long len) {
+        bytesRead += len;
+        bytesProcessed = bytesRead;
+    }
+
+    /**
+     * Move the bytes left in the read buffer to its start and fill the rest
+     * of the buffer from the stream.
+     * 
+     * @return false if the end of the stream was reached
+     * @throws IOException if a read error occurs
+     */
+    private boolean compactReadBuffer() throws IOException {
+        int remaining = readBufferLimit - readBufferPos;
+        System.arraycopy(readBuffer, readBufferPos, readBuffer, 0, remaining);
+        readBufferPos = 0;
+        readBufferLimit = remaining;
+        int count = fetch(readBuffer, remaining, readBuffer.length - remaining);
+        readBufferLimit += count;
+        return count > 0;
+    }
+
+    /**
+     * Set the size of the blocks read off the stream.
+     * <p/>
+     * Records are then handed out of these blocks, the stream being read
+     * again only when a record extends past the end of the current block.
+     * Bytes might be read off the stream ahead of the records converted.
+     * <p/>
+     * Must be called before the first read.
+     * 
+     * @param readBufferSize the block size (1 to 8 MB is a good choice), zero
+     *            to read records directly off the stream
+     * @throws IllegalStateException if the stream was already read
+     */
+    public void setReadBufferSize(int readBufferSize) {
+        if (readBufferSize < 0) {
+            throw new IllegalArgumentException(
+                    "Read buffer size cannot be negative");
+        }
+        if (readBuffer != null) {
+            throw new IllegalStateException(
+                    "Read buffer size must be set before the first read");
+        }
+        this.readBufferSize = readBufferSize;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
     }
 
     public long getBytesRead() {
         return bytesRead;
     }
 
+    /**
+     * Number of valid descriptor words, starting with the record start own
+     * descriptor word, for a record start found by
+     * {@link #seekRecordStart(CobolTypeFinder)} to be accepted. Each
+     * descriptor word after the first is at the offset given by the previous
+     * one.
+     * <p/>
+     * This rules out record matcher false positives within binary data at
+     * the cost of a few buffer lookups. Only readers of records prefixed with
+     * an RDW or an SDW support this.
+     * 
+     * @param seekChainLength the number of descriptor words in the chain,
+     *            zero to accept the record matcher verdict
+     */
+    public void setSeekChainLength(int seekChainLength) {
+        if (seekChainLength < 0) {
+            throw new IllegalArgumentException(
+                    "Seek chain length cannot be negative");
+        }
+        if (seekChainLength > 0 && hostBytesPrefixLen() == 0) {
+            throw new IllegalArgumentException(
+                    "Records have no descriptor word to follow");
+        }
+        this.seekChainLength = seekChainLength;
+    }
+
+    public int getSeekChainLength() {
+        return seekChainLength;
+    }
+
+    /**
+     * @return the maximum size of a record, without any prefix
+     */
+    public int getMaxRecordLen() {
+        return hostBytes.length - hostBytesPrefixLen();
+    }
+
     public int getBytesPrefetched() {
         return bytesPrefetched;
     }
@@ -0,0 +1,50 @@
+package com.legstar.avro.cob2avro.io;
+
+import com.legstar.base.finder.CobolTypeFinder;
+
+/**
+ * Matches the start of a record in a stream of spanned records (RECFM=VBS).
+ * <p/>
+ * A record starts with an SDW (Segment Descriptor Word) for a complete record
+ * or for the first segment of a record. Middle and last segments are never
+ * matched. The segment data must then match the record signature.
+ * <p/>
+ * The record matcher provided matches the record data, without any
+ * descriptor word (a {@link com.legstar.base.finder.CobolComplexTypeFinder}
+ * rather than a {@link com.legstar.base.finder.RdwCobolComplexTypeFinder}).
+ *
+ */
+public class SdwCobolTypeFinder extends CobolTypeFinder {
+
+    /** Matches the record data. */
+    private final CobolTypeFinder recordMatcher;
+
+    /**
+     * @param recordMatcher matches the record data
+     */
+    public SdwCobolTypeFinder(CobolTypeFinder recordMatcher) {
+        this.recordMatcher = recordMatcher;
+    }
+
+    public boolean match(byte[] hostData, int start, int length) {
+        if (length - start < getSignatureLen()) {
+            return false;
+        }
+        if (!ZosVbsDatumReader.isFirstSegmentSdw(hostData, start)) {
+            return false;
+        }
+        // The record signature must be in the first segment
+        int segmentLen = ZosVarRdwDatumReader.getRawRdw(hostData, start,
+                length) - ZosVbsDatumReader.SDW_LEN;
+        if (segmentLen < recordMatcher.getSignatureLen()) {
+            return false;
+        }
+        return recordMatcher.match(hostData, start
+                + ZosVbsDatumReader.SDW_LEN, length);
+    }
+
+    public int getSignatureLen() {
+        return recordMatcher.getSignatureLen() + ZosVbsDatumReader.SDW_LEN;
+    }
+
+}
@@ -0,0 +1,279 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.Schema;
+import org.apache.commons.io.IOUtils;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a mainframe byte stream made of fixed size records (RECFM=F or FB)
+ * with no RDW.
+ * <p/>
+ * The stream is read in blocks holding a whole number of records, the block
+ * size being a multiple of the record length (LRECL). Records are converted
+ * in place, in the block, so no bytes are moved between records.
+ * <p/>
+ * Since all records have the same length, the reader can be positioned on any
+ * record with {@link #seekRecord(long)} without scanning the data.
+ * <p/>
+ * Records are turned into datums as described in
+ * {@link AbstractZosDatumIterator}.
+ *
+ * @param <D>
+ */
+public class ZosFixedDatumReader<D> extends AbstractZosDatumIterator < D > {
+
+    /** The record length (LRECL). */
+    private final int recordLen;
+
+    /**
+     * z/OS data stream.
+     */
+    private final InputStream inStream;
+
+    /** Total size of the input stream */
+    private final long length;
+
+    /** Approximate size of the blocks read off the stream. */
+    private int readBufferSize = AbstractZosDatumReader.DEFAULT_READ_BUFFER_SIZE;
+
+    /** Holds a whole number of records (null until the first read). */
+    private byte[] block;
+
+    /** Position in block of the next record. */
+    private int blockPos;
+
+    /** Position in block past the last byte read off the stream. */
+    private int blockLimit;
+
+    /** Offset in the stream of the next record. */
+    private long position;
+
+    public ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, CobolComplexType cobolType, Schema schema)
+            throws IOException {
+        this(inStream, length, recordLen, new EbcdicCobolContext(), cobolType,
+                null, schema, true);
+    }
+
+    /**
+     * Create a fixed size records reader producing either specific or generic
+     * records.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param recordLen the record length (LRECL)
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @throws IOException if reading fails
+     */
+    public ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inStream, length, recordLen, cobolContext, cobolType,
+                customChoiceStrategy, schema, specific, false);
+    }
+
+    /**
+     * Create a fixed size records reader producing either specific or generic
+     * records, specific records being possibly created directly by the
+     * conversion.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param recordLen the record length (LRECL)
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @param specificData true to create specific records directly (ignored
+     *            when producing generic records)
+     * @throws IOException if reading fails
+     */
+    public ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, boolean specificData) throws IOException {
+        this(inStream, length, recordLen, newConverter(cobolContext,
+                cobolType, customChoiceStrategy, schema, specific
+                        && specificData), specific);
+    }
+
+    /**
+     * Create a fixed size records reader producing generic records that
+     * follow a projection of the schema.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param recordLen the record length (LRECL)
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema corresponding to the mainframe records
+     * @param readerSchema the Avro schema of the output records, holding a
+     *            subset of the schema fields
+     * @throws IOException if reading fails
+     */
+    public ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        this(inStream, length, recordLen, newConverter(cobolContext,
+                cobolType, customChoiceStrategy, schema, readerSchema), false);
+    }
+
+    /**
+     * Create a fixed size records reader using a converter that directly
+     * produces the datums (such as the converters generated for each
+     * copybook).
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param recordLen the record length (LRECL)
+     * @param converter the mainframe to datum converter
+     * @throws IOException if reading fails
+     */
+    public ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        this(inStream, length, recordLen, converter, false);
+    }
+
+    private ZosFixedDatumReader(InputStream inStream, long length,
+            int recordLen, AbstractCob2ObjectConverter < ? > converter,
+            boolean copyToSpecific) throws IOException {
+        super(converter, copyToSpecific);
+        if (recordLen < 1) {
+            throw new IllegalArgumentException(
+                    "Record length must be positive");
+        }
+        this.inStream = inStream;
+        this.length = length;
+        this.recordLen = recordLen;
+    }
+
+    public boolean hasNext() {
+        return length - position > 0;
+    }
+
+    protected D readDatum(D reuse) throws IOException {
+        if (blockLimit - blockPos < recordLen) {
+            fillBlock();
+        }
+        FromHostResult < D > result = convert(block, blockPos, blockPos
+                + recordLen, reuse);
+        blockPos += recordLen;
+        position += recordLen;
+        return result.getValue();
+    }
+
+    public void close() throws IOException {
+        if (null != inStream) {
+            inStream.close();
+        }
+    }
+
+    /**
+     * Read the next block off the stream, never past the stream length.
+     *
+     * @throws IOException if there is not enough data left for a record
+     */
+    private void fillBlock() throws IOException {
+        if (block == null) {
+            block = new byte[Math.max(1, readBufferSize / recordLen)
+                    * recordLen];
+        }
+        int len = (int) Math.min(block.length, length - position);
+        blockPos = 0;
+        blockLimit = IOUtils.read(inStream, block, 0, len);
+        if (blockLimit < recordLen) {
+            throw new IOException("Not enough bytes left for a record");
+        }
+    }
+
+    /**
+     * Position the reader on a record.
+     * <p/>
+     * Records within the current block are reached directly. Otherwise the
+     * stream is skipped forward, without reading the records in between.
+     *
+     * @param recordNumber the number of the record, starting at zero
+     * @throws IOException if the stream cannot be skipped
+     * @throws IllegalArgumentException if the record is outside of the stream
+     *             or before the current block
+     */
+    public void seekRecord(long recordNumber) throws IOException {
+        long target = recordNumber * recordLen;
+        if (recordNumber < 0 || target > length) {
+            throw new IllegalArgumentException("Record " + recordNumber
+                    + " is outside of the stream");
+        }
+        long blockStart = position - blockPos;
+        if (target < blockStart) {
+            throw new IllegalArgumentException("Cannot seek back to record "
+                    + recordNumber + " which is before the current block");
+        }
+        if (target <= blockStart + blockLimit) {
+            blockPos = (int) (target - blockStart);
+        } else {
+            IOUtils.skipFully(inStream, target - (blockStart + blockLimit));
+            blockPos = 0;
+            blockLimit = 0;
+        }
+        position = target;
+    }
+
+    /**
+     * Set the size of the blocks read off the stream. The size is rounded
+     * down to a multiple of the record length.
+     * <p/>
+     * Must be called before the first read.
+     *
+     * @param readBufferSize the block size (1 to 8 MB is a good choice)
+     * @throws IllegalStateException if the stream was already read
+     */
+    public void setReadBufferSize(int readBufferSize) {
+        if (block != null) {
+            throw new IllegalStateException(
+                    "Read buffer size must be set before the first read");
+        }
+        this.readBufferSize = readBufferSize;
+    }
+
+    public int getRecordLen() {
+        return recordLen;
+    }
+
+    /**
+     * @return the number of the next record, starting at zero
+     */
+    public long getRecordNumber() {
+        return position / recordLen;
+    }
+
+    /**
+     * @return the number of bytes used by the records read or skipped so far
+     */
+    public long getBytesRead() {
+        return position;
+    }
+
+}
@@ -0,0 +1,336 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A sidecar index for a file of variable size records, each starting with an
+ * RDW (Record Descriptor Word).
+ * <p/>
+ * The index holds the offset of every Nth record (the interval). Record
+ * numbers, starting at zero, are implied by the position of the offset in the
+ * index so that entry i is for record i * interval.
+ * <p/>
+ * The index is built by scanning the file once. It is then written next to
+ * the file (see {@link #getIndexFile(File)}) in a compact form where each
+ * offset is the delta from the previous one, stored as an Avro variable
+ * length long.
+ * <p/>
+ * With an index, readers can be positioned on any record by skipping to the
+ * closest indexed record, then walking at most interval - 1 RDWs.
+ *
+ */
+public class ZosRdwIndex {
+
+    /** Suffix appended to a file name to get its index file name. */
+    public static final String INDEX_FILE_SUFFIX = ".rdwidx";
+
+    /** Number of records between 2 index entries by default. */
+    public static final int DEFAULT_INTERVAL = 1000;
+
+    /** Identifies an index file (ASCII RDWX). */
+    private static final int MAGIC = 0x52445758;
+
+    /** Index file format version. */
+    private static final int VERSION = 1;
+
+    /** Number of records between 2 index entries. */
+    private final int interval;
+
+    /** Total number of records in the file. */
+    private final long recordCount;
+
+    /** Total size of the file. */
+    private final long length;
+
+    /** Offsets of records 0, interval, 2 * interval, ... */
+    private final long[] offsets;
+
+    /**
+     * @param interval number of records between 2 index entries
+     * @param recordCount total number of records in the file
+     * @param length total size of the file
+     * @param offsets offsets of the indexed records
+     */
+    private ZosRdwIndex(int interval, long recordCount, long length,
+            long[] offsets) {
+        this.interval = interval;
+        this.recordCount = recordCount;
+        this.length = length;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Build an index by walking the RDWs of a file.
+     * <p/>
+     * Only RDWs are read, the records data is skipped.
+     *
+     * @param inStream the file content
+     * @param length the total size of the file
+     * @param interval the number of records between 2 index entries
+     * @return the index
+     * @throws IOException if the file cannot be read or is not made of RDW
+     *             records
+     */
+    public static ZosRdwIndex build(InputStream inStream, long length,
+            int interval) throws IOException {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        byte[] rdw = new byte[ZosVarRdwDatumReader.RDW_LEN];
+        long[] offsets = new long[16];
+        int entries = 0;
+        long recordCount = 0;
+        long position = 0;
+        while (position < length) {
+            if (recordCount % interval == 0) {
+                if (entries == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, entries * 2);
+                }
+                offsets[entries++] = position;
+            }
+            position += skipRecord(inStream, length, position, rdw);
+            recordCount++;
+        }
+        return new ZosRdwIndex(interval, recordCount, length, Arrays.copyOf(
+                offsets, entries));
+    }
+
+    /**
+     * Locate record starts by walking the RDWs of a file, without an index.
+     * <p/>
+     * Only RDWs are read, the records data is skipped.
+     *
+     * @param inStream the file content
+     * @param length the total size of the file
+     * @param offsets offsets in the file, in ascending order
+     * @return for each offset, the offset of the first record at or after it
+     *         or the file length if there is none
+     * @throws IOException if the file cannot be read or is not made of RDW
+     *             records
+     */
+    public static long[] getRecordStarts(InputStream inStream, long length,
+            long[] offsets) throws IOException {
+        byte[] rdw = new byte[ZosVarRdwDatumReader.RDW_LEN];
+        long[] recordStarts = new long[offsets.length];
+        long position = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            while (position < offsets[i] && position < length) {
+                position += skipRecord(inStream, length, position, rdw);
+            }
+            recordStarts[i] = position;
+        }
+        return recordStarts;
+    }
+
+    /**
+     * Read an RDW and skip the record data.
+     *
+     * @param inStream the file content, positioned on an RDW
+     * @param length the total size of the file
+     * @param position the offset of the RDW in the file
+     * @param rdw a buffer for the RDW
+     * @return the record length, RDW included
+     * @throws IOException if there is no valid record at position
+     */
+    private static int skipRecord(InputStream inStream, long length,
+            long position, byte[] rdw) throws IOException {
+        if (IOUtils.read(inStream, rdw) < rdw.length) {
+            throw new IOException(
+                    "Not enough bytes left for a record descriptor word at offset "
+                            + position);
+        }
+        int rdwLen = ZosVarRdwDatumReader.getRawRdw(rdw, 0, rdw.length);
+        if (rdwLen < ZosVarRdwDatumReader.RDW_LEN || rdwLen > length - position) {
+            throw new IOException("Invalid record descriptor word at offset "
+                    + position);
+        }
+        IOUtils.skipFully(inStream, rdwLen - ZosVarRdwDatumReader.RDW_LEN);
+        return rdwLen;
+    }
+
+    /**
+     * Build the index of a local file.
+     *
+     * @param file the RDW file
+     * @param interval the number of records between 2 index entries
+     * @return the index
+     * @throws IOException if the file cannot be read or is not made of RDW
+     *             records
+     */
+    public static ZosRdwIndex build(File file, int interval)
+            throws IOException {
+        InputStream inStream = new BufferedInputStream(new FileInputStream(
+                file), AbstractZosDatumReader.DEFAULT_READ_BUFFER_SIZE);
+        try {
+            return build(inStream, file.length(), interval);
+        } finally {
+            inStream.close();
+        }
+    }
+
+    /**
+     * Write the index in its compact form.
+     *
+     * @param outStream where to write the index
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream outStream) throws IOException {
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outStream,
+                null);
+        encoder.writeInt(MAGIC);
+        encoder.writeInt(VERSION);
+        encoder.writeInt(interval);
+        encoder.writeLong(recordCount);
+        encoder.writeLong(length);
+        encoder.writeInt(offsets.length);
+        long previous = 0;
+        for (long offset : offsets) {
+            encoder.writeLong(offset - previous);
+            previous = offset;
+        }
+        encoder.flush();
+    }
+
+    /**
+     * Write the index next to the file it indexes.
+     *
+     * @param file the RDW file
+     * @throws IOException if writing fails
+     */
+    public void write(File file) throws IOException {
+        OutputStream outStream = new BufferedOutputStream(
+                new FileOutputStream(getIndexFile(file)));
+        try {
+            write(outStream);
+        } finally {
+            outStream.close();
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(OutputStream)}.
+     *
+     * @param inStream the index content
+     * @return the index
+     * @throws IOException if the content is not an index
+     */
+    public static ZosRdwIndex read(InputStream inStream) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(inStream,
+                null);
+        if (decoder.readInt() != MAGIC) {
+            throw new IOException("Not an RDW index");
+        }
+        int version = decoder.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported RDW index version " + version);
+        }
+        int interval = decoder.readInt();
+        long recordCount = decoder.readLong();
+        long length = decoder.readLong();
+        long[] offsets = new long[decoder.readInt()];
+        long previous = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = previous + decoder.readLong();
+            previous = offsets[i];
+        }
+        return new ZosRdwIndex(interval, recordCount, length, offsets);
+    }
+
+    /**
+     * Read the index that sits next to a file.
+     *
+     * @param file the RDW file
+     * @return the index
+     * @throws IOException if the index cannot be read
+     */
+    public static ZosRdwIndex read(File file) throws IOException {
+        InputStream inStream = new FileInputStream(getIndexFile(file));
+        try {
+            return read(inStream);
+        } finally {
+            inStream.close();
+        }
+    }
+
+    /**
+     * @param file the RDW file
+     * @return the index file that sits next to it
+     */
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Locate the closest indexed record at or before a record.
+     *
+     * @param recordNumber the record number, starting at zero
+     * @return the index entry number
+     * @throws IllegalArgumentException if the record is not in the file
+     */
+    public int getEntry(long recordNumber) {
+        if (recordNumber < 0 || recordNumber >= recordCount) {
+            throw new IllegalArgumentException("Record " + recordNumber
+                    + " is outside of the file");
+        }
+        return (int) (recordNumber / interval);
+    }
+
+    /**
+     * Locate the first indexed record at or after an offset.
+     *
+     * @param offset an offset in the file
+     * @return the index entry number, the number of entries if there is no
+     *         indexed record past the offset
+     */
+    public int getEntryAfter(long offset) {
+        int entry = Arrays.binarySearch(offsets, offset);
+        return entry < 0 ? -entry - 1 : entry;
+    }
+
+    /**
+     * @param entry the index entry number
+     * @return the offset in the file of the indexed record
+     */
+    public long getEntryOffset(int entry) {
+        return offsets[entry];
+    }
+
+    /**
+     * @param entry the index entry number
+     * @return the number of the indexed record
+     */
+    public long getEntryRecordNumber(int entry) {
+        return (long) entry * interval;
+    }
+
+    public int getEntryCount() {
+        return offsets.length;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+}
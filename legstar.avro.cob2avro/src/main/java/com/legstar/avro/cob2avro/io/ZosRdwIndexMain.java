@@ -0,0 +1,34 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Exposes {@link ZosRdwIndex} as a command line tool that writes the index of
+ * an RDW file next to it.
+ * <p/>
+ * Arguments are the RDW file and, optionally, the number of records between 2
+ * index entries.
+ *
+ */
+public class ZosRdwIndexMain {
+
+    /**
+     * @param args the RDW file and an optional interval
+     * @throws IOException if the file cannot be indexed
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: ZosRdwIndexMain <rdw file> [interval]");
+            return;
+        }
+        File file = new File(args[0]);
+        int interval = args.length > 1 ? Integer.parseInt(args[1])
+                : ZosRdwIndex.DEFAULT_INTERVAL;
+        ZosRdwIndex index = ZosRdwIndex.build(file, interval);
+        index.write(file);
+        System.out.println("Indexed " + index.getRecordCount()
+                + " records in " + ZosRdwIndex.getIndexFile(file));
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.avro.Schema;
+
+import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a local file of variable size mainframe records, each starting with
+ * an RDW (Record Descriptor Word), through memory mapping.
+ * <p/>
+ * The file is mapped in large windows. RDWs are walked directly in the mapped
+ * window so there is no stream and no intermediate read buffer. A new window
+ * is mapped, starting at the current record, when a record would straddle the
+ * end of the current window.
+ * <p/>
+ * Records are turned into datums as described in
+ * {@link AbstractZosDatumIterator}.
+ * <p/>
+ * This reader is not zero-copy. COBOL types decode byte arrays, so each
+ * record is copied from the mapped window, in a single bulk operation, to an
+ * array reused from one record to the next. What mapping saves is the stream
+ * and the copy from the file system to the read buffer.
+ *
+ * @param <D>
+ */
+public class ZosRdwMappedReader<D> extends AbstractZosDatumIterator < D > {
+
+    /** Size of the windows mapped by default. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /** The RDW record length (LL) is an unsigned 2 bytes integer. */
+    private static final int MAX_RDW_RECORD_LEN = 0xFFFF;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    /** Total size of the file. */
+    private final long length;
+
+    /** Maximum number of bytes mapped at once. */
+    private final int windowSize;
+
+    /** The part of the file currently mapped (null until first read). */
+    private MappedByteBuffer window;
+
+    /** Offset in the file of the mapped window. */
+    private long windowStart;
+
+    /** Offset in the file of the next RDW. */
+    private long position;
+
+    /**
+     * Create a reader producing Avro specific records whenever the specific
+     * classes are available.
+     *
+     * @param inFile the mainframe file
+     * @param cobolType a description of the input mainframe records
+     * @param schema the Avro schema of the output records
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile, CobolComplexType cobolType,
+            Schema schema) throws IOException {
+        this(inFile, new EbcdicCobolContext(), cobolType, null, schema);
+    }
+
+    /**
+     * Create a reader producing Avro specific records whenever the specific
+     * classes are available.
+     *
+     * @param inFile the mainframe file
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector (may
+     *            be null)
+     * @param schema the Avro schema of the output records
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema)
+            throws IOException {
+        this(inFile, cobolContext, cobolType, customChoiceStrategy, schema,
+                true);
+    }
+
+    /**
+     * Create a reader producing either specific or generic records.
+     * <p/>
+     * Specific records are created directly by the conversion.
+     *
+     * @param inFile the mainframe file
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector (may
+     *            be null)
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inFile, new Cob2AvroGenericConverter.Builder()
+                .cobolContext(cobolContext).cobolComplexType(cobolType)
+                .customChoiceStrategy(customChoiceStrategy).schema(schema)
+                .walkPlan(true).specificData(specific).build(),
+                DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a reader producing generic records that follow a projection of
+     * the schema.
+     *
+     * @param inFile the mainframe file
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector (may
+     *            be null)
+     * @param schema the Avro schema corresponding to the mainframe records
+     * @param readerSchema the Avro schema of the output records, holding a
+     *            subset of the schema fields
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile, CobolContext cobolContext,
+            CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        this(inFile, newConverter(cobolContext, cobolType,
+                customChoiceStrategy, schema, readerSchema),
+                DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a reader using a converter that directly produces the datums
+     * (such as the converters generated for each copybook).
+     *
+     * @param inFile the mainframe file
+     * @param converter the mainframe to datum converter
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        this(inFile, converter, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a reader mapping windows of a given size.
+     *
+     * @param inFile the mainframe file
+     * @param converter the mainframe to datum converter
+     * @param windowSize the maximum number of bytes mapped at once, must be
+     *            large enough for the largest record
+     * @throws IOException if the file cannot be opened
+     */
+    public ZosRdwMappedReader(File inFile,
+            AbstractCob2ObjectConverter < ? > converter, int windowSize)
+            throws IOException {
+        super(converter, false);
+        if (windowSize < MAX_RDW_RECORD_LEN) {
+            throw new IllegalArgumentException("Window size must be at least "
+                    + MAX_RDW_RECORD_LEN + " bytes");
+        }
+        this.windowSize = windowSize;
+        this.file = new RandomAccessFile(inFile, "r");
+        this.channel = file.getChannel();
+        this.length = channel.size();
+    }
+
+    public boolean hasNext() {
+        return position < length;
+    }
+
+    protected D readDatum(D reuse) throws IOException {
+        return convert(nextRecord(), reuse).getValue();
+    }
+
+    public void close() throws IOException {
+        window = null;
+        file.close();
+    }
+
+    /**
+     * Locate the next record in the mapped window, mapping a new window if
+     * needed, and move past it.
+     *
+     * @return the record data, without the RDW
+     * @throws IOException if the file does not hold a complete record at the
+     *             current position
+     */
+    private ByteBuffer nextRecord() throws IOException {
+        if (length - position < ZosVarRdwDatumReader.RDW_LEN) {
+            throw new IOException(
+                    "Not enough bytes left for a record descriptor word");
+        }
+        map(position, ZosVarRdwDatumReader.RDW_LEN);
+        int rdwLen = window.getShort((int) (position - windowStart)) & 0xFFFF;
+        if (rdwLen < ZosVarRdwDatumReader.RDW_LEN) {
+            throw new IOException(
+                    "Record does not start with a Record Descriptor Word at offset "
+                            + position);
+        }
+        if (length - position < rdwLen) {
+            throw new IOException("Not enough bytes left for record at offset "
+                    + position);
+        }
+        map(position, rdwLen);
+        int start = (int) (position - windowStart);
+        ByteBuffer record = window.duplicate();
+        record.limit(start + rdwLen);
+        record.position(start + ZosVarRdwDatumReader.RDW_LEN);
+        position += rdwLen;
+        return record.slice();
+    }
+
+    /**
+     * Make sure a range of the file is in the mapped window.
+     *
+     * @param offset the offset in the file of the range start
+     * @param len the number of bytes in the range
+     * @throws IOException if mapping fails
+     */
+    private void map(long offset, int len) throws IOException {
+        if (window != null && offset >= windowStart
+                && offset + len <= windowStart + window.limit()) {
+            return;
+        }
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                Math.min(windowSize, length - offset));
+    }
+
+    /**
+     * @return the offset in the file of the next record
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Position the reader on a record.
+     *
+     * @param position the offset in the file of a record RDW
+     */
+    public void setPosition(long position) {
+        if (position < 0 || position > length) {
+            throw new IllegalArgumentException("Position " + position
+                    + " is outside of the file");
+        }
+        this.position = position;
+    }
+
+}
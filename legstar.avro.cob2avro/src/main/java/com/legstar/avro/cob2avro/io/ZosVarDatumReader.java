@@ -7,6 +7,7 @@ import org.apache.avro.Schema;
 
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
 import com.legstar.base.type.composite.CobolComplexType;
 import com.legstar.base.visitor.FromCobolChoiceStrategy;
 
@@ -21,7 +22,8 @@ import com.legstar.base.visitor.FromCobolChoiceStrategy;
  * next call, caller indicates how many bytes of the last buffer were actually
  * processed.
  * <p/>
- * Turns each mainframe record into an Avro specific class instance.
+ * Turns each mainframe record into an Avro specific class instance (or an
+ * Avro generic record).
  * 
  * @param <D>
  */
@@ -49,8 +51,38 @@ public class ZosVarDatumReader<D> extends AbstractZosDatumReader < D > {
             CobolContext cobolContext, CobolComplexType cobolType,
             FromCobolChoiceStrategy customChoiceStrategy, Schema schema)
             throws IOException {
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, true);
+    }
+
+    public ZosVarDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific, false);
+    }
+
+    public ZosVarDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, boolean specificData) throws IOException {
         super(inStream, length, cobolContext, cobolType, customChoiceStrategy,
-                schema);
+                schema, specific, specificData);
+    }
+
+    public ZosVarDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        super(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, readerSchema);
+    }
+
+    public ZosVarDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        super(inStream, length, converter);
     }
 
     /**
@@ -106,6 +138,14 @@ public class ZosVarDatumReader<D> extends AbstractZosDatumReader < D > {
         return new ReadRecordStatus(residual + lastCount);
     }
 
+    /**
+     * Records have no descriptor word, record starts cannot be verified.
+     */
+    @Override
+    protected int nextDescriptorOffset(byte[] hostData, int start) {
+        return -1;
+    }
+
     public int hostBytesPrefixLen() {
         return 0;
     }
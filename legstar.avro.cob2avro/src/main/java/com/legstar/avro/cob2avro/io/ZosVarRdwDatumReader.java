@@ -2,12 +2,12 @@ package com.legstar.avro.cob2avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
 import com.legstar.base.context.CobolContext;
 import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
 import com.legstar.base.type.composite.CobolComplexType;
 import com.legstar.base.visitor.FromCobolChoiceStrategy;
 
@@ -15,7 +15,8 @@ import com.legstar.base.visitor.FromCobolChoiceStrategy;
  * Reads a mainframe byte stream where records are variable size and start with
  * an RDW (Record Descriptor Word).
  * <p/>
- * Turns each mainframe record into an Avro specific class instance.
+ * Turns each mainframe record into an Avro specific class instance (or an
+ * Avro generic record).
  * <p/>
  * Offers optional seek capability to position stream at start of a record (with
  * help of a custom {@link ZosRecordMatcher} to be provided).
@@ -42,7 +43,38 @@ public class ZosVarRdwDatumReader<D> extends AbstractZosDatumReader < D > {
             CobolContext cobolContext, CobolComplexType cobolType,
             FromCobolChoiceStrategy customChoiceStrategy, Schema schema)
             throws IOException {
-        super(inStream, length, cobolContext, cobolType, customChoiceStrategy, schema);
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, true);
+    }
+
+    public ZosVarRdwDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific, false);
+    }
+
+    public ZosVarRdwDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, boolean specificData) throws IOException {
+        super(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific, specificData);
+    }
+
+    public ZosVarRdwDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        super(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, readerSchema);
+    }
+
+    public ZosVarRdwDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        super(inStream, length, converter);
     }
 
     /**
@@ -75,6 +107,43 @@ public class ZosVarRdwDatumReader<D> extends AbstractZosDatumReader < D > {
         return new ReadRecordStatus(recordLen, bytesRead);
     }
 
+    /**
+     * Position the reader on a record using the file index.
+     * <p/>
+     * The stream is skipped up to the closest indexed record, then RDWs are
+     * walked up to the requested record. Records in between are not
+     * converted. The stream must start at the beginning of the indexed file.
+     * 
+     * @param index the index of the file
+     * @param recordNumber the number of the record, starting at zero
+     * @throws IOException if the stream does not match the index
+     * @throws IllegalArgumentException if the record is outside of the file
+     *             or before the current position
+     */
+    public void seekRecord(ZosRdwIndex index, long recordNumber)
+            throws IOException {
+        int entry = index.getEntry(recordNumber);
+        long offset = index.getEntryOffset(entry);
+        long walk = recordNumber - index.getEntryRecordNumber(entry);
+        if (offset < getBytesRead()) {
+            throw new IllegalArgumentException("Cannot seek back to record "
+                    + recordNumber);
+        }
+        skip(offset - getBytesRead());
+        byte[] rdw = new byte[RDW_LEN];
+        for (long i = 0; i < walk; i++) {
+            readFully(rdw, 0, RDW_LEN);
+            addBytesSkipped(RDW_LEN);
+            int rdwLen = nextDescriptorOffset(rdw, 0);
+            if (rdwLen < 0) {
+                throw new IOException(
+                        "Record does not start with a Record Descriptor Word at offset "
+                                + (getBytesRead() - RDW_LEN));
+            }
+            skip(rdwLen - RDW_LEN);
+        }
+    }
+
     /**
      * RDW is a 4 bytes numeric stored in Big Endian as a binary 2's complement.
      * 
@@ -117,13 +186,27 @@ public class ZosVarRdwDatumReader<D> extends AbstractZosDatumReader < D > {
         if (length - start < RDW_LEN) {
             throw new IllegalArgumentException("Not enough bytes for an RDW");
         }
-        ByteBuffer buf = ByteBuffer.allocate(RDW_LEN);
-        buf.put(0, (byte) 0);
-        buf.put(1, (byte) 0);
-        buf.put(2, hostData[start + 0]);
-        buf.put(3, hostData[start + 1]);
+        return (hostData[start] & 0xFF) << 8 | (hostData[start + 1] & 0xFF);
+    }
+
+    /**
+     * The RDW record length must fit the record type, which rules out most
+     * offsets without invoking the record matcher.
+     */
+    @Override
+    protected boolean isRecordStartCandidate(byte[] hostData, int start,
+            int end) {
+        if (end - start < RDW_LEN) {
+            return true;
+        }
+        int len = getRawRdw(hostData, start, end) - RDW_LEN;
+        return len > 0 && len <= getMaxRecordLen();
+    }
 
-        return buf.getInt();
+    @Override
+    protected int nextDescriptorOffset(byte[] hostData, int start) {
+        return isRecordStartCandidate(hostData, start, start + RDW_LEN) ? start
+                + getRawRdw(hostData, start, start + RDW_LEN) : -1;
     }
 
     public int hostBytesPrefixLen() {
@@ -0,0 +1,269 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.Schema;
+import org.apache.commons.io.IOUtils;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a mainframe byte stream of blocked variable size records (RECFM=VB)
+ * where the BDWs (Block Descriptor Word) were kept.
+ * <p/>
+ * Each block starts with a BDW giving the block length and holds a number of
+ * records, each starting with an RDW (Record Descriptor Word). A whole block
+ * is read in one operation and records are then converted in place, in the
+ * block.
+ * <p/>
+ * Block lengths are the first 2 bytes of the BDW or, for extended BDWs (high
+ * order bit set), the 31 low order bits of the BDW.
+ * <p/>
+ * Records are turned into datums as described in
+ * {@link AbstractZosDatumIterator}.
+ *
+ * @param <D>
+ */
+public class ZosVbBlockedDatumReader<D> extends AbstractZosDatumIterator < D > {
+
+    public static final int BDW_LEN = 4;
+
+    /** Largest block a standard (non extended) BDW describes on z/OS. */
+    public static final int MAX_BLOCK_LEN = 32760;
+
+    /**
+     * z/OS data stream.
+     */
+    private final InputStream inStream;
+
+    /** Total size of the input stream */
+    private final long length;
+
+    /** Holds the current block, BDW included. */
+    private byte[] block = new byte[0];
+
+    /** Position in block of the next RDW. */
+    private int blockPos;
+
+    /** Length of the current block, BDW included. */
+    private int blockLen;
+
+    /** How many blocks were read so far. */
+    private long blocksRead;
+
+    /** How many bytes of the stream were read so far (whole blocks). */
+    private long bytesRead;
+
+    public ZosVbBlockedDatumReader(InputStream inStream, long length,
+            CobolComplexType cobolType, Schema schema) throws IOException {
+        this(inStream, length, new EbcdicCobolContext(), cobolType, null,
+                schema, true);
+    }
+
+    /**
+     * Create a blocked records reader producing either specific or generic
+     * records.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @throws IOException if reading fails
+     */
+    public ZosVbBlockedDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific, false);
+    }
+
+    /**
+     * Create a blocked records reader producing either specific or generic
+     * records, specific records being possibly created directly by the
+     * conversion.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema of the output records
+     * @param specific true to produce specific records, false for generic
+     *            records
+     * @param specificData true to create specific records directly (ignored
+     *            when producing generic records)
+     * @throws IOException if reading fails
+     */
+    public ZosVbBlockedDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific, boolean specificData) throws IOException {
+        this(inStream, length, newConverter(cobolContext, cobolType,
+                customChoiceStrategy, schema, specific && specificData),
+                specific);
+    }
+
+    /**
+     * Create a blocked records reader producing generic records that follow
+     * a projection of the schema.
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param cobolContext z/OS COBOL configuration parameters
+     * @param cobolType a description of the input mainframe records
+     * @param customChoiceStrategy custom redefines alternative selector
+     * @param schema the Avro schema corresponding to the mainframe records
+     * @param readerSchema the Avro schema of the output records, holding a
+     *            subset of the schema fields
+     * @throws IOException if reading fails
+     */
+    public ZosVbBlockedDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            Schema readerSchema) throws IOException {
+        this(inStream, length, newConverter(cobolContext, cobolType,
+                customChoiceStrategy, schema, readerSchema), false);
+    }
+
+    /**
+     * Create a blocked records reader using a converter that directly
+     * produces the datums (such as the converters generated for each
+     * copybook).
+     *
+     * @param inStream the incoming z/OS data stream
+     * @param length the total size of the stream
+     * @param converter the mainframe to datum converter
+     * @throws IOException if reading fails
+     */
+    public ZosVbBlockedDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        this(inStream, length, converter, false);
+    }
+
+    private ZosVbBlockedDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? > converter, boolean copyToSpecific)
+            throws IOException {
+        super(converter, copyToSpecific);
+        this.inStream = inStream;
+        this.length = length;
+    }
+
+    public boolean hasNext() {
+        return blockPos < blockLen || length - bytesRead > 0;
+    }
+
+    protected D readDatum(D reuse) throws IOException {
+        if (blockPos >= blockLen) {
+            readBlock();
+        }
+        int rdw = blockLen - blockPos < ZosVarRdwDatumReader.RDW_LEN ? 0
+                : ZosVarRdwDatumReader.getRawRdw(block, blockPos, blockLen);
+        if (rdw < ZosVarRdwDatumReader.RDW_LEN || rdw > blockLen - blockPos) {
+            throw new IOException("Invalid record descriptor word in block "
+                    + blocksRead + " at offset " + blockPos);
+        }
+        FromHostResult < D > result = convert(block, blockPos
+                + ZosVarRdwDatumReader.RDW_LEN, blockPos + rdw, reuse);
+        blockPos += rdw;
+        return result.getValue();
+    }
+
+    public void close() throws IOException {
+        if (null != inStream) {
+            inStream.close();
+        }
+    }
+
+    /**
+     * Read a complete block, its BDW first then the rest of the block.
+     * <p/>
+     * The block must fit in what is left of the stream length so that the
+     * reader never reads past that length.
+     *
+     * @throws IOException if the stream does not hold a complete block
+     */
+    private void readBlock() throws IOException {
+        if (block.length < BDW_LEN) {
+            block = new byte[BDW_LEN];
+        }
+        if (length - bytesRead < BDW_LEN
+                || IOUtils.read(inStream, block, 0, BDW_LEN) < BDW_LEN) {
+            throw new IOException(
+                    "Not enough bytes left for a block descriptor word");
+        }
+        boolean extended = (block[0] & 0x80) != 0;
+        int len = getBlockLen(block, 0);
+        if (len < BDW_LEN + ZosVarRdwDatumReader.RDW_LEN
+                || (!extended && len > MAX_BLOCK_LEN)) {
+            throw new IOException("Invalid block descriptor word at offset "
+                    + bytesRead);
+        }
+        // Checked before allocating, a corrupt extended BDW could ask for 2GB
+        if (len > length - bytesRead) {
+            throw new IOException("Not enough bytes left for block at offset "
+                    + bytesRead);
+        }
+        if (block.length < len) {
+            byte[] bdw = block;
+            block = new byte[len];
+            System.arraycopy(bdw, 0, block, 0, BDW_LEN);
+        }
+        if (IOUtils.read(inStream, block, BDW_LEN, len - BDW_LEN) < len
+                - BDW_LEN) {
+            throw new IOException("Not enough bytes left for block at offset "
+                    + bytesRead);
+        }
+        blockPos = BDW_LEN;
+        blockLen = len;
+        blocksRead++;
+        bytesRead += len;
+    }
+
+    /**
+     * A BDW holds the block length, BDW included, in its first 2 bytes.
+     * Extended BDWs, with the high order bit set, hold the block length in
+     * the remaining 31 bits.
+     *
+     * @param hostData the mainframe data
+     * @param start where the BDW starts
+     * @return the block length, BDW included
+     */
+    public static int getBlockLen(byte[] hostData, int start) {
+        if ((hostData[start] & 0x80) != 0) {
+            return (hostData[start] & 0x7F) << 24
+                    | (hostData[start + 1] & 0xFF) << 16
+                    | (hostData[start + 2] & 0xFF) << 8
+                    | (hostData[start + 3] & 0xFF);
+        }
+        return (hostData[start] & 0xFF) << 8 | (hostData[start + 1] & 0xFF);
+    }
+
+    /**
+     * @return the number of blocks read so far
+     */
+    public long getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * Since blocks are read as a whole, this is always a block boundary.
+     *
+     * @return the number of bytes of the stream read so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.legstar.avro.cob2avro.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.Schema;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.type.composite.CobolComplexType;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+/**
+ * Reads a mainframe byte stream of variable size spanned records (RECFM=VBS).
+ * <p/>
+ * A record is made of one or more segments, each starting with an SDW
+ * (Segment Descriptor Word). The first 2 bytes of the SDW are the segment
+ * length, SDW included, and the third byte tells if the segment is a
+ * complete record or the first, a middle or the last segment of a record.
+ * <p/>
+ * Segments are read directly at their place in the record buffer so the
+ * record is reassembled without moving bytes around.
+ * <p/>
+ * To position the stream at the start of a record, use
+ * {@link #seekRecordStart(com.legstar.base.finder.CobolTypeFinder)} with a
+ * {@link SdwCobolTypeFinder}.
+ *
+ * @param <D>
+ */
+public class ZosVbsDatumReader<D> extends AbstractZosDatumReader < D > {
+
+    public static final int SDW_LEN = 4;
+
+    /** A segment, SDW included, never exceeds the maximum block size. */
+    public static final int MAX_SEGMENT_LEN = 32760;
+
+    /** Segment control codes (low order bits of the SDW third byte). */
+    public static final int COMPLETE_SEGMENT = 0;
+    public static final int FIRST_SEGMENT = 1;
+    public static final int LAST_SEGMENT = 2;
+    public static final int MIDDLE_SEGMENT = 3;
+
+    /** Receives the SDW of segments that follow the first one. */
+    private final byte[] sdw = new byte[SDW_LEN];
+
+    /** Total size of the input stream. */
+    private final long length;
+
+    public ZosVbsDatumReader(InputStream inStream, long length,
+            CobolComplexType cobolType, Schema schema) throws IOException {
+        this(inStream, length, new EbcdicCobolContext(), cobolType, null,
+                schema);
+    }
+
+    public ZosVbsDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema)
+            throws IOException {
+        this(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, true);
+    }
+
+    public ZosVbsDatumReader(InputStream inStream, long length,
+            CobolContext cobolContext, CobolComplexType cobolType,
+            FromCobolChoiceStrategy customChoiceStrategy, Schema schema,
+            boolean specific) throws IOException {
+        super(inStream, length, cobolContext, cobolType, customChoiceStrategy,
+                schema, specific);
+        this.length = length;
+    }
+
+    public ZosVbsDatumReader(InputStream inStream, long length,
+            AbstractCob2ObjectConverter < ? extends D > converter)
+            throws IOException {
+        super(inStream, length, converter);
+        this.length = length;
+    }
+
+    /**
+     * The converter only accounts for the first SDW and the record data so
+     * the bytes read off the stream, which include all SDWs, tell whether
+     * there are records left.
+     */
+    @Override
+    public boolean hasNext() {
+        return length - getBytesRead() > 0;
+    }
+
+    /**
+     * Reads a full record from the stream, segment by segment.
+     * <p/>
+     * The first SDW occupies the prefix of the buffer, segments data follow
+     * one another. A positive bytesPrefetched signals that the first SDW and
+     * part of the first segment were already read.
+     *
+     * @param hostBytes a buffer where to read the record
+     * @return the status of the read operation, including the number of bytes
+     *         read from the stream
+     * @throws IOException if segments are missing or out of sequence
+     */
+    public ReadRecordStatus readRecord(byte[] hostBytes, int processed)
+            throws IOException {
+        int bytesRead = 0;
+        int prefetched = getBytesPrefetched();
+        if (prefetched == 0) {
+            bytesRead = readFully(hostBytes, 0, SDW_LEN);
+            prefetched = SDW_LEN;
+        }
+        int control = getSegmentControl(hostBytes, 0);
+        if (control != COMPLETE_SEGMENT && control != FIRST_SEGMENT) {
+            throw new IOException("Record does not start with a first segment");
+        }
+        int end = SDW_LEN
+                + getSegmentLen(hostBytes, 0, hostBytes.length - SDW_LEN);
+        bytesRead += readFully(hostBytes, prefetched, end - prefetched);
+        setBytesPrefetched(0);
+
+        while (control != COMPLETE_SEGMENT && control != LAST_SEGMENT) {
+            bytesRead += readFully(sdw, 0, SDW_LEN);
+            control = getSegmentControl(sdw, 0);
+            if (control != MIDDLE_SEGMENT && control != LAST_SEGMENT) {
+                throw new IOException("Segment out of sequence after "
+                        + (end - SDW_LEN) + " bytes of record");
+            }
+            int segmentLen = getSegmentLen(sdw, 0, hostBytes.length - end);
+            bytesRead += readFully(hostBytes, end, segmentLen);
+            end += segmentLen;
+        }
+        return new ReadRecordStatus(end - SDW_LEN, bytesRead);
+    }
+
+    /**
+     * @param hostData the mainframe data
+     * @param start where the SDW starts
+     * @return the segment control code
+     */
+    public static int getSegmentControl(byte[] hostData, int start) {
+        return hostData[start + 2] & 0x03;
+    }
+
+    /**
+     * Only an SDW for a complete record or for the first segment of a record
+     * can start a record.
+     */
+    @Override
+    protected boolean isRecordStartCandidate(byte[] hostData, int start,
+            int end) {
+        return end - start < SDW_LEN || isFirstSegmentSdw(hostData, start);
+    }
+
+    /**
+     * Segments that follow a record start can be of any kind, the SDW must
+     * only be plausible.
+     */
+    @Override
+    protected int nextDescriptorOffset(byte[] hostData, int start) {
+        int len = ZosVarRdwDatumReader.getRawRdw(hostData, start, start
+                + SDW_LEN);
+        if (!isValidSegmentLen(len) || (hostData[start + 2] & 0xFC) != 0
+                || hostData[start + 3] != 0) {
+            return -1;
+        }
+        return start + len;
+    }
+
+    /**
+     * Checks that 4 bytes look like the SDW of a complete record or of the
+     * first segment of a record.
+     * 
+     * @param hostData the mainframe data
+     * @param start where the SDW starts
+     * @return true if the SDW is plausible
+     */
+    public static boolean isFirstSegmentSdw(byte[] hostData, int start) {
+        int len = (hostData[start] & 0xFF) << 8 | (hostData[start + 1] & 0xFF);
+        return isValidSegmentLen(len) && (hostData[start + 2] & 0xFE) == 0
+                && hostData[start + 3] == 0;
+    }
+
+    /**
+     * Segments hold at least one byte of data.
+     * 
+     * @param len the segment length held in an SDW, SDW included
+     * @return true if the length is valid
+     */
+    private static boolean isValidSegmentLen(int len) {
+        return len > SDW_LEN && len <= MAX_SEGMENT_LEN;
+    }
+
+    /**
+     * @param hostData the mainframe data
+     * @param start where the SDW starts
+     * @param maxLen the maximum number of bytes that the segment can hold
+     * @return the number of bytes in the segment, without the SDW
+     * @throws IOException if the SDW is invalid
+     */
+    private static int getSegmentLen(byte[] hostData, int start, int maxLen)
+            throws IOException {
+        int len = ZosVarRdwDatumReader.getRawRdw(hostData, start,
+                hostData.length);
+        if (!isValidSegmentLen(len) || len - SDW_LEN > maxLen) {
+            throw new IOException("Invalid segment descriptor word");
+        }
+        return len - SDW_LEN;
+    }
+
+    public int hostBytesPrefixLen() {
+        return SDW_LEN;
+    }
+
+}
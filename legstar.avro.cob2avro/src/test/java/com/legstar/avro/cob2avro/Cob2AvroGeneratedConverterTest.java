@@ -0,0 +1,170 @@
+package com.legstar.avro.cob2avro;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import legstar.test.avro.alltypes.AlltypesRecord;
+import legstar.test.avro.alltypes.Cob2AlltypesRecordConverter;
+import legstar.test.avro.ardo01.Ardo01Record;
+import legstar.test.avro.ardo01.Cob2Ardo01RecordConverter;
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CustomerData;
+import legstar.test.avro.flat01.Cob2Flat01RecordConverter;
+import legstar.test.avro.flat01.Flat01Record;
+import legstar.test.avro.optl01.Cob2Optl01RecordConverter;
+import legstar.test.avro.optl01.Optl01Record;
+import legstar.test.avro.rdef01.Cob2Rdef01RecordConverter;
+import legstar.test.avro.rdef01.Rdef01Record;
+import legstar.test.avro.rdef02.Cob2Rdef02RecordConverter;
+import legstar.test.avro.rdef02.Rdef02Record;
+import legstar.test.avro.stru04.Cob2Stru04RecordConverter;
+import legstar.test.avro.stru04.Stru04Record;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.utils.HexUtils;
+import com.legstar.base.visitor.FromCobolChoiceStrategy;
+
+public class Cob2AvroGeneratedConverterTest extends AbstractTest {
+
+    private static final boolean CREATE_REFERENCE = false;
+
+    @Before
+    public void setUp() {
+        setCreateReferences(CREATE_REFERENCE);
+    }
+
+    @Test
+    public void testConvertFlat01() {
+        Cob2Flat01RecordConverter converter = new Cob2Flat01RecordConverter.Builder()
+                .build();
+        FromHostResult < Flat01Record > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F1F0F4F3D5C1D4C5F0F0F0F0F4F3404040404040404040400215000F"));
+        assertEquals(30, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertStru04() {
+        Cob2Stru04RecordConverter converter = new Cob2Stru04RecordConverter.Builder()
+                .build();
+        FromHostResult < Stru04Record > result = converter.convert(
+                        HexUtils.decodeHex("0190000F00090006C2C5C5C2C4C40001900FC2C2C5C4C5C30000950F0003000000020013000CC2C4C2C1C5C40003800FC1C5C2C2C4C10001900F000600000005001C0013C1C5C2C5C1C30005700FC4C2C3C3C3C20002850F0009000000080023750F"));
+        assertEquals(98, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertAlltypes() {
+        Cob2AlltypesRecordConverter converter = new Cob2AlltypesRecordConverter.Builder()
+                .build();
+        FromHostResult < AlltypesRecord > result = converter.convert(
+                HexUtils.decodeHex("c1c2c3c4" + "01020000" + "fc5c" + "000f"
+                        + "0001343a" + "000001c4" + "0000000000004532456d"
+                        + "0000000000007800056f"
+                        + "0000000000000000087554907654321c"
+                        + "0000000000000000000564678008321f" + "000007545f"
+                        + "45543ae9" + "361677a4590fab60" + "c1c2c3c4"
+                        + "c1c2c3c4" + "40404040" + "40404040" + "fc5c"
+                        + "fc5c" + "000f" + "000f" + "0001343a" + "0001343a"
+                        + "000001c4" + "000001c4" + "0000000000004532456d"
+                        + "0000000000004532456d" + "0000000000007800056f"
+                        + "0000000000007800056f"
+                        + "0000000000000000087554907654321c"
+                        + "0000000000000000087554907654321c"
+                        + "0000000000000000000564678008321f"
+                        + "0000000000000000000564678008321f" + "000007545f"
+                        + "000007545f" + "45543ae9" + "45543ae9"
+                        + "361677a4590fab60" + "361677a4590fab60"));
+        assertEquals(267, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdat() {
+        Cob2CustomerDataConverter converter = new Cob2CustomerDataConverter.Builder()
+                .build();
+        FromHostResult < CustomerData > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef01Strategy() {
+
+        FromCobolChoiceStrategy customChoiceStrategy = new FromCobolChoiceStrategy() {
+
+            public CobolType choose(String choiceFieldName,
+                    CobolChoiceType choiceType,
+                    Map < String, Object > variables, byte[] hostData,
+                    int start, int length) {
+                int select = ((Number) variables.get("comSelect"))
+                        .intValue();
+                switch (select) {
+                case 0:
+                    return choiceType.getAlternatives().get(
+                            "ComDetail1");
+                case 1:
+                    return choiceType.getAlternatives().get(
+                            "ComDetail2");
+                default:
+                    return null;
+                }
+            }
+
+            public Set < String > getVariableNames() {
+                Set < String > variables = new HashSet < String >();
+                variables.add("comSelect");
+                return variables;
+            }
+
+        };
+
+        Cob2Rdef01RecordConverter converter = new Cob2Rdef01RecordConverter.Builder()
+                .customChoiceStrategy(customChoiceStrategy)
+                .build();
+        FromHostResult < Rdef01Record > result = converter.convert(
+                        HexUtils.decodeHex("00010250000F40404040404000010260000F404040404040"));
+        assertEquals(6, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef02Alt() {
+        Cob2Rdef02RecordConverter converter = new Cob2Rdef02RecordConverter.Builder()
+                .build();
+        FromHostResult < Rdef02Record > result = converter.convert(
+                        HexUtils.decodeHex("00001361588C0000D5C1D4C5F0F0F0F0F0F50261588F"));
+        assertEquals(22, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertArdo01FullVariableArray() {
+        Cob2Ardo01RecordConverter converter = new Cob2Ardo01RecordConverter.Builder()
+                .build();
+        FromHostResult < Ardo01Record > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F6F2D5C1D4C5F0F0F0F0F6F2404040404040404040400005000000000023556C000000000023656C000000000023756C000000000023856C000000000023956C"));
+        assertEquals(68, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertOptl01StructAbsentStringPresent() {
+        Cob2Optl01RecordConverter converter = new Cob2Optl01RecordConverter.Builder()
+                .build();
+        FromHostResult < Optl01Record > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D1D2D3"));
+        assertEquals(38, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+}
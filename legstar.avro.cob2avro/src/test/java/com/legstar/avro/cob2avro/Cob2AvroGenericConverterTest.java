@@ -2,11 +2,15 @@ package com.legstar.avro.cob2avro;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -37,6 +41,27 @@ public class Cob2AvroGenericConverterTest extends AbstractTest {
         check(avro2Json(result.getValue()), "result.json");
     }
 
+    @Test
+    public void testConvertFlat01SharedTypeEqualSchemas() {
+        legstar.test.avro.flat01.CobolFlat01Record cobolType = new legstar.test.avro.flat01.CobolFlat01Record();
+        byte[] hostData = HexUtils
+                .decodeHex("F0F0F1F0F4F3D5C1D4C5F0F0F0F0F4F3404040404040404040400215000F");
+        Schema schema1 = getSchema("flat01");
+        Schema schema2 = getSchema("flat01");
+        assertEquals(schema1, schema2);
+        assertNotSame(schema1, schema2);
+
+        Cob2AvroGenericConverter converter1 = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(cobolType).schema(schema1).build();
+        Cob2AvroGenericConverter converter2 = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(cobolType).schema(schema2).build();
+        GenericRecord record1 = converter1.convert(hostData).getValue();
+        GenericRecord record2 = converter2.convert(hostData).getValue();
+        assertSame(schema1, record1.getSchema());
+        assertSame(schema2, record2.getSchema());
+        assertEquals(avro2Json(record1), avro2Json(record2));
+    }
+
     @Test
     public void testConvertRdef01Strategy() {
  
@@ -79,5 +104,408 @@ public class Cob2AvroGenericConverterTest extends AbstractTest {
         check(avro2Json(result.getValue()), "result.json");
     }
 
+    @Test
+    public void testConvertRdef01StrategyWalkPlan() {
+        byte[] hostData = HexUtils
+                .decodeHex("00010250000F40404040404000010260000F404040404040");
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef01.CobolRdef01Record())
+                .schema(getSchema("rdef01"))
+                .customChoiceStrategy(new Rdef01ChoiceStrategy())
+                .build();
+        Cob2AvroGenericConverter walkPlanConverter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef01.CobolRdef01Record())
+                .schema(getSchema("rdef01"))
+                .customChoiceStrategy(new Rdef01ChoiceStrategy())
+                .walkPlan(true)
+                .build();
+        FromHostResult < GenericRecord > result = walkPlanConverter
+                .convert(hostData);
+        assertEquals(6, result.getBytesProcessed());
+        assertEquals(converter.convert(hostData).getValue(), result.getValue());
+    }
+
+    @Test
+    public void testConvertCustdatWalkPlan() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .walkPlan(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertArdo01WalkPlan() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.ardo01.CobolArdo01Record())
+                .schema(getSchema("ardo01"))
+                .walkPlan(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F6F2D5C1D4C5F0F0F0F0F6F2404040404040404040400005000000000023556C000000000023656C000000000023756C000000000023856C000000000023956C"));
+        assertEquals(68, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef03WalkPlan() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef03.CobolRdef03Record())
+                .schema(getSchema("rdef03"))
+                .walkPlan(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("00010250000F"));
+        assertEquals(6, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef01StrategyCompiled() {
+        byte[] hostData = HexUtils
+                .decodeHex("00010250000F40404040404000010260000F404040404040");
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef01.CobolRdef01Record())
+                .schema(getSchema("rdef01"))
+                .customChoiceStrategy(new Rdef01ChoiceStrategy())
+                .build();
+        Cob2AvroGenericConverter compiledConverter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef01.CobolRdef01Record())
+                .schema(getSchema("rdef01"))
+                .customChoiceStrategy(new Rdef01ChoiceStrategy())
+                .compiled(true)
+                .build();
+        FromHostResult < GenericRecord > result = compiledConverter
+                .convert(hostData);
+        assertEquals(6, result.getBytesProcessed());
+        assertEquals(converter.convert(hostData).getValue(), result.getValue());
+    }
+
+    @Test
+    public void testConvertCustdatCompiled() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .compiled(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatCompiledSpecificData() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .specificData(true)
+                .compiled(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        assertTrue(result.getValue() instanceof legstar.test.avro.custdat.CustomerData);
+        assertTrue(((legstar.test.avro.custdat.CustomerData) result.getValue())
+                .getTransactions().getTransaction().get(0) instanceof legstar.test.avro.custdat.Transaction);
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertArdo01Compiled() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.ardo01.CobolArdo01Record())
+                .schema(getSchema("ardo01"))
+                .compiled(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F6F2D5C1D4C5F0F0F0F0F6F2404040404040404040400005000000000023556C000000000023656C000000000023756C000000000023856C000000000023956C"));
+        assertEquals(68, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef03Compiled() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef03.CobolRdef03Record())
+                .schema(getSchema("rdef03"))
+                .compiled(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("00010250000F"));
+        assertEquals(6, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatProjection() {
+        Schema readerSchema = new Schema.Parser()
+                .parse("{\"type\":\"record\",\"name\":\"CustomerData\",\"namespace\":\"legstar.test.avro.custdat\",\"fields\":["
+                        + "{\"name\":\"customerId\",\"type\":\"long\"},"
+                        + "{\"name\":\"transactions\",\"type\":{\"type\":\"record\",\"name\":\"Transactions\",\"fields\":["
+                        + "{\"name\":\"transaction\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Transaction\",\"fields\":["
+                        + "{\"name\":\"transactionAmount\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":15,\"scale\":2}}"
+                        + "]}}}]}}]}");
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .readerSchema(readerSchema)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        assertEquals(readerSchema, result.getValue().getSchema());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertRdef01StrategyProjection() {
+        Schema readerSchema = new Schema.Parser()
+                .parse("{\"type\":\"record\",\"name\":\"Rdef01Record\",\"namespace\":\"legstar.test.avro.rdef01\",\"fields\":["
+                        + "{\"name\":\"comDetail1Choice\",\"type\":["
+                        + "{\"type\":\"record\",\"name\":\"ComDetail1\",\"fields\":[{\"name\":\"comName\",\"type\":\"string\"}]},"
+                        + "{\"type\":\"record\",\"name\":\"ComDetail2\",\"fields\":[{\"name\":\"comAmount\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":7,\"scale\":2}}]}"
+                        + "]}]}");
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.rdef01.CobolRdef01Record())
+                .schema(getSchema("rdef01"))
+                .readerSchema(readerSchema)
+                .customChoiceStrategy(new Rdef01ChoiceStrategy())
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("00010250000F40404040404000010260000F404040404040"));
+        assertEquals(6, result.getBytesProcessed());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatLazy() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .build();
+        FromHostResult < GenericRecord > result = converter.convertLazy(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        LazyHostRecord record = (LazyHostRecord) result.getValue();
+        assertEquals(1L, record.get("customerId"));
+        assertTrue(record.isDecoded(0));
+        assertFalse(record.isDecoded(1));
+        assertFalse(record.isDecoded(2));
+        check(avro2Json(record), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatLazyEquals() {
+        byte[] hostData = HexUtils
+                .decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C");
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .build();
+        GenericRecord eager = converter.convert(hostData).getValue();
+        GenericRecord lazy = converter.convertLazy(hostData).getValue();
+        assertEquals(lazy, eager);
+        assertEquals(eager, lazy);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+        assertEquals(lazy, converter.convertLazy(hostData).getValue());
+        assertEquals(0, ((GenericData.Record) eager)
+                .compareTo((GenericData.Record) lazy));
+
+        lazy.put("customerId", 2L);
+        assertFalse(lazy.equals(eager));
+        assertFalse(eager.equals(lazy));
+    }
+
+    @Test
+    public void testConvertCustdatUtf8() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .utf8(true)
+                .build();
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        GenericRecord personalData = (GenericRecord) result.getValue().get(
+                "personalData");
+        assertEquals(new Utf8("JOHN SMITH"), personalData.get("customerName"));
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatUtf8Reuse() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .walkPlan(true)
+                .utf8(true)
+                .build();
+        GenericRecord record = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"))
+                .getValue();
+        Utf8 customerName = (Utf8) ((GenericRecord) record.get("personalData"))
+                .get("customerName");
+        assertEquals("JOHN SMITH", customerName.toString());
+
+        FromHostResult < GenericRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F2D1C9D44040404040404040404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000000"),
+                        0, 58, record);
+        assertSame(record, result.getValue());
+        assertSame(customerName, ((GenericRecord) record.get("personalData"))
+                .get("customerName"));
+        assertEquals("JIM", customerName.toString());
+        assertEquals(2L, record.get("customerId"));
+    }
+
+    @Test
+    public void testConvertCustdatByteBuffer() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .walkPlan(true)
+                .build();
+        byte[] hostData = HexUtils.decodeHex("FFFFF0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CFFFF");
+        GenericRecord expected = converter.convert(hostData, 2, 110)
+                .getValue();
+
+        // Heap buffer slice
+        ByteBuffer heap = ByteBuffer.wrap(hostData);
+        heap.position(1);
+        heap = heap.slice();
+        heap.position(1);
+        heap.limit(109);
+        FromHostResult < GenericRecord > result = converter.convert(heap);
+        assertEquals(108, result.getBytesProcessed());
+        assertEquals(109, heap.position());
+        assertEquals(expected, result.getValue());
+
+        // Direct buffer
+        ByteBuffer direct = ByteBuffer.allocateDirect(hostData.length);
+        direct.put(hostData);
+        direct.position(2);
+        direct.limit(110);
+        result = converter.convert(direct, expected);
+        assertEquals(108, result.getBytesProcessed());
+        assertEquals(110, direct.position());
+        assertSame(expected, result.getValue());
+        check(avro2Json(result.getValue()), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatCachedStrings() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .cacheStrings("personalData.customerName", 10)
+                .build();
+        byte[] hostData = HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C");
+        GenericRecord record1 = converter.convert(hostData).getValue();
+        GenericRecord record2 = converter.convert(hostData).getValue();
+        assertNotSame(record1, record2);
+        Object customerName = ((GenericRecord) record1.get("personalData"))
+                .get("customerName");
+        assertEquals("JOHN SMITH", customerName);
+        assertSame(customerName, ((GenericRecord) record2.get("personalData"))
+                .get("customerName"));
+        assertNotSame(((GenericRecord) record1.get("personalData"))
+                .get("customerAddress"), ((GenericRecord) record2
+                .get("personalData")).get("customerAddress"));
+        check(avro2Json(record2), "result.json");
+    }
+
+    @Test
+    public void testConvertCustdatCachedUtf8Reuse() {
+        Cob2AvroGenericConverter converter = new Cob2AvroGenericConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .walkPlan(true)
+                .utf8(true)
+                .cacheStrings("personalData.customerName", 10)
+                .build();
+        byte[] hostData = HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C");
+        GenericRecord record = converter.convert(hostData).getValue();
+        Utf8 customerName = (Utf8) ((GenericRecord) record.get("personalData"))
+                .get("customerName");
+        assertEquals("JOHN SMITH", customerName.toString());
+
+        // Cached values are shared so they are not refilled
+        converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F2D1C9D44040404040404040404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000000"),
+                        0, 58, record);
+        assertEquals("JIM", ((GenericRecord) record.get("personalData")).get(
+                "customerName").toString());
+        assertEquals("JOHN SMITH", customerName.toString());
+
+        converter.convert(hostData, 0, hostData.length, record);
+        assertSame(customerName, ((GenericRecord) record.get("personalData"))
+                .get("customerName"));
+    }
+
+    @Test
+    public void testCachedStringsInvalidPaths() {
+        try {
+            new Cob2AvroGenericConverter.Builder()
+                    .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                    .schema(getSchema("custdat"))
+                    .cacheStrings("personalData.customerAge", 10).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("No field named customerAge in personalData.customerAge",
+                    e.getMessage());
+        }
+        try {
+            new Cob2AvroGenericConverter.Builder()
+                    .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                    .schema(getSchema("custdat"))
+                    .cacheStrings("customerId", 10).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field customerId is not an alphanumeric field",
+                    e.getMessage());
+        }
+        try {
+            new Cob2AvroGenericConverter.Builder()
+                    .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                    .schema(getSchema("custdat"))
+                    .cacheStrings("personalData", 10).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field personalData is not an elementary field",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Selects the alternative based on the comSelect field which is not part
+     * of the projection.
+     */
+    private static class Rdef01ChoiceStrategy implements FromCobolChoiceStrategy {
+
+        public CobolType choose(String choiceFieldName,
+                CobolChoiceType choiceType, Map < String, Object > variables,
+                byte[] hostData, int start, int length) {
+            int select = ((Number) variables.get("comSelect")).intValue();
+            switch (select) {
+            case 0:
+                return choiceType.getAlternatives().get("ComDetail1");
+            case 1:
+                return choiceType.getAlternatives().get("ComDetail2");
+            default:
+                return null;
+            }
+        }
+
+        public Set < String > getVariableNames() {
+            Set < String > variables = new HashSet < String >();
+            variables.add("comSelect");
+            return variables;
+        }
+
+    }
 
 }
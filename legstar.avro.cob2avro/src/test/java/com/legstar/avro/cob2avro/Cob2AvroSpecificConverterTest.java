@@ -79,5 +79,20 @@ public class Cob2AvroSpecificConverterTest extends AbstractTest {
         check(avro2Json(result.getValue()), "result.json");
     }
 
+    @Test
+    public void testConvertCustdatSpecificData() {
+        Cob2AvroSpecificConverter converter = new Cob2AvroSpecificConverter.Builder()
+                .cobolComplexType(new legstar.test.avro.custdat.CobolCustomerData())
+                .schema(getSchema("custdat"))
+                .specificData(true)
+                .build();
+        FromHostResult < SpecificRecord > result = converter.convert(
+                        HexUtils.decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C"));
+        assertEquals(108, result.getBytesProcessed());
+        assertTrue(result.getValue() instanceof legstar.test.avro.custdat.CustomerData);
+        assertTrue(((legstar.test.avro.custdat.CustomerData) result.getValue())
+                .getTransactions().getTransaction().get(0) instanceof legstar.test.avro.custdat.Transaction);
+        check(avro2Json(result.getValue()), "result.json");
+    }
 
 }
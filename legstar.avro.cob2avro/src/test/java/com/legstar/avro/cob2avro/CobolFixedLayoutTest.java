@@ -0,0 +1,155 @@
+package com.legstar.avro.cob2avro;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.utils.HexUtils;
+
+public class CobolFixedLayoutTest {
+
+    private CobolContext cobolContext;
+
+    @Before
+    public void setUp() {
+        cobolContext = new EbcdicCobolContext();
+    }
+
+    @Test
+    public void testFlat01() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.flat01.CobolFlat01Record());
+        assertTrue(layout.isFixed());
+        byte[] hostData = HexUtils
+                .decodeHex("F0F0F1F0F4F3D5C1D4C5F0F0F0F0F4F3404040404040404040400215000F");
+        assertEquals(1043L, layout.getLong(hostData, "comNumber"));
+        assertEquals("NAME000043", layout.getString(hostData, "comName"));
+        assertEquals(new BigDecimal("2150.00"),
+                layout.getDecimal(hostData, "comAmount"));
+        assertEquals(26, layout.getField("comAmount").getOffset());
+        assertEquals(4, layout.getField("comAmount").getBytesLen());
+    }
+
+    @Test
+    public void testFlat01WithStart() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.flat01.CobolFlat01Record());
+        byte[] hostData = HexUtils
+                .decodeHex("0000F0F0F1F0F4F3D5C1D4C5F0F0F0F0F4F3404040404040404040400215000F");
+        assertEquals(1043L, layout.getField("comNumber").getLong(hostData, 2));
+        assertEquals(new BigDecimal("2150.00"), layout.getField("comAmount")
+                .getDecimal(hostData, 2));
+    }
+
+    @Test
+    public void testFlat01LongOfScaledField() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.flat01.CobolFlat01Record());
+        byte[] hostData = HexUtils
+                .decodeHex("F0F0F1F0F4F3D5C1D4C5F0F0F0F0F4F3404040404040404040400215000F");
+        try {
+            layout.getLong(hostData, "comAmount");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field COM-AMOUNT is not an integer", e.getMessage());
+        }
+        try {
+            layout.getLong(hostData, "comName");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field COM-NAME is not an integer", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStru04Arrays() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.stru04.CobolStru04Record());
+        assertTrue(layout.isFixed());
+        byte[] hostData = HexUtils
+                .decodeHex("0190000F00090006C2C5C5C2C4C40001900FC2C2C5C4C5C30000950F0003000000020013000CC2C4C2C1C5C40003800FC1C5C2C2C4C10001900F000600000005001C0013C1C5C2C5C1C30005700FC4C2C3C3C3C20002850F0009000000080023750F");
+        assertEquals(new BigDecimal("1900.00"),
+                layout.getDecimal(hostData, "comItem1"));
+        assertEquals(9L, layout.getLong(hostData, "comArray1[0].comItem2"));
+        assertEquals("A", layout.getString(hostData,
+                "comArray1[1].comGroup1.comArray2[0].comArray3[2]"));
+        assertEquals(8L, layout.getLong(hostData, "comArray1[2].comItem7"));
+        assertEquals(new BigDecimal("237.50"),
+                layout.getDecimal(hostData, "comItem8"));
+    }
+
+    @Test
+    public void testRdef02Alternatives() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.rdef02.CobolRdef02Record());
+        assertTrue(layout.isFixed());
+        byte[] hostData = HexUtils
+                .decodeHex("00001361588C0000D5C1D4C5F0F0F0F0F0F50261588F");
+        assertEquals(1361588L, layout.getLong(hostData,
+                "rdef02Key.rdef02Item1Choice.rdef02Item1"));
+        assertEquals("NAME000005", layout.getString(hostData,
+                "comDetail1Choice.comDetail1.comName"));
+        assertEquals(layout.getField("comDetail1Choice.comDetail1.comName")
+                .getOffset(),
+                layout.getField("comDetail1Choice.comDetail2.comAmount")
+                        .getOffset());
+        assertEquals(new BigDecimal("2615.88"),
+                layout.getDecimal(hostData, "comItem3"));
+    }
+
+    @Test
+    public void testCustdatFixedPrefix() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.custdat.CobolCustomerData());
+        assertFalse(layout.isFixed());
+        byte[] hostData = HexUtils
+                .decodeHex("F0F0F0F0F0F1D1D6C8D540E2D4C9E3C840404040404040404040C3C1D4C2D9C9C4C7C540E4D5C9E5C5D9E2C9E3E8F4F4F0F1F2F5F6F500000002F1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5CF1F061F0F461F1F1000000000023556C5C5C5C5C5C5C5C5C5C");
+        assertEquals(1L, layout.getLong(hostData, "customerId"));
+        assertEquals("JOHN SMITH",
+                layout.getString(hostData, "personalData.customerName"));
+        assertEquals(2L,
+                layout.getLong(hostData, "transactions.transactionNbr"));
+        try {
+            layout.getField("transactions.transaction[0].transactionAmount");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(
+                    "Field transactions.transaction[0].transactionAmount is part of a variable size array",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        CobolFixedLayout layout = new CobolFixedLayout(cobolContext,
+                new legstar.test.avro.stru04.CobolStru04Record());
+        try {
+            layout.getField("comItem9");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("No field named comItem9 in comItem9", e.getMessage());
+        }
+        try {
+            layout.getField("comArray1[3].comItem2");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(
+                    "Missing or invalid index for array comArray1 in comArray1[3].comItem2",
+                    e.getMessage());
+        }
+        try {
+            layout.getField("comArray1[0].comGroup1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(
+                    "Field comArray1[0].comGroup1 is not an elementary field",
+                    e.getMessage());
+        }
+    }
+
+}
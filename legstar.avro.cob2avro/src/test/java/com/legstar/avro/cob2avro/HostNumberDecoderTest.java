@@ -0,0 +1,192 @@
+package com.legstar.avro.cob2avro;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.legstar.base.context.CobolContext;
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.type.primitive.CobolBinaryType;
+import com.legstar.base.type.primitive.CobolPackedDecimalType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.type.primitive.CobolZonedDecimalType;
+import com.legstar.base.utils.HexUtils;
+import com.legstar.base.visitor.DefaultFromCobolChoiceStrategy;
+
+public class HostNumberDecoderTest {
+
+    private CobolContext cobolContext;
+
+    @Before
+    public void setUp() {
+        cobolContext = new EbcdicCobolContext();
+    }
+
+    @Test
+    public void testQualifyingTypes() {
+        assertNotNull(HostNumberDecoder.create(newDecimalType(true, 15, 2)));
+        assertNotNull(HostNumberDecoder.create(newDecimalType(true, 18, 0)));
+        assertNull(HostNumberDecoder.create(newDecimalType(true, 19, 2)));
+        assertNotNull(HostNumberDecoder
+                .create(new CobolPackedDecimalType.Builder < Long >(Long.class)
+                        .cobolName("COM-ITEM").totalDigits(9).build()));
+        assertNull(HostNumberDecoder
+                .create(new CobolPackedDecimalType.Builder < Long >(Long.class)
+                        .cobolName("COM-ITEM").totalDigits(9)
+                        .fractionDigits(2).build()));
+        assertNull(HostNumberDecoder.create(new CobolZonedDecimalType.Builder < BigInteger >(
+                BigInteger.class).cobolName("COM-ITEM").totalDigits(19)
+                .build()));
+    }
+
+    @Test
+    public void testDecode() {
+        HostNumberDecoder decoder = HostNumberDecoder
+                .create(newDecimalType(true, 15, 2));
+        assertEquals(8, decoder.getBytesLen());
+        assertEquals(23556L, decode(decoder, "000000000023556C"));
+        assertEquals(-23556L, decode(decoder, "000000000023556D"));
+        assertEquals(0L, decode(decoder, "000000000000000D"));
+        assertEquals(999999999999999L, decode(decoder, "999999999999999C"));
+        assertEquals(HostNumberDecoder.INVALID,
+                decode(decoder, "00000000002355AC"));
+        assertEquals(HostNumberDecoder.INVALID,
+                decode(decoder, "000000000023556F"));
+
+        decoder = HostNumberDecoder.create(newDecimalType(false, 7, 2));
+        assertEquals(215000L, decode(decoder, "0215000F"));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "0215000C"));
+    }
+
+    @Test
+    public void testDecodeOutOfRange() {
+        // 4 digits occupy 3 bytes, which have room for 5 digits
+        HostNumberDecoder decoder = HostNumberDecoder
+                .create(newDecimalType(true, 4, 0));
+        assertEquals(9999L, decode(decoder, "09999C"));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "10000C"));
+
+        decoder = HostNumberDecoder.create(newDecimalType(true, 18, 0));
+        assertEquals(999999999999999999L,
+                decode(decoder, "0999999999999999999C"));
+        assertEquals(HostNumberDecoder.INVALID,
+                decode(decoder, "1000000000000000000C"));
+    }
+
+    @Test
+    public void testDecodeZoned() {
+        HostNumberDecoder decoder = HostNumberDecoder
+                .create(new CobolZonedDecimalType.Builder < Long >(Long.class)
+                        .cobolName("CUSTOMER-ID").totalDigits(6).build());
+        assertFalse(decoder.isDecimal());
+        assertEquals(1043L, decode(decoder, "F0F0F1F0F4F3"));
+        assertEquals(Long.valueOf(1043L), decoder.toAvroValue(1043L, null));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "F0F0F1F0F4FA"));
+
+        decoder = HostNumberDecoder
+                .create(new CobolZonedDecimalType.Builder < Integer >(
+                        Integer.class).cobolName("COM-ITEM").signed(true)
+                        .totalDigits(4).build());
+        assertEquals(-1234L, decode(decoder, "F1F2F3D4"));
+        assertEquals(1234L, decode(decoder, "F1F2F3C4"));
+        assertEquals(1234L, decode(decoder, "F1F2F3F4"));
+        assertEquals(Integer.valueOf(-1234), decoder.toAvroValue(-1234L, null));
+
+        decoder = HostNumberDecoder
+                .create(new CobolZonedDecimalType.Builder < Integer >(
+                        Integer.class).cobolName("COM-ITEM").signed(true)
+                        .signLeading(true).signSeparate(true).totalDigits(4)
+                        .build());
+        assertEquals(-1234L, decode(decoder, "60F1F2F3F4"));
+        assertEquals(1234L, decode(decoder, "4EF1F2F3F4"));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "F0F1F2F3F4"));
+    }
+
+    @Test
+    public void testDecodeBinary() {
+        HostNumberDecoder decoder = HostNumberDecoder
+                .create(new CobolBinaryType.Builder < Integer >(Integer.class)
+                        .cobolName("COM-ITEM").signed(true).totalDigits(4)
+                        .build());
+        assertEquals(2, decoder.getBytesLen());
+        assertEquals(9L, decode(decoder, "0009"));
+        assertEquals(-9L, decode(decoder, "FFF7"));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "7FFF"));
+
+        decoder = HostNumberDecoder
+                .create(new CobolBinaryType.Builder < Long >(Long.class)
+                        .cobolName("TRANSACTION-NBR").totalDigits(9).build());
+        assertEquals(4, decoder.getBytesLen());
+        assertEquals(2L, decode(decoder, "00000002"));
+        assertEquals(HostNumberDecoder.INVALID, decode(decoder, "FFFFFFFF"));
+        assertEquals(Long.valueOf(2L), decoder.toJavaValue(2L));
+
+        decoder = HostNumberDecoder
+                .create(new CobolBinaryType.Builder < BigInteger >(
+                        BigInteger.class).cobolName("COM-ITEM")
+                        .totalDigits(18).build());
+        assertEquals(8, decoder.getBytesLen());
+        assertEquals(999999999999999999L,
+                decode(decoder, "0DE0B6B3A763FFFF"));
+        assertEquals(HostNumberDecoder.INVALID,
+                decode(decoder, "FFFFFFFFFFFFFFFF"));
+        assertEquals(BigInteger.valueOf(5L), decoder.toJavaValue(5L));
+        assertEquals(Long.valueOf(5L), decoder.toAvroValue(5L, null));
+    }
+
+    @Test
+    public void testCursorFromHostLong() {
+        CobolPrimitiveType < Long > type = new CobolZonedDecimalType.Builder < Long >(
+                Long.class).cobolName("CUSTOMER-ID").totalDigits(6).build();
+        HostCursor cursor = new HostCursor(cobolContext,
+                HexUtils.decodeHex("F0F0F1F0F4F3F0F0F0F0F0F1"), 0, 12, null,
+                new DefaultFromCobolChoiceStrategy(cobolContext), null,
+                HostNumberDecoder.createAll(type));
+        assertEquals(1043L, cursor.fromHostLong(type, "customerId"));
+        assertEquals(Long.valueOf(1L), cursor.fromHost(type, "customerId"));
+        assertEquals(12, cursor.getPos());
+    }
+
+    @Test
+    public void testToByteBuffer() {
+        long[] values = new long[] { 0, 1, -1, 127, 128, -128, -129, 255, 256,
+                32767, 32768, -32769, 23556, -23556, 999999999999999999L,
+                -999999999999999999L, Long.MAX_VALUE, -Long.MAX_VALUE };
+        ByteBuffer reuse = ByteBuffer.allocate(8);
+        for (long value : values) {
+            ByteBuffer expected = ByteBuffer.wrap(BigInteger.valueOf(value)
+                    .toByteArray());
+            assertEquals(expected, DecimalUtils.toByteBuffer(value, null));
+            assertSame(reuse, DecimalUtils.toByteBuffer(value, reuse));
+            assertEquals(expected, reuse);
+            assertEquals(BigDecimal.valueOf(value, 2),
+                    DecimalUtils.toBigDecimal(reuse, 2));
+        }
+    }
+
+    @Test
+    public void testToByteBufferSmallReuse() {
+        ByteBuffer reuse = ByteBuffer.allocate(1);
+        ByteBuffer buffer = DecimalUtils.toByteBuffer(23556L, reuse);
+        assertNotSame(reuse, buffer);
+        assertEquals(ByteBuffer.wrap(new byte[] { 0x5C, 0x04 }), buffer);
+    }
+
+    private long decode(HostNumberDecoder decoder, String hex) {
+        return decoder.decode(cobolContext, HexUtils.decodeHex(hex), 0);
+    }
+
+    private static CobolPackedDecimalType < BigDecimal > newDecimalType(
+            boolean signed, int totalDigits, int fractionDigits) {
+        return new CobolPackedDecimalType.Builder < BigDecimal >(
+                BigDecimal.class).cobolName("COM-AMOUNT").signed(signed)
+                .totalDigits(totalDigits).fractionDigits(fractionDigits)
+                .build();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.legstar.avro.cob2avro;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.legstar.base.utils.HexUtils;
+
+public class HostStringCacheTest {
+
+    @Test
+    public void testGetPut() {
+        HostStringCache cache = new HostStringCache(2, 10);
+        byte[] hostData = HexUtils.decodeHex("C1C2C1C2C3C4");
+        assertNull(cache.get(hostData, 0));
+        cache.put(hostData, 0, "AB");
+        assertEquals("AB", cache.get(hostData, 0));
+        assertEquals("AB", cache.get(hostData, 2));
+        assertNull(cache.get(hostData, 4));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testShortData() {
+        HostStringCache cache = new HostStringCache(4, 10);
+        byte[] hostData = HexUtils.decodeHex("C1C2C3C4C1C2");
+        cache.put(hostData, 4, "AB");
+        assertEquals("AB", cache.get(hostData, 4));
+        assertNull(cache.get(hostData, 0));
+    }
+
+    @Test
+    public void testEviction() {
+        HostStringCache cache = new HostStringCache(1, 2);
+        byte[] hostData = HexUtils.decodeHex("C1C2C3");
+        cache.put(hostData, 0, "A");
+        cache.put(hostData, 1, "B");
+        // A is now the most recently used
+        assertEquals("A", cache.get(hostData, 0));
+        cache.put(hostData, 2, "C");
+        assertEquals(2, cache.size());
+        assertEquals("A", cache.get(hostData, 0));
+        assertNull(cache.get(hostData, 1));
+        assertEquals("C", cache.get(hostData, 2));
+    }
+
+    @Test
+    public void testInvalid() {
+        try {
+            new HostStringCache(33, 10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Fields longer than 32 bytes cannot be cached",
+                    e.getMessage());
+        }
+        try {
+            new HostStringCache(4, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of cached values must be positive",
+                    e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.legstar.avro.cob2avro;
+
+import static org.junit.Assert.*;
+
+import org.apache.avro.util.Utf8;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.type.primitive.CobolStringType;
+import com.legstar.base.utils.HexUtils;
+
+public class HostStringDecoderTest {
+
+    private HostStringDecoder decoder;
+
+    @Before
+    public void setUp() {
+        decoder = new HostStringDecoder(new EbcdicCobolContext());
+    }
+
+    @Test
+    public void testAccepts() {
+        assertTrue(decoder.isTableDriven());
+        assertTrue(HostStringDecoder.accepts(new CobolStringType.Builder < String >(
+                String.class).cobolName("COM-NAME").charNum(10).build()));
+    }
+
+    @Test
+    public void testDecode() {
+        assertEquals(new Utf8("NAME000043"), decode("D5C1D4C5F0F0F0F0F4F3404040"));
+        assertEquals(new Utf8(""), decode("40404040"));
+        assertEquals(new Utf8(""), decode("00000000"));
+        assertEquals(new Utf8("A B"), decode("C100C24000"));
+        assertEquals(new Utf8("  AB"), decode("4040C1C2"));
+    }
+
+    @Test
+    public void testDecodeNonAscii() {
+        // e acute is 2 bytes in UTF-8
+        assertEquals(new Utf8("été"), decode("51A351"));
+        assertEquals(new Utf8("été").getByteLength(),
+                decode("51A351").getByteLength());
+    }
+
+    @Test
+    public void testDecodeShortData() {
+        byte[] hostData = HexUtils.decodeHex("F0F1C1C2");
+        assertEquals(new Utf8("AB"), decoder.decode(hostData, 2, 10, null));
+    }
+
+    @Test
+    public void testDecodeReuse() {
+        Utf8 reuse = decoder.decode(HexUtils.decodeHex("C1C2C3C4"), 0, 4, null);
+        assertEquals("ABCD", reuse.toString());
+        assertSame(reuse,
+                decoder.decode(HexUtils.decodeHex("C5C6"), 0, 2, reuse));
+        assertEquals("EF", reuse.toString());
+        assertSame(reuse, decoder.decode(HexUtils.decodeHex("C1C2C3C4C5C6"),
+                0, 6, reuse));
+        assertEquals("ABCDEF", reuse.toString());
+    }
+
+    private Utf8 decode(String hex) {
+        byte[] hostData = HexUtils.decodeHex(hex);
+        return decoder.decode(hostData, 0, hostData.length, null);
+    }
+
+}
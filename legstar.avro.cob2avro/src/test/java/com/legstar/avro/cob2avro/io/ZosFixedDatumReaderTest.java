@@ -0,0 +1,191 @@
+package com.legstar.avro.cob2avro.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CobolCustomerData;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
+import com.legstar.base.context.EbcdicCobolContext;
+
+public class ZosFixedDatumReaderTest {
+
+    private static final File IN_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+
+    private int lrecl;
+
+    private Schema schema;
+
+    /** The RDW file records, each padded to the LRECL. */
+    private byte[] fixedData;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        lrecl = (int) new CobolCustomerData().getMaxBytesLen();
+        byte[] rdwData = FileUtils.readFileToByteArray(IN_FILE);
+        fixedData = new byte[10000 * lrecl];
+        int pos = 0;
+        for (int i = 0; i < 10000; i++) {
+            int rdw = ZosVarRdwDatumReader.getRawRdw(rdwData, pos,
+                    rdwData.length);
+            System.arraycopy(rdwData, pos + 4, fixedData, i * lrecl, rdw - 4);
+            pos += rdw;
+        }
+    }
+
+    @Test
+    public void testReadCustdat() throws Exception {
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new CobolCustomerData(), schema);
+        ZosFixedDatumReader < CustomerData > fixedDatumReader = new ZosFixedDatumReader < CustomerData >(
+                new ByteArrayInputStream(fixedData), fixedData.length, lrecl,
+                new CobolCustomerData(), schema);
+        fixedDatumReader.setReadBufferSize(10 * lrecl + 7);
+        int count = 0;
+        for (CustomerData specific : fixedDatumReader) {
+            assertEquals(datumReader.next(), specific);
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(10000, fixedDatumReader.getRecordNumber());
+        assertEquals(fixedData.length, fixedDatumReader.getBytesRead());
+        datumReader.close();
+        fixedDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatWithReuse() throws Exception {
+        ZosVarRdwDatumReader < GenericRecord > datumReader = new ZosVarRdwDatumReader < GenericRecord >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        ZosFixedDatumReader < GenericRecord > fixedDatumReader = new ZosFixedDatumReader < GenericRecord >(
+                new ByteArrayInputStream(fixedData), fixedData.length, lrecl,
+                new Cob2AvroGenericConverter.Builder()
+                        .cobolComplexType(new CobolCustomerData())
+                        .schema(schema).walkPlan(true).build());
+        GenericRecord reuse = fixedDatumReader.next();
+        assertEquals(datumReader.next(), reuse);
+        int count = 1;
+        while (fixedDatumReader.hasNext()) {
+            assertSame(reuse, fixedDatumReader.next(reuse));
+            assertEquals(datumReader.next(), reuse);
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        fixedDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatLazy() throws Exception {
+        ZosVarRdwDatumReader < GenericRecord > datumReader = new ZosVarRdwDatumReader < GenericRecord >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        ZosFixedDatumReader < GenericRecord > fixedDatumReader = new ZosFixedDatumReader < GenericRecord >(
+                new ByteArrayInputStream(fixedData), fixedData.length, lrecl,
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        fixedDatumReader.setReadBufferSize(10 * lrecl);
+        fixedDatumReader.setLazy(true);
+        List < GenericRecord > lazyRecords = new ArrayList < GenericRecord >();
+        while (fixedDatumReader.hasNext()) {
+            lazyRecords.add(fixedDatumReader.next());
+        }
+        assertEquals(10000, lazyRecords.size());
+        // Lazy records do not depend on the block they were read from
+        for (GenericRecord lazy : lazyRecords) {
+            assertEquals(0, GenericData.get().compare(datumReader.next(), lazy,
+                    schema));
+        }
+        datumReader.close();
+        fixedDatumReader.close();
+    }
+
+    @Test
+    public void testSeekRecord() throws Exception {
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        CustomerData[] expected = new CustomerData[10000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = datumReader.next();
+        }
+        datumReader.close();
+
+        ZosFixedDatumReader < CustomerData > fixedDatumReader = new ZosFixedDatumReader < CustomerData >(
+                new ByteArrayInputStream(fixedData), fixedData.length, lrecl,
+                new Cob2CustomerDataConverter.Builder().build());
+        fixedDatumReader.setReadBufferSize(100 * lrecl);
+
+        // Skip the stream
+        fixedDatumReader.seekRecord(5000);
+        assertEquals(expected[5000], fixedDatumReader.next());
+
+        // Within the current block, forward and back
+        fixedDatumReader.seekRecord(5050);
+        assertEquals(expected[5050], fixedDatumReader.next());
+        fixedDatumReader.seekRecord(5010);
+        assertEquals(expected[5010], fixedDatumReader.next());
+        assertEquals(expected[5011], fixedDatumReader.next());
+
+        // Past the current block
+        fixedDatumReader.seekRecord(9999);
+        assertEquals(expected[9999], fixedDatumReader.next());
+        assertFalse(fixedDatumReader.hasNext());
+
+        try {
+            fixedDatumReader.seekRecord(10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot seek back to record 10 which is before the current block",
+                    e.getMessage());
+        }
+        try {
+            fixedDatumReader.seekRecord(10001);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record 10001 is outside of the stream",
+                    e.getMessage());
+        }
+        fixedDatumReader.close();
+    }
+
+    @Test
+    public void testReadTruncatedRecord() throws Exception {
+        ZosFixedDatumReader < CustomerData > fixedDatumReader = new ZosFixedDatumReader < CustomerData >(
+                new ByteArrayInputStream(fixedData, 0, lrecl + 10),
+                lrecl + 10, lrecl,
+                new Cob2CustomerDataConverter.Builder().build());
+        fixedDatumReader.next();
+        assertTrue(fixedDatumReader.hasNext());
+        try {
+            fixedDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Not enough bytes left for a record",
+                    e.getMessage());
+        }
+        fixedDatumReader.close();
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.legstar.avro.cob2avro.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class ZosRdwIndexTest {
+
+    private static final File IN_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+
+    @Test
+    public void testBuildWriteRead() throws Exception {
+        ZosRdwIndex index = ZosRdwIndex.build(IN_FILE, 1000);
+        assertEquals(10000, index.getRecordCount());
+        assertEquals(IN_FILE.length(), index.getLength());
+        assertEquals(10, index.getEntryCount());
+        assertEquals(0, index.getEntryOffset(0));
+
+        byte[] hostData = FileUtils.readFileToByteArray(IN_FILE);
+        long offset = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (i % 1000 == 0) {
+                assertEquals(offset, index.getEntryOffset(i / 1000));
+                assertEquals(i, index.getEntryRecordNumber(i / 1000));
+            }
+            offset += ZosVarRdwDatumReader.getRawRdw(hostData, (int) offset,
+                    hostData.length);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        // Delta encoded offsets take 3 bytes each
+        assertTrue(out.size() < 50);
+        ZosRdwIndex read = ZosRdwIndex.read(new ByteArrayInputStream(out
+                .toByteArray()));
+        assertEquals(index.getInterval(), read.getInterval());
+        assertEquals(index.getRecordCount(), read.getRecordCount());
+        assertEquals(index.getLength(), read.getLength());
+        assertEquals(index.getEntryCount(), read.getEntryCount());
+        for (int i = 0; i < index.getEntryCount(); i++) {
+            assertEquals(index.getEntryOffset(i), read.getEntryOffset(i));
+        }
+    }
+
+    @Test
+    public void testGetEntries() throws Exception {
+        ZosRdwIndex index = ZosRdwIndex.build(IN_FILE, 1000);
+        assertEquals(0, index.getEntry(0));
+        assertEquals(0, index.getEntry(999));
+        assertEquals(1, index.getEntry(1000));
+        assertEquals(9, index.getEntry(9999));
+        assertEquals(0, index.getEntryAfter(0));
+        assertEquals(1, index.getEntryAfter(1));
+        assertEquals(1, index.getEntryAfter(index.getEntryOffset(1)));
+        assertEquals(10, index.getEntryAfter(index.getEntryOffset(9) + 1));
+        try {
+            index.getEntry(10000);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record 10000 is outside of the file", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetRecordStarts() throws Exception {
+        ZosRdwIndex index = ZosRdwIndex.build(IN_FILE, 1);
+        long[] offsets = new long[] { 0, 1, index.getEntryOffset(1),
+                index.getEntryOffset(5000) - 1, IN_FILE.length() - 1,
+                IN_FILE.length() };
+        InputStream is = new FileInputStream(IN_FILE);
+        long[] recordStarts = ZosRdwIndex.getRecordStarts(is,
+                IN_FILE.length(), offsets);
+        is.close();
+        assertEquals(0, recordStarts[0]);
+        assertEquals(index.getEntryOffset(1), recordStarts[1]);
+        assertEquals(index.getEntryOffset(1), recordStarts[2]);
+        assertEquals(index.getEntryOffset(5000), recordStarts[3]);
+        assertEquals(IN_FILE.length(), recordStarts[4]);
+        assertEquals(IN_FILE.length(), recordStarts[5]);
+    }
+
+    @Test
+    public void testSeekRecord() throws Exception {
+        ZosRdwIndex index = ZosRdwIndex.build(IN_FILE, 1000);
+        List < CustomerData > records = new ArrayList < CustomerData >();
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        while (datumReader.hasNext()) {
+            records.add(datumReader.next());
+        }
+        datumReader.close();
+
+        for (int readBufferSize : new int[] { 0, 4096 }) {
+            for (long recordNumber : new long[] { 0, 1, 999, 1000, 5555, 9999 }) {
+                datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                        new FileInputStream(IN_FILE), IN_FILE.length(),
+                        new Cob2CustomerDataConverter.Builder().build());
+                datumReader.setReadBufferSize(readBufferSize);
+                datumReader.seekRecord(index, recordNumber);
+                assertEquals(records.get((int) recordNumber),
+                        datumReader.next());
+                int count = 1;
+                while (datumReader.hasNext()) {
+                    datumReader.next();
+                    count++;
+                }
+                assertEquals(10000 - recordNumber, count);
+                datumReader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSeekRecordBack() throws Exception {
+        ZosRdwIndex index = ZosRdwIndex.build(IN_FILE, 1000);
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        datumReader.seekRecord(index, 2000);
+        try {
+            datumReader.seekRecord(index, 1500);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot seek back to record 1500", e.getMessage());
+        }
+        datumReader.close();
+    }
+
+    @Test
+    public void testBuildNotRdw() throws Exception {
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.bin");
+        try {
+            ZosRdwIndex.build(inFile, 1000);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith(
+                    "Invalid record descriptor word at offset"));
+        }
+    }
+
+}
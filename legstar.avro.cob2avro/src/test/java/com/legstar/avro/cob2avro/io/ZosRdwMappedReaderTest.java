@@ -0,0 +1,139 @@
+package com.legstar.avro.cob2avro.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CobolCustomerData;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
+import com.legstar.base.context.EbcdicCobolContext;
+
+public class ZosRdwMappedReaderTest {
+
+    private static final File IN_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+
+    @Test
+    public void testReadCustdat() throws Exception {
+        Schema schema = getSchema();
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new CobolCustomerData(), schema);
+        ZosRdwMappedReader < CustomerData > mappedReader = new ZosRdwMappedReader < CustomerData >(
+                IN_FILE, new CobolCustomerData(), schema);
+        int count = 0;
+        while (mappedReader.hasNext()) {
+            assertEquals(datumReader.next(), mappedReader.next());
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(IN_FILE.length(), mappedReader.getPosition());
+        datumReader.close();
+        mappedReader.close();
+    }
+
+    @Test
+    public void testReadCustdatSmallWindows() throws Exception {
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        ZosRdwMappedReader < CustomerData > mappedReader = new ZosRdwMappedReader < CustomerData >(
+                IN_FILE, new Cob2CustomerDataConverter.Builder().build(),
+                0xFFFF);
+        int count = 0;
+        for (CustomerData specific : mappedReader) {
+            assertEquals(datumReader.next(), specific);
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        mappedReader.close();
+    }
+
+    @Test
+    public void testReadCustdatReuse() throws Exception {
+        Schema schema = getSchema();
+        ZosVarRdwDatumReader < GenericRecord > datumReader = new ZosVarRdwDatumReader < GenericRecord >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2AvroGenericConverter.Builder()
+                        .cobolComplexType(new CobolCustomerData())
+                        .schema(schema).build());
+        ZosRdwMappedReader < GenericRecord > mappedReader = new ZosRdwMappedReader < GenericRecord >(
+                IN_FILE, new Cob2AvroGenericConverter.Builder()
+                        .cobolComplexType(new CobolCustomerData())
+                        .schema(schema).walkPlan(true).build());
+        GenericRecord reuse = mappedReader.next();
+        assertEquals(datumReader.next(), reuse);
+        int count = 1;
+        while (mappedReader.hasNext()) {
+            assertSame(reuse, mappedReader.next(reuse));
+            assertEquals(datumReader.next(), reuse);
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        mappedReader.close();
+    }
+
+    @Test
+    public void testReadCustdatProjection() throws Exception {
+        Schema schema = getSchema();
+        Schema readerSchema = new Schema.Parser()
+                .parse("{\"type\":\"record\",\"name\":\"CustomerData\",\"namespace\":\"legstar.test.avro.custdat\",\"fields\":["
+                        + "{\"name\":\"customerId\",\"type\":\"long\"}]}");
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new CobolCustomerData(), schema);
+        ZosRdwMappedReader < GenericRecord > mappedReader = new ZosRdwMappedReader < GenericRecord >(
+                IN_FILE, new EbcdicCobolContext(), new CobolCustomerData(),
+                null, schema, readerSchema);
+        int count = 0;
+        for (GenericRecord generic : mappedReader) {
+            assertEquals(readerSchema, generic.getSchema());
+            assertEquals(datumReader.next().getCustomerId(),
+                    generic.get("customerId"));
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        mappedReader.close();
+    }
+
+    @Test
+    public void testSetPosition() throws Exception {
+        ZosRdwMappedReader < CustomerData > mappedReader = new ZosRdwMappedReader < CustomerData >(
+                IN_FILE, new Cob2CustomerDataConverter.Builder().build());
+        mappedReader.next();
+        CustomerData second = mappedReader.next();
+        long position = mappedReader.getPosition();
+        mappedReader.next();
+        mappedReader.setPosition(0);
+        mappedReader.next();
+        assertEquals(second, mappedReader.next());
+        assertEquals(position, mappedReader.getPosition());
+
+        mappedReader.setPosition(2);
+        try {
+            mappedReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Record does not start with a Record Descriptor Word at offset 2",
+                    e.getMessage());
+        }
+        mappedReader.close();
+    }
+
+    private static Schema getSchema() throws Exception {
+        return new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+    }
+
+}
@@ -2,18 +2,31 @@ package com.legstar.avro.cob2avro.io;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
 import legstar.test.avro.custdat.CobolCustomerData;
 import legstar.test.avro.custdat.CustomerData;
 
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.legstar.avro.cob2avro.io.ZosVarRdwDatumReader;
+import com.legstar.base.context.EbcdicCobolContext;
 
 public class ZosVarRdwDatumReaderTest {
 
@@ -67,6 +80,409 @@ public class ZosVarRdwDatumReaderTest {
         
     }
 
+    @Test
+    public void testReadCustdatWithGeneratedConverter() throws Exception {
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        int count = 0;
+        while (datumReader.hasNext()) {
+            CustomerData specific = datumReader.next();
+            count++;
+            logCustomerData(specific);
+        }
+        assertEquals(10000, count);
+    }
+
+    @Test
+    public void testReadCustdatGenericRecord() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<GenericRecord> datumReader = new ZosVarRdwDatumReader<GenericRecord>(
+                new FileInputStream(inFile), inFile.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        int count = 0;
+        while (datumReader.hasNext()) {
+            GenericRecord generic = datumReader.next();
+            assertFalse(generic instanceof CustomerData);
+            assertEquals(schema, generic.getSchema());
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatSpecificData() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new CobolCustomerData(), schema);
+        ZosVarRdwDatumReader<CustomerData> specificDatumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, true, true);
+        int count = 0;
+        while (specificDatumReader.hasNext()) {
+            assertEquals(datumReader.next(), specificDatumReader.next());
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        specificDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatProjection() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        Schema readerSchema = new Schema.Parser()
+                .parse("{\"type\":\"record\",\"name\":\"CustomerData\",\"namespace\":\"legstar.test.avro.custdat\",\"fields\":["
+                        + "{\"name\":\"customerId\",\"type\":\"long\"}]}");
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new CobolCustomerData(), schema);
+        ZosVarRdwDatumReader<GenericRecord> projectionDatumReader = new ZosVarRdwDatumReader<GenericRecord>(
+                new FileInputStream(inFile), inFile.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, readerSchema);
+        int count = 0;
+        while (projectionDatumReader.hasNext()) {
+            GenericRecord generic = projectionDatumReader.next();
+            assertEquals(readerSchema, generic.getSchema());
+            assertEquals(datumReader.next().getCustomerId(),
+                    generic.get("customerId"));
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        projectionDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatLazy() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<GenericRecord> datumReader = new ZosVarRdwDatumReader<GenericRecord>(
+                new FileInputStream(inFile), inFile.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        ZosVarRdwDatumReader<GenericRecord> lazyDatumReader = new ZosVarRdwDatumReader<GenericRecord>(
+                new FileInputStream(inFile), inFile.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        lazyDatumReader.setLazy(true);
+        List<GenericRecord> lazyRecords = new ArrayList<GenericRecord>();
+        while (lazyDatumReader.hasNext()) {
+            lazyRecords.add(lazyDatumReader.next());
+        }
+        assertEquals(10000, lazyRecords.size());
+        // Lazy records remain valid after subsequent reads
+        for (GenericRecord lazy : lazyRecords) {
+            assertEquals(0, GenericData.get().compare(datumReader.next(), lazy,
+                    schema));
+        }
+        datumReader.close();
+        lazyDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatWithReuse() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new CobolCustomerData(), schema);
+        ZosVarRdwDatumReader<CustomerData> reuseDatumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new FileInputStream(inFile), inFile.length(),
+                new CobolCustomerData(), schema);
+        CustomerData reuse = new CustomerData();
+        int count = 0;
+        while (reuseDatumReader.hasNext()) {
+            CustomerData specific = reuseDatumReader.next(reuse);
+            assertSame(reuse, specific);
+            assertEquals(datumReader.next(), specific);
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+        reuseDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatReadBufferSizes() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        for (int readBufferSize : new int[] { 0, 1, 7, 183, 65536 }) {
+            ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                    new FileInputStream(inFile), inFile.length(),
+                    new CobolCustomerData(), schema);
+            ZosVarRdwDatumReader<CustomerData> bufferedDatumReader = new ZosVarRdwDatumReader<CustomerData>(
+                    new FileInputStream(inFile), inFile.length(),
+                    new CobolCustomerData(), schema);
+            bufferedDatumReader.setReadBufferSize(readBufferSize);
+            int count = 0;
+            while (bufferedDatumReader.hasNext()) {
+                assertEquals(datumReader.next(), bufferedDatumReader.next());
+                count++;
+            }
+            assertEquals(10000, count);
+            assertEquals(inFile.length(), bufferedDatumReader.getBytesRead());
+            datumReader.close();
+            bufferedDatumReader.close();
+        }
+    }
+
+    @Test
+    public void testReadCustdatInBlocks() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        final int[] reads = new int[1];
+        InputStream is = new FilterInputStream(new FileInputStream(inFile)) {
+            public int read(byte[] b, int off, int len) throws IOException {
+                reads[0]++;
+                return super.read(b, off, len);
+            }
+        };
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                is, inFile.length(), new CobolCustomerData(), schema);
+        datumReader.setReadBufferSize(256 * 1024);
+        int count = 0;
+        while (datumReader.hasNext()) {
+            datumReader.next();
+            count++;
+        }
+        assertEquals(10000, count);
+        // One read per block, the stream length tells where the file ends
+        assertEquals(inFile.length() / (256 * 1024) + 1, reads[0]);
+        try {
+            datumReader.setReadBufferSize(1024);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Read buffer size must be set before the first read",
+                    e.getMessage());
+        }
+        datumReader.close();
+    }
+
+    @Test
+    public void testReadStopsAtStreamLength() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        byte[] hostData = FileUtils.readFileToByteArray(inFile);
+        // The stream holds the whole file but the reader is only given the
+        // records that start before offset 100000
+        int length = 0;
+        int expected = 0;
+        while (length < 100000) {
+            length += ZosVarRdwDatumReader.getRawRdw(hostData, length,
+                    hostData.length);
+            expected++;
+        }
+        for (int readBufferSize : new int[] { 0, 183, 65536, 1048576 }) {
+            final long[] fetched = new long[1];
+            InputStream is = new FilterInputStream(new ByteArrayInputStream(
+                    hostData)) {
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int count = super.read(b, off, len);
+                    fetched[0] += Math.max(0, count);
+                    return count;
+                }
+            };
+            ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                    is, length, new CobolCustomerData(), schema);
+            datumReader.setReadBufferSize(readBufferSize);
+            int count = 0;
+            while (datumReader.hasNext()) {
+                datumReader.next();
+                count++;
+            }
+            assertEquals(expected, count);
+            assertEquals(length, fetched[0]);
+            datumReader.close();
+        }
+    }
+
+    @Test
+    public void testReadCustdatFromOffsetReadBufferSizes() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        byte[] hostData = FileUtils.readFileToByteArray(inFile);
+        for (int offset : new int[] { 1, 62, 100000, 1048575 }) {
+            // Count the records starting at or after offset
+            int expected = 0;
+            int firstRecordStart = -1;
+            for (int pos = 0; pos < hostData.length; pos += ZosVarRdwDatumReader
+                    .getRawRdw(hostData, pos, hostData.length)) {
+                if (pos >= offset) {
+                    if (firstRecordStart == -1) {
+                        firstRecordStart = pos;
+                    }
+                    expected++;
+                }
+            }
+            for (int readBufferSize : new int[] { 0, 1, 183, 65536 }) {
+                InputStream is = new FileInputStream(inFile);
+                IOUtils.skipFully(is, offset);
+                ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                        is, inFile.length() - offset, new CobolCustomerData(),
+                        schema);
+                datumReader.setReadBufferSize(readBufferSize);
+                datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+                assertEquals(firstRecordStart - offset,
+                        datumReader.getBytesRead());
+                int count = 0;
+                while (datumReader.hasNext()) {
+                    datumReader.next();
+                    count++;
+                }
+                assertEquals(expected, count);
+                assertEquals(inFile.length() - offset,
+                        datumReader.getBytesRead());
+                datumReader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSeekRecordStartInBulk() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        final int[] reads = new int[1];
+        InputStream is = new FilterInputStream(new FileInputStream(inFile)) {
+            public int read(byte[] b, int off, int len) throws IOException {
+                reads[0]++;
+                return super.read(b, off, len);
+            }
+        };
+        is.read();
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                is, inFile.length() - 1, new CobolCustomerData(), schema);
+        datumReader.setReadBufferSize(0);
+        reads[0] = 0;
+        datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+        // The record start is found in the first chunk read
+        assertEquals(1, reads[0]);
+        assertEquals(61, datumReader.getBytesRead());
+        int count = 0;
+        while (datumReader.hasNext()) {
+            datumReader.next();
+            count++;
+        }
+        assertEquals(9999, count);
+        datumReader.close();
+    }
+
+    @Test
+    public void testSeekRecordStartChain() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        // A false record start (RDW and customerId) followed by garbage
+        byte[] garbage = new byte[62];
+        Arrays.fill(garbage, (byte) 0xFF);
+        System.arraycopy(new byte[] { 0x00, 0x3F, 0x00, 0x00, (byte) 0xF0,
+                (byte) 0xF0, (byte) 0xF0, (byte) 0xF0, (byte) 0xF0,
+                (byte) 0xF1 }, 0, garbage, 0, 10);
+        byte[] hostData = FileUtils.readFileToByteArray(inFile);
+        byte[] data = new byte[garbage.length + hostData.length];
+        System.arraycopy(garbage, 0, data, 0, garbage.length);
+        System.arraycopy(hostData, 0, data, garbage.length, hostData.length);
+
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new ByteArrayInputStream(data), data.length,
+                new CobolCustomerData(), schema);
+        datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+        assertEquals(0, datumReader.getBytesRead());
+        datumReader.close();
+
+        for (int readBufferSize : new int[] { 0, 1, 183, 65536 }) {
+            datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                    new ByteArrayInputStream(data), data.length,
+                    new CobolCustomerData(), schema);
+            datumReader.setReadBufferSize(readBufferSize);
+            datumReader.setSeekChainLength(3);
+            datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+            assertEquals(garbage.length, datumReader.getBytesRead());
+            int count = 0;
+            while (datumReader.hasNext()) {
+                datumReader.next();
+                count++;
+            }
+            assertEquals(10000, count);
+            datumReader.close();
+        }
+
+        // A chain that reaches the end of the stream is valid
+        int lastRecordStart = hostData.length - 0xBB;
+        assertEquals(0xBB, ZosVarRdwDatumReader.getRawRdw(hostData,
+                lastRecordStart, hostData.length));
+        datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new ByteArrayInputStream(hostData, lastRecordStart - 1, 0xBB + 1),
+                0xBB + 1, new CobolCustomerData(), schema);
+        datumReader.setSeekChainLength(3);
+        datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+        assertEquals(1, datumReader.getBytesRead());
+        datumReader.next();
+        assertFalse(datumReader.hasNext());
+        datumReader.close();
+    }
+
+    @Test
+    public void testSeekRecordStartChainLength() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        File inFile = new File("src/test/data/ZOS.FCUSTDAT.RDW.bin");
+        // A false record start whose RDW is followed by a single valid RDW,
+        // then by garbage
+        byte[] garbage = new byte[130];
+        Arrays.fill(garbage, (byte) 0xFF);
+        System.arraycopy(new byte[] { 0x00, 0x3F, 0x00, 0x00, (byte) 0xF0,
+                (byte) 0xF0, (byte) 0xF0, (byte) 0xF0, (byte) 0xF0,
+                (byte) 0xF1 }, 0, garbage, 0, 10);
+        System.arraycopy(new byte[] { 0x00, 0x3F, 0x00, 0x00 }, 0, garbage,
+                0x3F, 4);
+        byte[] hostData = FileUtils.readFileToByteArray(inFile);
+        byte[] data = new byte[garbage.length + hostData.length];
+        System.arraycopy(garbage, 0, data, 0, garbage.length);
+        System.arraycopy(hostData, 0, data, garbage.length, hostData.length);
+
+        // The chain holds the record start own RDW, then the ones that follow
+        ZosVarRdwDatumReader<CustomerData> datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new ByteArrayInputStream(data), data.length,
+                new CobolCustomerData(), schema);
+        datumReader.setSeekChainLength(2);
+        datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+        assertEquals(0, datumReader.getBytesRead());
+        datumReader.close();
+
+        datumReader = new ZosVarRdwDatumReader<CustomerData>(
+                new ByteArrayInputStream(data), data.length,
+                new CobolCustomerData(), schema);
+        datumReader.setSeekChainLength(3);
+        datumReader.seekRecordStart(new CustdatZosRdwRecordMatcher());
+        assertEquals(garbage.length, datumReader.getBytesRead());
+        int count = 0;
+        while (datumReader.hasNext()) {
+            datumReader.next();
+            count++;
+        }
+        assertEquals(10000, count);
+        datumReader.close();
+    }
 
     private void logCustomerData(CustomerData specific) {
         log.info(
@@ -0,0 +1,184 @@
+package com.legstar.avro.cob2avro.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CobolCustomerData;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.legstar.avro.cob2avro.Cob2AvroGenericConverter;
+import com.legstar.base.context.EbcdicCobolContext;
+
+public class ZosVbBlockedDatumReaderTest {
+
+    private static final File IN_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+
+    @Test
+    public void testReadCustdat() throws Exception {
+        Schema schema = getSchema();
+        byte[] vbData = toVb(27998, false);
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new CobolCustomerData(), schema);
+        ZosVbBlockedDatumReader < CustomerData > vbDatumReader = new ZosVbBlockedDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbData), vbData.length,
+                new CobolCustomerData(), schema);
+        int count = 0;
+        for (CustomerData specific : vbDatumReader) {
+            assertEquals(datumReader.next(), specific);
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(vbData.length, vbDatumReader.getBytesRead());
+        assertEquals(45, vbDatumReader.getBlocksRead());
+        datumReader.close();
+        vbDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatExtendedBdw() throws Exception {
+        Schema schema = getSchema();
+        byte[] vbData = toVb(256 * 1024, true);
+        ZosVarRdwDatumReader < GenericRecord > datumReader = new ZosVarRdwDatumReader < GenericRecord >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new EbcdicCobolContext(), new CobolCustomerData(), null,
+                schema, false);
+        ZosVbBlockedDatumReader < GenericRecord > vbDatumReader = new ZosVbBlockedDatumReader < GenericRecord >(
+                new ByteArrayInputStream(vbData), vbData.length,
+                new Cob2AvroGenericConverter.Builder()
+                        .cobolComplexType(new CobolCustomerData())
+                        .schema(schema).walkPlan(true).build());
+        GenericRecord reuse = null;
+        int count = 0;
+        while (vbDatumReader.hasNext()) {
+            GenericRecord generic = vbDatumReader.next(reuse);
+            if (reuse != null) {
+                assertSame(reuse, generic);
+            }
+            assertEquals(datumReader.next(), generic);
+            reuse = generic;
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(5, vbDatumReader.getBlocksRead());
+        datumReader.close();
+        vbDatumReader.close();
+    }
+
+    @Test
+    public void testGetBlockLen() {
+        assertEquals(27998, ZosVbBlockedDatumReader.getBlockLen(new byte[] {
+                0x6D, 0x5E, 0x00, 0x00 }, 0));
+        assertEquals(0x01000000, ZosVbBlockedDatumReader.getBlockLen(
+                new byte[] { (byte) 0x81, 0x00, 0x00, 0x00 }, 0));
+    }
+
+    @Test
+    public void testReadInvalidRdw() throws Exception {
+        byte[] vbData = toVb(27998, false);
+        // Corrupt the first RDW so that it extends past the block
+        vbData[4] = 0x7F;
+        ZosVbBlockedDatumReader < CustomerData > vbDatumReader = new ZosVbBlockedDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbData), vbData.length,
+                new Cob2CustomerDataConverter.Builder().build());
+        try {
+            vbDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Invalid record descriptor word in block 1 at offset 4",
+                    e.getMessage());
+        }
+        vbDatumReader.close();
+    }
+
+    @Test
+    public void testReadInvalidBdw() throws Exception {
+        // An extended BDW asking for more than the stream holds
+        byte[] vbData = toVb(27998, true);
+        vbData[0] = (byte) 0xFF;
+        ZosVbBlockedDatumReader < CustomerData > vbDatumReader = new ZosVbBlockedDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbData), vbData.length,
+                new Cob2CustomerDataConverter.Builder().build());
+        try {
+            vbDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Not enough bytes left for block at offset 0",
+                    e.getMessage());
+        }
+        vbDatumReader.close();
+
+        // A standard BDW larger than the largest z/OS block
+        vbData = toVb(27998, false);
+        vbData[0] = 0x7F;
+        vbData[1] = (byte) 0xFF;
+        vbDatumReader = new ZosVbBlockedDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbData), vbData.length,
+                new Cob2CustomerDataConverter.Builder().build());
+        try {
+            vbDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Invalid block descriptor word at offset 0",
+                    e.getMessage());
+        }
+        vbDatumReader.close();
+    }
+
+    private static Schema getSchema() throws Exception {
+        return new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+    }
+
+    /**
+     * Group the records of the RDW file in blocks.
+     *
+     * @param maxBlockLen the maximum block length
+     * @param extended true to produce extended BDWs
+     * @return the blocked data
+     */
+    private static byte[] toVb(int maxBlockLen, boolean extended)
+            throws Exception {
+        byte[] rdwData = FileUtils.readFileToByteArray(IN_FILE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < rdwData.length) {
+            int end = pos;
+            while (end < rdwData.length) {
+                int rdw = ZosVarRdwDatumReader.getRawRdw(rdwData, end,
+                        rdwData.length);
+                if (end + rdw - pos + 4 > maxBlockLen) {
+                    break;
+                }
+                end += rdw;
+            }
+            int blockLen = end - pos + 4;
+            if (extended) {
+                out.write(0x80 | (blockLen >>> 24));
+                out.write(blockLen >>> 16);
+                out.write(blockLen >>> 8);
+                out.write(blockLen);
+            } else {
+                out.write(blockLen >>> 8);
+                out.write(blockLen);
+                out.write(0);
+                out.write(0);
+            }
+            out.write(rdwData, pos, end - pos);
+            pos = end;
+        }
+        return out.toByteArray();
+    }
+
+}
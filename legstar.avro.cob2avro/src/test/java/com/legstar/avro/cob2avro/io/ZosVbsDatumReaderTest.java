@@ -0,0 +1,164 @@
+package com.legstar.avro.cob2avro.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+
+import legstar.test.avro.custdat.Cob2CustomerDataConverter;
+import legstar.test.avro.custdat.CobolCustomerData;
+import legstar.test.avro.custdat.CustomerData;
+
+import org.apache.avro.Schema;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.legstar.base.context.EbcdicCobolContext;
+import com.legstar.base.finder.CobolComplexTypeFinder;
+
+public class ZosVbsDatumReaderTest {
+
+    private static final File IN_FILE = new File(
+            "src/test/data/ZOS.FCUSTDAT.RDW.bin");
+
+    @Test
+    public void testReadCustdat() throws Exception {
+        Schema schema = new Schema.Parser().parse(new File("target/gen/avsc/"
+                + "custdat.avsc"));
+        byte[] vbsData = toVbs(FileUtils.readFileToByteArray(IN_FILE), 50);
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new CobolCustomerData(), schema);
+        ZosVbsDatumReader < CustomerData > vbsDatumReader = new ZosVbsDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbsData), vbsData.length,
+                new CobolCustomerData(), schema);
+        int count = 0;
+        while (vbsDatumReader.hasNext()) {
+            assertEquals(datumReader.next(), vbsDatumReader.next());
+            count++;
+        }
+        assertEquals(10000, count);
+        assertEquals(vbsData.length, vbsDatumReader.getBytesRead());
+        datumReader.close();
+        vbsDatumReader.close();
+    }
+
+    @Test
+    public void testReadCustdatFromOffset() throws Exception {
+        byte[] vbsData = toVbs(FileUtils.readFileToByteArray(IN_FILE), 50);
+        ZosVarRdwDatumReader < CustomerData > datumReader = new ZosVarRdwDatumReader < CustomerData >(
+                new FileInputStream(IN_FILE), IN_FILE.length(),
+                new Cob2CustomerDataConverter.Builder().build());
+        datumReader.next();
+
+        // Start in the middle of the first record
+        ZosVbsDatumReader < CustomerData > vbsDatumReader = new ZosVbsDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbsData, 20, vbsData.length - 20),
+                vbsData.length - 20,
+                new Cob2CustomerDataConverter.Builder().build());
+        vbsDatumReader.seekRecordStart(new SdwCobolTypeFinder(
+                new CobolComplexTypeFinder(new EbcdicCobolContext(),
+                        new CobolCustomerData(), "customerId")));
+        int count = 0;
+        while (vbsDatumReader.hasNext()) {
+            assertEquals(datumReader.next(), vbsDatumReader.next());
+            count++;
+        }
+        assertEquals(9999, count);
+        datumReader.close();
+        vbsDatumReader.close();
+    }
+
+    @Test
+    public void testReadOutOfSequence() throws Exception {
+        byte[] vbsData = toVbs(FileUtils.readFileToByteArray(IN_FILE), 50);
+        // Turn the last segment of the first record into a first segment
+        int pos = 0;
+        while (ZosVbsDatumReader.getSegmentControl(vbsData, pos) != ZosVbsDatumReader.LAST_SEGMENT) {
+            pos += ZosVarRdwDatumReader.getRawRdw(vbsData, pos, vbsData.length);
+        }
+        vbsData[pos + 2] = ZosVbsDatumReader.FIRST_SEGMENT;
+        ZosVbsDatumReader < CustomerData > vbsDatumReader = new ZosVbsDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbsData), vbsData.length,
+                new Cob2CustomerDataConverter.Builder().build());
+        try {
+            vbsDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Segment out of sequence after 50 bytes of record",
+                    e.getMessage());
+        }
+        vbsDatumReader.close();
+    }
+
+    @Test
+    public void testReadInvalidSdw() throws Exception {
+        byte[] vbsData = toVbs(FileUtils.readFileToByteArray(IN_FILE), 50);
+        int maxRecordLen = (int) new CobolCustomerData().getMaxBytesLen();
+
+        // First segment longer than the longest record
+        byte[] corrupt = vbsData.clone();
+        corrupt[0] = (byte) ((maxRecordLen + 5) >>> 8);
+        corrupt[1] = (byte) (maxRecordLen + 5);
+        assertInvalidSdw(corrupt);
+
+        // Empty middle segment
+        corrupt = vbsData.clone();
+        corrupt[54] = 0;
+        corrupt[55] = 4;
+        assertInvalidSdw(corrupt);
+    }
+
+    private void assertInvalidSdw(byte[] vbsData) throws Exception {
+        ZosVbsDatumReader < CustomerData > vbsDatumReader = new ZosVbsDatumReader < CustomerData >(
+                new ByteArrayInputStream(vbsData), vbsData.length,
+                new Cob2CustomerDataConverter.Builder().build());
+        try {
+            vbsDatumReader.next();
+            fail();
+        } catch (Exception e) {
+            assertEquals("java.io.IOException: Invalid segment descriptor word",
+                    e.getMessage());
+        }
+        vbsDatumReader.close();
+    }
+
+    /**
+     * Split the records of an RDW file into segments.
+     * 
+     * @param rdwData the RDW file content
+     * @param maxSegmentLen the maximum segment data length
+     * @return the spanned records
+     */
+    public static byte[] toVbs(byte[] rdwData, int maxSegmentLen) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < rdwData.length) {
+            int recordLen = ZosVarRdwDatumReader.getRawRdw(rdwData, pos,
+                    rdwData.length) - 4;
+            int start = pos + 4;
+            int end = start + recordLen;
+            for (int seg = start; seg < end; seg += maxSegmentLen) {
+                int segLen = Math.min(maxSegmentLen, end - seg);
+                int control;
+                if (seg == start) {
+                    control = seg + segLen == end ? ZosVbsDatumReader.COMPLETE_SEGMENT
+                            : ZosVbsDatumReader.FIRST_SEGMENT;
+                } else {
+                    control = seg + segLen == end ? ZosVbsDatumReader.LAST_SEGMENT
+                            : ZosVbsDatumReader.MIDDLE_SEGMENT;
+                }
+                out.write((segLen + 4) >>> 8);
+                out.write(segLen + 4);
+                out.write(control);
+                out.write(0);
+                out.write(rdwData, seg, segLen);
+            }
+            pos = end;
+        }
+        return out.toByteArray();
+    }
+
+}
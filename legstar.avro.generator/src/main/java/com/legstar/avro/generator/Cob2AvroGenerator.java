@@ -37,8 +37,11 @@ import com.legstar.cob2xsd.Cob2XsdConfig;
  * The COBOL-annotated XML schema is used to produce regular LegStar converter
  * support classes.
  * <p/>
- * Finally the Avro compiler is invoked to produce a set of Avro converter
+ * The Avro compiler is then invoked to produce a set of Avro converter
  * support classes.
+ * <p/>
+ * Finally a converter class is produced for each COBOL root structure that
+ * turns mainframe data directly into the Avro specific record.
  * 
  */
 public class Cob2AvroGenerator {
@@ -60,6 +63,8 @@ public class Cob2AvroGenerator {
     private final Xsd2CobolTypesGenerator xsd2CobolTypes;
 
     private final Xsd2AvroTranslator cob2AvroTranslator;
+
+    private final Xsd2AvroConverterGenerator xsd2AvroConverter;
     
     private static Logger log = LoggerFactory
             .getLogger(Cob2AvroGenerator.class);
@@ -68,6 +73,7 @@ public class Cob2AvroGenerator {
         cob2xsd = new Cob2Xsd(new Cob2XsdConfig(configProps));
         cob2AvroTranslator = new Xsd2AvroTranslator();
         xsd2CobolTypes = new Xsd2CobolTypesGenerator();
+        xsd2AvroConverter = new Xsd2AvroConverterGenerator();
     }
 
     /**
@@ -111,6 +117,7 @@ public class Cob2AvroGenerator {
      * <li>Produce the avro schema</li>
      * <li>Parse and compile the Avro schema</li>
      * <li>Generate Avro specific classes</li>
+     * <li>Generate Avro specific record converter classes</li>
      * </ul>
      * 
      * @param cobolReader
@@ -149,6 +156,13 @@ public class Cob2AvroGenerator {
             avroCompile(avroSchemaSource, avroSchemaFile, new File(
                     targetFolder, JAVA_TARGET_SUB_FOLDER));
 
+            Map < String, String > avroCodeMap = generateAvroConverterClasses(
+                    xmlSchemaSource, avroSchemaSource, targetPackageName);
+            for (Entry < String, String > entry : avroCodeMap.entrySet()) {
+                serializeToFile(targetFolder, JAVA_TARGET_SUB_FOLDER, subFolder
+                        + entry.getKey(), JAVA_FILE_EXTENSION, entry.getValue());
+            }
+
             log.info("COBOL to Avro generation succeeded");
             return true;
 
@@ -211,6 +225,34 @@ public class Cob2AvroGenerator {
         return codeMap;
     }
 
+    /**
+     * Produce the converter classes that turn mainframe data directly into
+     * Avro specific records.
+     * 
+     * @param xmlSchemaSource the XML schema source
+     * @param avroSchemaSource the Avro schema source
+     * @param targetPackageName the target Avro package name
+     * @return a map of class names associated with their code
+     */
+    private Map < String, String > generateAvroConverterClasses(
+            String xmlSchemaSource, String avroSchemaSource,
+            String targetPackageName) {
+
+        log.debug("Avro converter classes generation started");
+        Map < String, String > codeMap = xsd2AvroConverter.generate(
+                xmlSchemaSource, new Schema.Parser().parse(avroSchemaSource),
+                targetPackageName);
+        if (log.isDebugEnabled()) {
+            log.debug("Generated Avro converter classes: ");
+            for (String code : codeMap.values()) {
+                log.debug(code);
+                log.debug("\n");
+            }
+        }
+        log.debug("Avro converter classes generation ended");
+        return codeMap;
+    }
+
     private File serializeToFile(final File target, String targetSubFolder,
             String fileName, String extension, String source)
             throws IOException {
@@ -0,0 +1,370 @@
+package com.legstar.avro.generator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.avro.Schema;
+import org.apache.commons.io.IOUtils;
+import org.apache.ws.commons.schema.XmlSchema;
+import org.apache.ws.commons.schema.XmlSchemaCollection;
+
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Template;
+import com.legstar.base.generator.Xsd2CobolTypesModelBuilder;
+import com.legstar.base.generator.Xsd2CobolTypesModelBuilder.RootCompositeType;
+
+/**
+ * Generates a converter class per COBOL root structure that turns mainframe
+ * data directly into the corresponding Avro specific record.
+ * <p/>
+ * The generated code walks the COBOL structure in straight-line code, one
+ * method per group and per redefines, setting each Avro field by position.
+ * There is no visitor and no intermediate generic record involved at runtime.
+ * <p/>
+ * The COBOL structure is obtained from the COBOL-annotated XML schema while
+ * Avro field positions are obtained from the Avro schema.
+ *
+ */
+public class Xsd2AvroConverterGenerator {
+
+    public static final String JAVA_CLASS_NAME_PREFIX = "Cob2";
+
+    public static final String JAVA_CLASS_NAME_SUFFIX = "Converter";
+
+    public static final String JAVA_CLASS_TEMPLATE_NAME = "java.converter.hbs";
+
+    private final Template hbtJavaClass;
+
+    private final Xsd2CobolTypesModelBuilder modelBuilder;
+
+    public Xsd2AvroConverterGenerator() {
+        try {
+            String text = IOUtils.toString(getClass().getResourceAsStream(
+                    JAVA_CLASS_TEMPLATE_NAME));
+            hbtJavaClass = new Handlebars().compileInline(text);
+            modelBuilder = new Xsd2CobolTypesModelBuilder();
+        } catch (IOException e) {
+            throw new Cob2AvroGeneratotException(e);
+        }
+    }
+
+    /**
+     * Produce the converter classes source code.
+     *
+     * @param xmlSchemaSource the COBOL-annotated XML schema source
+     * @param avroSchema the Avro schema of the specific records
+     * @param targetPackageName the java package the generated classes should
+     *            reside in (same as the Avro specific records)
+     * @return a map of java class names to their source code
+     */
+    public Map < String, String > generate(String xmlSchemaSource,
+            Schema avroSchema, String targetPackageName) {
+        try {
+            XmlSchemaCollection schemaCol = new XmlSchemaCollection();
+            XmlSchema xmlSchema = schemaCol.read(new StreamSource(
+                    new StringReader(xmlSchemaSource)));
+            Map < String, Schema > avroRecords = new HashMap < String, Schema >();
+            collectRecords(avroSchema, avroRecords);
+
+            Map < String, String > code = new HashMap < String, String >();
+            for (Entry < String, RootCompositeType > entry : modelBuilder
+                    .build(xmlSchema).entrySet()) {
+                String className = JAVA_CLASS_NAME_PREFIX + entry.getKey()
+                        + JAVA_CLASS_NAME_SUFFIX;
+                Map < String, Object > model = new ConverterModelBuilder(
+                        entry.getKey(), entry.getValue(), avroRecords,
+                        targetPackageName).build();
+                model.put("class_name", className);
+                code.put(className, hbtJavaClass.apply(model));
+            }
+            return code;
+        } catch (IOException e) {
+            throw new Cob2AvroGeneratotException(e);
+        }
+    }
+
+    /**
+     * Index all Avro records in a schema by their full name.
+     *
+     * @param schema the Avro schema
+     * @param records the records found so far
+     */
+    private static void collectRecords(Schema schema,
+            Map < String, Schema > records) {
+        switch (schema.getType()) {
+        case RECORD:
+            if (records.put(schema.getFullName(), schema) == null) {
+                for (Schema.Field field : schema.getFields()) {
+                    collectRecords(field.schema(), records);
+                }
+            }
+            break;
+        case ARRAY:
+            collectRecords(schema.getElementType(), records);
+            break;
+        case UNION:
+            for (Schema type : schema.getTypes()) {
+                collectRecords(type, records);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Turns the LegStar COBOL types model for a root structure into the model
+     * expected by the converter template.
+     * <p/>
+     * Each COBOL type that the generated code needs to reference at runtime is
+     * given a unique java field name along with the path used to retrieve it
+     * from the COBOL complex type instance.
+     */
+    private static class ConverterModelBuilder {
+
+        private final String rootTypeName;
+
+        private final RootCompositeType root;
+
+        private final Map < String, Schema > avroRecords;
+
+        private final String targetPackageName;
+
+        private final List < Map < String, Object > > typeFields = new ArrayList < Map < String, Object > >();
+
+        private final List < Map < String, Object > > complexTypes = new ArrayList < Map < String, Object > >();
+
+        private final List < Map < String, Object > > choiceTypes = new ArrayList < Map < String, Object > >();
+
+        private final Set < String > javaNames = new HashSet < String >();
+
+        private final Set < String > visitedTypes = new HashSet < String >();
+
+        private boolean hasArrays;
+
+        public ConverterModelBuilder(String rootTypeName,
+                RootCompositeType root, Map < String, Schema > avroRecords,
+                String targetPackageName) {
+            this.rootTypeName = rootTypeName;
+            this.root = root;
+            this.avroRecords = avroRecords;
+            this.targetPackageName = targetPackageName;
+        }
+
+        public Map < String, Object > build() {
+            visitComplexType(rootTypeName, new ArrayList < String >());
+
+            Map < String, Object > model = new HashMap < String, Object >();
+            if (targetPackageName != null && targetPackageName.length() > 0) {
+                model.put("target_package_name", targetPackageName);
+            }
+            model.put("record_class_name", rootTypeName);
+            model.put("cobol_class_name", "Cobol" + rootTypeName);
+            model.put("root_cobol_name", root.cobolName);
+            model.put("type_fields", typeFields);
+            model.put("complex_types", complexTypes);
+            model.put("choice_types", choiceTypes);
+            model.put("has_arrays", hasArrays);
+            return model;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void visitComplexType(String typeName, List < String > path) {
+            if (!visitedTypes.add(typeName)) {
+                return;
+            }
+            Map < String, Object > fields = (Map < String, Object >) root.complexTypes
+                    .get(typeName);
+            Schema avroRecord = getAvroRecord(typeName);
+
+            List < Map < String, Object > > fieldsModel = new ArrayList < Map < String, Object > >();
+            Map < String, Object > typeModel = new HashMap < String, Object >();
+            typeModel.put("type_name", typeName);
+            typeModel.put("fields", fieldsModel);
+            complexTypes.add(typeModel);
+
+            for (Entry < String, Object > entry : fields.entrySet()) {
+                String fieldName = entry.getKey();
+                Map < String, Object > props = (Map < String, Object >) entry
+                        .getValue();
+                Schema.Field avroField = avroRecord.getField(fieldName);
+                if (avroField == null) {
+                    throw new Cob2AvroGeneratotException("Field " + fieldName
+                            + " not found in Avro record "
+                            + avroRecord.getFullName());
+                }
+                List < String > fieldPath = append(path, fieldName);
+
+                Map < String, Object > fieldModel = new HashMap < String, Object >();
+                fieldModel.put("pos", avroField.pos());
+                fieldModel.put("field_name", fieldName);
+                fieldModel.put("item_expr",
+                        getItemExpr(fieldName, props, fieldPath));
+                if (props.get("maxOccurs") != null) {
+                    fieldModel.put("is_array", true);
+                    hasArrays = true;
+                    fieldModel.put("occurs_expr", getOccursExpr(props));
+                } else if (isTrue(props.get("isOptional"))
+                        && props.get("dependingOn") != null) {
+                    fieldModel.put("depending_on", props.get("dependingOn"));
+                }
+                fieldsModel.add(fieldModel);
+            }
+        }
+
+        /**
+         * Produce the java expression that reads one occurrence of a field.
+         *
+         * @param fieldName the field name
+         * @param props the field properties
+         * @param fieldPath path to the field from the root
+         * @return the java expression
+         */
+        @SuppressWarnings("unchecked")
+        private String getItemExpr(String fieldName,
+                Map < String, Object > props, List < String > fieldPath) {
+            if (isTrue(props.get("complexType"))) {
+                String typeName = (String) props.get("complexTypeName");
+                visitComplexType(typeName, fieldPath);
+                return "read" + typeName + "(cursor)";
+
+            } else if (isTrue(props.get("choiceType"))) {
+                String typeName = (String) props.get("choiceTypeName");
+                visitChoiceType(typeName, fieldName,
+                        (Map < String, Object >) props.get("alternatives"),
+                        fieldPath);
+                return "read" + typeName + "(cursor)";
+
+            } else {
+                String javaName = addTypeField(fieldName,
+                        "CobolPrimitiveType < ? >", "getPrimitiveType",
+                        fieldPath);
+                return "cursor.fromHost(" + javaName + ", \"" + fieldName
+                        + "\")";
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void visitChoiceType(String typeName, String fieldName,
+                Map < String, Object > alternatives, List < String > path) {
+            if (!visitedTypes.add(typeName)) {
+                return;
+            }
+            String choiceJavaName = addTypeField(fieldName, "CobolChoiceType",
+                    "getChoiceType", path);
+
+            List < Map < String, Object > > alternativesModel = new ArrayList < Map < String, Object > >();
+            Map < String, Object > typeModel = new HashMap < String, Object >();
+            typeModel.put("type_name", typeName);
+            typeModel.put("field_name", fieldName);
+            typeModel.put("java_name", choiceJavaName);
+            typeModel.put("alternatives", alternativesModel);
+            choiceTypes.add(typeModel);
+
+            for (Entry < String, Object > entry : alternatives.entrySet()) {
+                String alternativeName = entry.getKey();
+                Map < String, Object > props = (Map < String, Object >) entry
+                        .getValue();
+                List < String > alternativePath = append(path, alternativeName);
+
+                Map < String, Object > alternativeModel = new HashMap < String, Object >();
+                alternativeModel.put("keyword",
+                        alternativesModel.isEmpty() ? "if" : "} else if");
+                if (isTrue(props.get("complexType"))) {
+                    String alternativeTypeName = (String) props
+                            .get("complexTypeName");
+                    alternativeModel.put("java_name", addTypeField(
+                            alternativeName, "CobolType", "getCobolType",
+                            alternativePath));
+                    visitComplexType(alternativeTypeName, alternativePath);
+                    alternativeModel.put("item_expr", "read"
+                            + alternativeTypeName + "(cursor)");
+                } else {
+                    String javaName = addTypeField(alternativeName,
+                            "CobolPrimitiveType < ? >", "getPrimitiveType",
+                            alternativePath);
+                    alternativeModel.put("java_name", javaName);
+                    // Variables in alternatives are named after the choice
+                    alternativeModel.put("item_expr", "cursor.fromHost("
+                            + javaName + ", \"" + fieldName + "\")");
+                }
+                alternativesModel.add(alternativeModel);
+            }
+        }
+
+        /**
+         * Add a java field holding a reference to a COBOL type.
+         *
+         * @param name the COBOL field or alternative name
+         * @param javaType the java type of the field
+         * @param getter the method that retrieves the COBOL type from its path
+         * @param path the path to the COBOL type from the root
+         * @return the unique java field name
+         */
+        private String addTypeField(String name, String javaType,
+                String getter, List < String > path) {
+            String javaName = name + "Type";
+            for (int i = 2; !javaNames.add(javaName); i++) {
+                javaName = name + i + "Type";
+            }
+            StringBuilder sb = new StringBuilder();
+            for (String element : path) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append('"').append(element).append('"');
+            }
+            Map < String, Object > typeField = new HashMap < String, Object >();
+            typeField.put("java_name", javaName);
+            typeField.put("java_type", javaType);
+            typeField.put("getter", getter);
+            typeField.put("path", sb.toString());
+            typeFields.add(typeField);
+            return javaName;
+        }
+
+        private String getOccursExpr(Map < String, Object > props) {
+            int minOccurs = ((Number) props.get("minOccurs")).intValue();
+            int maxOccurs = ((Number) props.get("maxOccurs")).intValue();
+            if (maxOccurs > minOccurs) {
+                return "cursor.getOdoValue(\"" + props.get("dependingOn")
+                        + "\")";
+            }
+            return Integer.toString(maxOccurs);
+        }
+
+        private Schema getAvroRecord(String typeName) {
+            String fullName = targetPackageName == null
+                    || targetPackageName.length() == 0 ? typeName
+                    : targetPackageName + "." + typeName;
+            Schema avroRecord = avroRecords.get(fullName);
+            if (avroRecord == null) {
+                throw new Cob2AvroGeneratotException("Avro record " + fullName
+                        + " not found");
+            }
+            return avroRecord;
+        }
+
+        private static List < String > append(List < String > path,
+                String name) {
+            List < String > newPath = new ArrayList < String >(path);
+            newPath.add(name);
+            return newPath;
+        }
+
+        private static boolean isTrue(Object value) {
+            return value != null && Boolean.valueOf(value.toString());
+        }
+
+    }
+
+}
@@ -109,6 +109,8 @@ public class Cob2AvroGeneratorTest extends AbstractTest {
     private void checkFiles(String schemaName, String recordName)
             throws Exception {
         check(getCode(recordName), recordName + ".java");
+        check(getCode("Cob2" + recordName + "Converter"), "Cob2" + recordName
+                + "Converter.java");
         assertTrue(getJavaFile("Cobol" + recordName).exists());
         assertTrue(getAvscFile(schemaName).exists());
         assertTrue(getXsdFile(schemaName).exists());
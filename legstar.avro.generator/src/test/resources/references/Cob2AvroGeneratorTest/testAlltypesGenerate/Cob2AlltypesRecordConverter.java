@@ -0,0 +1,245 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by ALLTYPES-RECORD to a
+ * AlltypesRecord Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2AlltypesRecordConverter extends
+        AbstractCob2AvroGeneratedConverter < AlltypesRecord > {
+
+    private final CobolPrimitiveType < ? > sStringType;
+
+    private final CobolPrimitiveType < ? > sBinaryType;
+
+    private final CobolPrimitiveType < ? > sShortType;
+
+    private final CobolPrimitiveType < ? > sUshortType;
+
+    private final CobolPrimitiveType < ? > sIntType;
+
+    private final CobolPrimitiveType < ? > sUintType;
+
+    private final CobolPrimitiveType < ? > sLongType;
+
+    private final CobolPrimitiveType < ? > sUlongType;
+
+    private final CobolPrimitiveType < ? > sXlongType;
+
+    private final CobolPrimitiveType < ? > sUxlongType;
+
+    private final CobolPrimitiveType < ? > sDecType;
+
+    private final CobolPrimitiveType < ? > sFloatType;
+
+    private final CobolPrimitiveType < ? > sDoubleType;
+
+    private final CobolPrimitiveType < ? > aStringType;
+
+    private final CobolPrimitiveType < ? > aBinaryType;
+
+    private final CobolPrimitiveType < ? > aShortType;
+
+    private final CobolPrimitiveType < ? > aUshortType;
+
+    private final CobolPrimitiveType < ? > aIntType;
+
+    private final CobolPrimitiveType < ? > aUintType;
+
+    private final CobolPrimitiveType < ? > aLongType;
+
+    private final CobolPrimitiveType < ? > aUlongType;
+
+    private final CobolPrimitiveType < ? > aXlongType;
+
+    private final CobolPrimitiveType < ? > aUxlongType;
+
+    private final CobolPrimitiveType < ? > aDecType;
+
+    private final CobolPrimitiveType < ? > aFloatType;
+
+    private final CobolPrimitiveType < ? > aDoubleType;
+
+    public FromHostResult < AlltypesRecord > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        AlltypesRecord record = readAlltypesRecord(cursor);
+        return new FromHostResult < AlltypesRecord >(cursor.getPos(), record);
+    }
+
+    private AlltypesRecord readAlltypesRecord(HostCursor cursor) {
+        AlltypesRecord record = new AlltypesRecord();
+        record.put(0, cursor.fromHost(sStringType, "sString"));
+        record.put(1, cursor.fromHost(sBinaryType, "sBinary"));
+        record.put(2, cursor.fromHost(sShortType, "sShort"));
+        record.put(3, cursor.fromHost(sUshortType, "sUshort"));
+        record.put(4, cursor.fromHost(sIntType, "sInt"));
+        record.put(5, cursor.fromHost(sUintType, "sUint"));
+        record.put(6, cursor.fromHost(sLongType, "sLong"));
+        record.put(7, cursor.fromHost(sUlongType, "sUlong"));
+        record.put(8, cursor.fromHost(sXlongType, "sXlong"));
+        record.put(9, cursor.fromHost(sUxlongType, "sUxlong"));
+        record.put(10, cursor.fromHost(sDecType, "sDec"));
+        record.put(11, cursor.fromHost(sFloatType, "sFloat"));
+        record.put(12, cursor.fromHost(sDoubleType, "sDouble"));
+        int aStringOccurs = 2;
+        List < Object > aStringList = new ArrayList < Object >(
+                aStringOccurs);
+        for (int i = 0; i < aStringOccurs; i++) {
+            aStringList.add(cursor.fromHost(aStringType, "aString"));
+        }
+        record.put(13, aStringList);
+        int aBinaryOccurs = 2;
+        List < Object > aBinaryList = new ArrayList < Object >(
+                aBinaryOccurs);
+        for (int i = 0; i < aBinaryOccurs; i++) {
+            aBinaryList.add(cursor.fromHost(aBinaryType, "aBinary"));
+        }
+        record.put(14, aBinaryList);
+        int aShortOccurs = 2;
+        List < Object > aShortList = new ArrayList < Object >(
+                aShortOccurs);
+        for (int i = 0; i < aShortOccurs; i++) {
+            aShortList.add(cursor.fromHost(aShortType, "aShort"));
+        }
+        record.put(15, aShortList);
+        int aUshortOccurs = 2;
+        List < Object > aUshortList = new ArrayList < Object >(
+                aUshortOccurs);
+        for (int i = 0; i < aUshortOccurs; i++) {
+            aUshortList.add(cursor.fromHost(aUshortType, "aUshort"));
+        }
+        record.put(16, aUshortList);
+        int aIntOccurs = 2;
+        List < Object > aIntList = new ArrayList < Object >(
+                aIntOccurs);
+        for (int i = 0; i < aIntOccurs; i++) {
+            aIntList.add(cursor.fromHost(aIntType, "aInt"));
+        }
+        record.put(17, aIntList);
+        int aUintOccurs = 2;
+        List < Object > aUintList = new ArrayList < Object >(
+                aUintOccurs);
+        for (int i = 0; i < aUintOccurs; i++) {
+            aUintList.add(cursor.fromHost(aUintType, "aUint"));
+        }
+        record.put(18, aUintList);
+        int aLongOccurs = 2;
+        List < Object > aLongList = new ArrayList < Object >(
+                aLongOccurs);
+        for (int i = 0; i < aLongOccurs; i++) {
+            aLongList.add(cursor.fromHost(aLongType, "aLong"));
+        }
+        record.put(19, aLongList);
+        int aUlongOccurs = 2;
+        List < Object > aUlongList = new ArrayList < Object >(
+                aUlongOccurs);
+        for (int i = 0; i < aUlongOccurs; i++) {
+            aUlongList.add(cursor.fromHost(aUlongType, "aUlong"));
+        }
+        record.put(20, aUlongList);
+        int aXlongOccurs = 2;
+        List < Object > aXlongList = new ArrayList < Object >(
+                aXlongOccurs);
+        for (int i = 0; i < aXlongOccurs; i++) {
+            aXlongList.add(cursor.fromHost(aXlongType, "aXlong"));
+        }
+        record.put(21, aXlongList);
+        int aUxlongOccurs = 2;
+        List < Object > aUxlongList = new ArrayList < Object >(
+                aUxlongOccurs);
+        for (int i = 0; i < aUxlongOccurs; i++) {
+            aUxlongList.add(cursor.fromHost(aUxlongType, "aUxlong"));
+        }
+        record.put(22, aUxlongList);
+        int aDecOccurs = 2;
+        List < Object > aDecList = new ArrayList < Object >(
+                aDecOccurs);
+        for (int i = 0; i < aDecOccurs; i++) {
+            aDecList.add(cursor.fromHost(aDecType, "aDec"));
+        }
+        record.put(23, aDecList);
+        int aFloatOccurs = 2;
+        List < Object > aFloatList = new ArrayList < Object >(
+                aFloatOccurs);
+        for (int i = 0; i < aFloatOccurs; i++) {
+            aFloatList.add(cursor.fromHost(aFloatType, "aFloat"));
+        }
+        record.put(24, aFloatList);
+        int aDoubleOccurs = 2;
+        List < Object > aDoubleList = new ArrayList < Object >(
+                aDoubleOccurs);
+        for (int i = 0; i < aDoubleOccurs; i++) {
+            aDoubleList.add(cursor.fromHost(aDoubleType, "aDouble"));
+        }
+        record.put(25, aDoubleList);
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < AlltypesRecord, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolAlltypesRecord());
+        }
+
+        public Cob2AlltypesRecordConverter build() {
+            return new Cob2AlltypesRecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2AlltypesRecordConverter(Builder builder) {
+        super(builder);
+        sStringType = getPrimitiveType("sString");
+        sBinaryType = getPrimitiveType("sBinary");
+        sShortType = getPrimitiveType("sShort");
+        sUshortType = getPrimitiveType("sUshort");
+        sIntType = getPrimitiveType("sInt");
+        sUintType = getPrimitiveType("sUint");
+        sLongType = getPrimitiveType("sLong");
+        sUlongType = getPrimitiveType("sUlong");
+        sXlongType = getPrimitiveType("sXlong");
+        sUxlongType = getPrimitiveType("sUxlong");
+        sDecType = getPrimitiveType("sDec");
+        sFloatType = getPrimitiveType("sFloat");
+        sDoubleType = getPrimitiveType("sDouble");
+        aStringType = getPrimitiveType("aString");
+        aBinaryType = getPrimitiveType("aBinary");
+        aShortType = getPrimitiveType("aShort");
+        aUshortType = getPrimitiveType("aUshort");
+        aIntType = getPrimitiveType("aInt");
+        aUintType = getPrimitiveType("aUint");
+        aLongType = getPrimitiveType("aLong");
+        aUlongType = getPrimitiveType("aUlong");
+        aXlongType = getPrimitiveType("aXlong");
+        aUxlongType = getPrimitiveType("aUxlong");
+        aDecType = getPrimitiveType("aDec");
+        aFloatType = getPrimitiveType("aFloat");
+        aDoubleType = getPrimitiveType("aDouble");
+    }
+
+}
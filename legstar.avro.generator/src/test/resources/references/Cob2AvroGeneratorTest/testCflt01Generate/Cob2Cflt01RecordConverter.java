@@ -0,0 +1,100 @@
+package test.example;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by CFLT01-RECORD to a
+ * Cflt01Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Cflt01RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Cflt01Record > {
+
+    private final CobolPrimitiveType < ? > cfltIdType;
+
+    private final CobolPrimitiveType < ? > cfltTypCdType;
+
+    private final CobolPrimitiveType < ? > cfltIdCtType;
+
+    private final CobolPrimitiveType < ? > cfltTypCdCtType;
+
+    public FromHostResult < Cflt01Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Cflt01Record record = readCflt01Record(cursor);
+        return new FromHostResult < Cflt01Record >(cursor.getPos(), record);
+    }
+
+    private Cflt01Record readCflt01Record(HostCursor cursor) {
+        Cflt01Record record = new Cflt01Record();
+        record.put(0, readCfltParent1(cursor));
+        record.put(1, readCfltParent2(cursor));
+        return record;
+    }
+
+    private CfltParent1 readCfltParent1(HostCursor cursor) {
+        CfltParent1 record = new CfltParent1();
+        record.put(0, readCfltInfo9(cursor));
+        return record;
+    }
+
+    private CfltInfo9 readCfltInfo9(HostCursor cursor) {
+        CfltInfo9 record = new CfltInfo9();
+        record.put(0, cursor.fromHost(cfltIdType, "cfltId"));
+        record.put(1, cursor.fromHost(cfltTypCdType, "cfltTypCd"));
+        return record;
+    }
+
+    private CfltParent2 readCfltParent2(HostCursor cursor) {
+        CfltParent2 record = new CfltParent2();
+        record.put(0, readCfltInfo13(cursor));
+        return record;
+    }
+
+    private CfltInfo13 readCfltInfo13(HostCursor cursor) {
+        CfltInfo13 record = new CfltInfo13();
+        record.put(0, cursor.fromHost(cfltIdCtType, "cfltIdCt"));
+        record.put(1, cursor.fromHost(cfltTypCdCtType, "cfltTypCdCt"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Cflt01Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolCflt01Record());
+        }
+
+        public Cob2Cflt01RecordConverter build() {
+            return new Cob2Cflt01RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Cflt01RecordConverter(Builder builder) {
+        super(builder);
+        cfltIdType = getPrimitiveType("cfltParent1", "cfltInfo", "cfltId");
+        cfltTypCdType = getPrimitiveType("cfltParent1", "cfltInfo", "cfltTypCd");
+        cfltIdCtType = getPrimitiveType("cfltParent2", "cfltInfo", "cfltIdCt");
+        cfltTypCdCtType = getPrimitiveType("cfltParent2", "cfltInfo", "cfltTypCdCt");
+    }
+
+}
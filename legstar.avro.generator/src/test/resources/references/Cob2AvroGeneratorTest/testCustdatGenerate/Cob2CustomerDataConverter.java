@@ -0,0 +1,169 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.CobolChoiceStrategyException;
+
+/**
+ * Converts mainframe data described by CUSTOMER-DATA to a
+ * CustomerData Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2CustomerDataConverter extends
+        AbstractCob2AvroGeneratedConverter < CustomerData > {
+
+    private final CobolPrimitiveType < ? > customerIdType;
+
+    private final CobolPrimitiveType < ? > customerNameType;
+
+    private final CobolPrimitiveType < ? > customerAddressType;
+
+    private final CobolPrimitiveType < ? > customerPhoneType;
+
+    private final CobolPrimitiveType < ? > transactionNbrType;
+
+    private final CobolChoiceType transactionDateChoiceType;
+
+    private final CobolPrimitiveType < ? > transactionDateType;
+
+    private final CobolType filler12Type;
+
+    private final CobolPrimitiveType < ? > transactionDayType;
+
+    private final CobolPrimitiveType < ? > filler14Type;
+
+    private final CobolPrimitiveType < ? > transactionMonthType;
+
+    private final CobolPrimitiveType < ? > filler16Type;
+
+    private final CobolPrimitiveType < ? > transactionYearType;
+
+    private final CobolPrimitiveType < ? > transactionAmountType;
+
+    private final CobolPrimitiveType < ? > transactionCommentType;
+
+    public FromHostResult < CustomerData > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        CustomerData record = readCustomerData(cursor);
+        return new FromHostResult < CustomerData >(cursor.getPos(), record);
+    }
+
+    private CustomerData readCustomerData(HostCursor cursor) {
+        CustomerData record = new CustomerData();
+        record.put(0, cursor.fromHost(customerIdType, "customerId"));
+        record.put(1, readPersonalData(cursor));
+        record.put(2, readTransactions(cursor));
+        return record;
+    }
+
+    private PersonalData readPersonalData(HostCursor cursor) {
+        PersonalData record = new PersonalData();
+        record.put(0, cursor.fromHost(customerNameType, "customerName"));
+        record.put(1, cursor.fromHost(customerAddressType, "customerAddress"));
+        record.put(2, cursor.fromHost(customerPhoneType, "customerPhone"));
+        return record;
+    }
+
+    private Transactions readTransactions(HostCursor cursor) {
+        Transactions record = new Transactions();
+        record.put(0, cursor.fromHost(transactionNbrType, "transactionNbr"));
+        int transactionOccurs = cursor.getOdoValue("transactionNbr");
+        List < Object > transactionList = new ArrayList < Object >(
+                transactionOccurs);
+        for (int i = 0; i < transactionOccurs; i++) {
+            transactionList.add(readTransaction(cursor));
+        }
+        record.put(1, transactionList);
+        return record;
+    }
+
+    private Transaction readTransaction(HostCursor cursor) {
+        Transaction record = new Transaction();
+        record.put(0, readTransactionDateChoice(cursor));
+        record.put(1, cursor.fromHost(transactionAmountType, "transactionAmount"));
+        record.put(2, cursor.fromHost(transactionCommentType, "transactionComment"));
+        return record;
+    }
+
+    private Filler12 readFiller12(HostCursor cursor) {
+        Filler12 record = new Filler12();
+        record.put(0, cursor.fromHost(transactionDayType, "transactionDay"));
+        record.put(1, cursor.fromHost(filler14Type, "filler14"));
+        record.put(2, cursor.fromHost(transactionMonthType, "transactionMonth"));
+        record.put(3, cursor.fromHost(filler16Type, "filler16"));
+        record.put(4, cursor.fromHost(transactionYearType, "transactionYear"));
+        return record;
+    }
+
+    private Object readTransactionDateChoice(HostCursor cursor) {
+        CobolType alternative = cursor.chooseAlternative("transactionDateChoice",
+                transactionDateChoiceType);
+        Object value;
+        if (alternative == transactionDateType) {
+            value = cursor.fromHost(transactionDateType, "transactionDateChoice");
+        } else if (alternative == filler12Type) {
+            value = readFiller12(cursor);
+        } else {
+            throw new CobolChoiceStrategyException(
+                    "Unexpected alternative for choice transactionDateChoice");
+        }
+        cursor.endAlternative(transactionDateChoiceType, alternative);
+        return value;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < CustomerData, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolCustomerData());
+        }
+
+        public Cob2CustomerDataConverter build() {
+            return new Cob2CustomerDataConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2CustomerDataConverter(Builder builder) {
+        super(builder);
+        customerIdType = getPrimitiveType("customerId");
+        customerNameType = getPrimitiveType("personalData", "customerName");
+        customerAddressType = getPrimitiveType("personalData", "customerAddress");
+        customerPhoneType = getPrimitiveType("personalData", "customerPhone");
+        transactionNbrType = getPrimitiveType("transactions", "transactionNbr");
+        transactionDateChoiceType = getChoiceType("transactions", "transaction", "transactionDateChoice");
+        transactionDateType = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "transactionDate");
+        filler12Type = getCobolType("transactions", "transaction", "transactionDateChoice", "filler12");
+        transactionDayType = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "filler12", "transactionDay");
+        filler14Type = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "filler12", "filler14");
+        transactionMonthType = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "filler12", "transactionMonth");
+        filler16Type = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "filler12", "filler16");
+        transactionYearType = getPrimitiveType("transactions", "transaction", "transactionDateChoice", "filler12", "transactionYear");
+        transactionAmountType = getPrimitiveType("transactions", "transaction", "transactionAmount");
+        transactionCommentType = getPrimitiveType("transactions", "transaction", "transactionComment");
+    }
+
+}
@@ -0,0 +1,72 @@
+package test.example;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by FLAT01-RECORD to a
+ * Flat01Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Flat01RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Flat01Record > {
+
+    private final CobolPrimitiveType < ? > comNumberType;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    public FromHostResult < Flat01Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Flat01Record record = readFlat01Record(cursor);
+        return new FromHostResult < Flat01Record >(cursor.getPos(), record);
+    }
+
+    private Flat01Record readFlat01Record(HostCursor cursor) {
+        Flat01Record record = new Flat01Record();
+        record.put(0, cursor.fromHost(comNumberType, "comNumber"));
+        record.put(1, cursor.fromHost(comNameType, "comName"));
+        record.put(2, cursor.fromHost(comAmountType, "comAmount"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Flat01Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolFlat01Record());
+        }
+
+        public Cob2Flat01RecordConverter build() {
+            return new Cob2Flat01RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Flat01RecordConverter(Builder builder) {
+        super(builder);
+        comNumberType = getPrimitiveType("comNumber");
+        comNameType = getPrimitiveType("comName");
+        comAmountType = getPrimitiveType("comAmount");
+    }
+
+}
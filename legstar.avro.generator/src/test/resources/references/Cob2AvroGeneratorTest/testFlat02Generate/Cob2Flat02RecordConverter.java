@@ -0,0 +1,85 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by FLAT02-RECORD to a
+ * Flat02Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Flat02RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Flat02Record > {
+
+    private final CobolPrimitiveType < ? > comNumberType;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    private final CobolPrimitiveType < ? > comArrayType;
+
+    public FromHostResult < Flat02Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Flat02Record record = readFlat02Record(cursor);
+        return new FromHostResult < Flat02Record >(cursor.getPos(), record);
+    }
+
+    private Flat02Record readFlat02Record(HostCursor cursor) {
+        Flat02Record record = new Flat02Record();
+        record.put(0, cursor.fromHost(comNumberType, "comNumber"));
+        record.put(1, cursor.fromHost(comNameType, "comName"));
+        record.put(2, cursor.fromHost(comAmountType, "comAmount"));
+        int comArrayOccurs = 5;
+        List < Object > comArrayList = new ArrayList < Object >(
+                comArrayOccurs);
+        for (int i = 0; i < comArrayOccurs; i++) {
+            comArrayList.add(cursor.fromHost(comArrayType, "comArray"));
+        }
+        record.put(3, comArrayList);
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Flat02Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolFlat02Record());
+        }
+
+        public Cob2Flat02RecordConverter build() {
+            return new Cob2Flat02RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Flat02RecordConverter(Builder builder) {
+        super(builder);
+        comNumberType = getPrimitiveType("comNumber");
+        comNameType = getPrimitiveType("comName");
+        comAmountType = getPrimitiveType("comAmount");
+        comArrayType = getPrimitiveType("comArray");
+    }
+
+}
@@ -0,0 +1,111 @@
+package test.example;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.CobolChoiceStrategyException;
+
+/**
+ * Converts mainframe data described by RDEF01-RECORD to a
+ * Rdef01Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Rdef01RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Rdef01Record > {
+
+    private final CobolPrimitiveType < ? > comSelectType;
+
+    private final CobolChoiceType comDetail1ChoiceType;
+
+    private final CobolType comDetail1Type;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolType comDetail2Type;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    public FromHostResult < Rdef01Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Rdef01Record record = readRdef01Record(cursor);
+        return new FromHostResult < Rdef01Record >(cursor.getPos(), record);
+    }
+
+    private Rdef01Record readRdef01Record(HostCursor cursor) {
+        Rdef01Record record = new Rdef01Record();
+        record.put(0, cursor.fromHost(comSelectType, "comSelect"));
+        record.put(1, readComDetail1Choice(cursor));
+        return record;
+    }
+
+    private ComDetail1 readComDetail1(HostCursor cursor) {
+        ComDetail1 record = new ComDetail1();
+        record.put(0, cursor.fromHost(comNameType, "comName"));
+        return record;
+    }
+
+    private ComDetail2 readComDetail2(HostCursor cursor) {
+        ComDetail2 record = new ComDetail2();
+        record.put(0, cursor.fromHost(comAmountType, "comAmount"));
+        return record;
+    }
+
+    private Object readComDetail1Choice(HostCursor cursor) {
+        CobolType alternative = cursor.chooseAlternative("comDetail1Choice",
+                comDetail1ChoiceType);
+        Object value;
+        if (alternative == comDetail1Type) {
+            value = readComDetail1(cursor);
+        } else if (alternative == comDetail2Type) {
+            value = readComDetail2(cursor);
+        } else {
+            throw new CobolChoiceStrategyException(
+                    "Unexpected alternative for choice comDetail1Choice");
+        }
+        cursor.endAlternative(comDetail1ChoiceType, alternative);
+        return value;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Rdef01Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolRdef01Record());
+        }
+
+        public Cob2Rdef01RecordConverter build() {
+            return new Cob2Rdef01RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Rdef01RecordConverter(Builder builder) {
+        super(builder);
+        comSelectType = getPrimitiveType("comSelect");
+        comDetail1ChoiceType = getChoiceType("comDetail1Choice");
+        comDetail1Type = getCobolType("comDetail1Choice", "comDetail1");
+        comNameType = getPrimitiveType("comDetail1Choice", "comDetail1", "comName");
+        comDetail2Type = getCobolType("comDetail1Choice", "comDetail2");
+        comAmountType = getPrimitiveType("comDetail1Choice", "comDetail2", "comAmount");
+    }
+
+}
@@ -0,0 +1,151 @@
+package test.example;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.CobolType;
+import com.legstar.base.type.composite.CobolChoiceType;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+import com.legstar.base.visitor.CobolChoiceStrategyException;
+
+/**
+ * Converts mainframe data described by RDEF02-RECORD to a
+ * Rdef02Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Rdef02RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Rdef02Record > {
+
+    private final CobolChoiceType rdef02Item1ChoiceType;
+
+    private final CobolPrimitiveType < ? > rdef02Item1Type;
+
+    private final CobolPrimitiveType < ? > rdef02Item2Type;
+
+    private final CobolPrimitiveType < ? > comSelectType;
+
+    private final CobolChoiceType comDetail1ChoiceType;
+
+    private final CobolType comDetail1Type;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolType comDetail2Type;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    private final CobolPrimitiveType < ? > filler13Type;
+
+    private final CobolPrimitiveType < ? > comItem3Type;
+
+    public FromHostResult < Rdef02Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Rdef02Record record = readRdef02Record(cursor);
+        return new FromHostResult < Rdef02Record >(cursor.getPos(), record);
+    }
+
+    private Rdef02Record readRdef02Record(HostCursor cursor) {
+        Rdef02Record record = new Rdef02Record();
+        record.put(0, readRdef02Key(cursor));
+        record.put(1, readComDetail1Choice(cursor));
+        record.put(2, cursor.fromHost(comItem3Type, "comItem3"));
+        return record;
+    }
+
+    private Rdef02Key readRdef02Key(HostCursor cursor) {
+        Rdef02Key record = new Rdef02Key();
+        record.put(0, readRdef02Item1Choice(cursor));
+        record.put(1, cursor.fromHost(comSelectType, "comSelect"));
+        return record;
+    }
+
+    private ComDetail1 readComDetail1(HostCursor cursor) {
+        ComDetail1 record = new ComDetail1();
+        record.put(0, cursor.fromHost(comNameType, "comName"));
+        return record;
+    }
+
+    private ComDetail2 readComDetail2(HostCursor cursor) {
+        ComDetail2 record = new ComDetail2();
+        record.put(0, cursor.fromHost(comAmountType, "comAmount"));
+        record.put(1, cursor.fromHost(filler13Type, "filler13"));
+        return record;
+    }
+
+    private Object readRdef02Item1Choice(HostCursor cursor) {
+        CobolType alternative = cursor.chooseAlternative("rdef02Item1Choice",
+                rdef02Item1ChoiceType);
+        Object value;
+        if (alternative == rdef02Item1Type) {
+            value = cursor.fromHost(rdef02Item1Type, "rdef02Item1Choice");
+        } else if (alternative == rdef02Item2Type) {
+            value = cursor.fromHost(rdef02Item2Type, "rdef02Item1Choice");
+        } else {
+            throw new CobolChoiceStrategyException(
+                    "Unexpected alternative for choice rdef02Item1Choice");
+        }
+        cursor.endAlternative(rdef02Item1ChoiceType, alternative);
+        return value;
+    }
+
+    private Object readComDetail1Choice(HostCursor cursor) {
+        CobolType alternative = cursor.chooseAlternative("comDetail1Choice",
+                comDetail1ChoiceType);
+        Object value;
+        if (alternative == comDetail1Type) {
+            value = readComDetail1(cursor);
+        } else if (alternative == comDetail2Type) {
+            value = readComDetail2(cursor);
+        } else {
+            throw new CobolChoiceStrategyException(
+                    "Unexpected alternative for choice comDetail1Choice");
+        }
+        cursor.endAlternative(comDetail1ChoiceType, alternative);
+        return value;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Rdef02Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolRdef02Record());
+        }
+
+        public Cob2Rdef02RecordConverter build() {
+            return new Cob2Rdef02RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Rdef02RecordConverter(Builder builder) {
+        super(builder);
+        rdef02Item1ChoiceType = getChoiceType("rdef02Key", "rdef02Item1Choice");
+        rdef02Item1Type = getPrimitiveType("rdef02Key", "rdef02Item1Choice", "rdef02Item1");
+        rdef02Item2Type = getPrimitiveType("rdef02Key", "rdef02Item1Choice", "rdef02Item2");
+        comSelectType = getPrimitiveType("rdef02Key", "comSelect");
+        comDetail1ChoiceType = getChoiceType("comDetail1Choice");
+        comDetail1Type = getCobolType("comDetail1Choice", "comDetail1");
+        comNameType = getPrimitiveType("comDetail1Choice", "comDetail1", "comName");
+        comDetail2Type = getCobolType("comDetail1Choice", "comDetail2");
+        comAmountType = getPrimitiveType("comDetail1Choice", "comDetail2", "comAmount");
+        filler13Type = getPrimitiveType("comDetail1Choice", "comDetail2", "filler13");
+        comItem3Type = getPrimitiveType("comItem3");
+    }
+
+}
@@ -0,0 +1,86 @@
+package test.example;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by STRU01-RECORD to a
+ * Stru01Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Stru01RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Stru01Record > {
+
+    private final CobolPrimitiveType < ? > comNumberType;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    private final CobolPrimitiveType < ? > comItem1Type;
+
+    private final CobolPrimitiveType < ? > comItem2Type;
+
+    public FromHostResult < Stru01Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Stru01Record record = readStru01Record(cursor);
+        return new FromHostResult < Stru01Record >(cursor.getPos(), record);
+    }
+
+    private Stru01Record readStru01Record(HostCursor cursor) {
+        Stru01Record record = new Stru01Record();
+        record.put(0, cursor.fromHost(comNumberType, "comNumber"));
+        record.put(1, cursor.fromHost(comNameType, "comName"));
+        record.put(2, cursor.fromHost(comAmountType, "comAmount"));
+        record.put(3, readComSubRecord(cursor));
+        return record;
+    }
+
+    private ComSubRecord readComSubRecord(HostCursor cursor) {
+        ComSubRecord record = new ComSubRecord();
+        record.put(0, cursor.fromHost(comItem1Type, "comItem1"));
+        record.put(1, cursor.fromHost(comItem2Type, "comItem2"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Stru01Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolStru01Record());
+        }
+
+        public Cob2Stru01RecordConverter build() {
+            return new Cob2Stru01RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Stru01RecordConverter(Builder builder) {
+        super(builder);
+        comNumberType = getPrimitiveType("comNumber");
+        comNameType = getPrimitiveType("comName");
+        comAmountType = getPrimitiveType("comAmount");
+        comItem1Type = getPrimitiveType("comSubRecord", "comItem1");
+        comItem2Type = getPrimitiveType("comSubRecord", "comItem2");
+    }
+
+}
@@ -0,0 +1,95 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by STRU03-RECORD to a
+ * Stru03Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Stru03RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Stru03Record > {
+
+    private final CobolPrimitiveType < ? > comNumberType;
+
+    private final CobolPrimitiveType < ? > comNameType;
+
+    private final CobolPrimitiveType < ? > comAmountType;
+
+    private final CobolPrimitiveType < ? > comItem1Type;
+
+    private final CobolPrimitiveType < ? > comItem2Type;
+
+    public FromHostResult < Stru03Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Stru03Record record = readStru03Record(cursor);
+        return new FromHostResult < Stru03Record >(cursor.getPos(), record);
+    }
+
+    private Stru03Record readStru03Record(HostCursor cursor) {
+        Stru03Record record = new Stru03Record();
+        record.put(0, cursor.fromHost(comNumberType, "comNumber"));
+        record.put(1, cursor.fromHost(comNameType, "comName"));
+        record.put(2, cursor.fromHost(comAmountType, "comAmount"));
+        int comArrayOccurs = 5;
+        List < Object > comArrayList = new ArrayList < Object >(
+                comArrayOccurs);
+        for (int i = 0; i < comArrayOccurs; i++) {
+            comArrayList.add(readComArray(cursor));
+        }
+        record.put(3, comArrayList);
+        return record;
+    }
+
+    private ComArray readComArray(HostCursor cursor) {
+        ComArray record = new ComArray();
+        record.put(0, cursor.fromHost(comItem1Type, "comItem1"));
+        record.put(1, cursor.fromHost(comItem2Type, "comItem2"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Stru03Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolStru03Record());
+        }
+
+        public Cob2Stru03RecordConverter build() {
+            return new Cob2Stru03RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Stru03RecordConverter(Builder builder) {
+        super(builder);
+        comNumberType = getPrimitiveType("comNumber");
+        comNameType = getPrimitiveType("comName");
+        comAmountType = getPrimitiveType("comAmount");
+        comItem1Type = getPrimitiveType("comArray", "comItem1");
+        comItem2Type = getPrimitiveType("comArray", "comItem2");
+    }
+
+}
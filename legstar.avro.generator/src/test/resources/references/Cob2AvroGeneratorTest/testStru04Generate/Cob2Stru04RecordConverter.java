@@ -0,0 +1,135 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by STRU04-RECORD to a
+ * Stru04Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Stru04RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Stru04Record > {
+
+    private final CobolPrimitiveType < ? > comItem1Type;
+
+    private final CobolPrimitiveType < ? > comItem2Type;
+
+    private final CobolPrimitiveType < ? > comItem3Type;
+
+    private final CobolPrimitiveType < ? > comItem4Type;
+
+    private final CobolPrimitiveType < ? > comArray3Type;
+
+    private final CobolPrimitiveType < ? > comItem5Type;
+
+    private final CobolPrimitiveType < ? > comItem6Type;
+
+    private final CobolPrimitiveType < ? > comItem7Type;
+
+    private final CobolPrimitiveType < ? > comItem8Type;
+
+    public FromHostResult < Stru04Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Stru04Record record = readStru04Record(cursor);
+        return new FromHostResult < Stru04Record >(cursor.getPos(), record);
+    }
+
+    private Stru04Record readStru04Record(HostCursor cursor) {
+        Stru04Record record = new Stru04Record();
+        record.put(0, cursor.fromHost(comItem1Type, "comItem1"));
+        int comArray1Occurs = 3;
+        List < Object > comArray1List = new ArrayList < Object >(
+                comArray1Occurs);
+        for (int i = 0; i < comArray1Occurs; i++) {
+            comArray1List.add(readComArray1(cursor));
+        }
+        record.put(1, comArray1List);
+        record.put(2, cursor.fromHost(comItem8Type, "comItem8"));
+        return record;
+    }
+
+    private ComArray1 readComArray1(HostCursor cursor) {
+        ComArray1 record = new ComArray1();
+        record.put(0, cursor.fromHost(comItem2Type, "comItem2"));
+        record.put(1, readComGroup1(cursor));
+        record.put(2, cursor.fromHost(comItem7Type, "comItem7"));
+        return record;
+    }
+
+    private ComGroup1 readComGroup1(HostCursor cursor) {
+        ComGroup1 record = new ComGroup1();
+        record.put(0, cursor.fromHost(comItem3Type, "comItem3"));
+        int comArray2Occurs = 2;
+        List < Object > comArray2List = new ArrayList < Object >(
+                comArray2Occurs);
+        for (int i = 0; i < comArray2Occurs; i++) {
+            comArray2List.add(readComArray2(cursor));
+        }
+        record.put(1, comArray2List);
+        record.put(2, cursor.fromHost(comItem6Type, "comItem6"));
+        return record;
+    }
+
+    private ComArray2 readComArray2(HostCursor cursor) {
+        ComArray2 record = new ComArray2();
+        record.put(0, cursor.fromHost(comItem4Type, "comItem4"));
+        int comArray3Occurs = 5;
+        List < Object > comArray3List = new ArrayList < Object >(
+                comArray3Occurs);
+        for (int i = 0; i < comArray3Occurs; i++) {
+            comArray3List.add(cursor.fromHost(comArray3Type, "comArray3"));
+        }
+        record.put(1, comArray3List);
+        record.put(2, cursor.fromHost(comItem5Type, "comItem5"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Stru04Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolStru04Record());
+        }
+
+        public Cob2Stru04RecordConverter build() {
+            return new Cob2Stru04RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Stru04RecordConverter(Builder builder) {
+        super(builder);
+        comItem1Type = getPrimitiveType("comItem1");
+        comItem2Type = getPrimitiveType("comArray1", "comItem2");
+        comItem3Type = getPrimitiveType("comArray1", "comGroup1", "comItem3");
+        comItem4Type = getPrimitiveType("comArray1", "comGroup1", "comArray2", "comItem4");
+        comArray3Type = getPrimitiveType("comArray1", "comGroup1", "comArray2", "comArray3");
+        comItem5Type = getPrimitiveType("comArray1", "comGroup1", "comArray2", "comItem5");
+        comItem6Type = getPrimitiveType("comArray1", "comGroup1", "comItem6");
+        comItem7Type = getPrimitiveType("comArray1", "comItem7");
+        comItem8Type = getPrimitiveType("comItem8");
+    }
+
+}
@@ -0,0 +1,105 @@
+package test.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.legstar.avro.cob2avro.AbstractCob2AvroGeneratedConverter;
+import com.legstar.avro.cob2avro.HostCursor;
+import com.legstar.base.converter.AbstractCob2ObjectConverter;
+import com.legstar.base.converter.FromHostResult;
+import com.legstar.base.type.primitive.CobolPrimitiveType;
+
+/**
+ * Converts mainframe data described by STRU05-RECORD to a
+ * Stru05Record Avro specific record.
+ * <p/>
+ * Fields are decoded in sequence straight into the specific record.
+ * <p/>
+ * This class is immutable and Thread safe.
+ *
+ */
+public class Cob2Stru05RecordConverter extends
+        AbstractCob2AvroGeneratedConverter < Stru05Record > {
+
+    private final CobolPrimitiveType < ? > comItemBType;
+
+    private final CobolPrimitiveType < ? > comItemB2Type;
+
+    private final CobolPrimitiveType < ? > comItemB3Type;
+
+    public FromHostResult < Stru05Record > convert(byte[] hostData,
+            int start, int length) {
+        HostCursor cursor = newCursor(hostData, start, length);
+        Stru05Record record = readStru05Record(cursor);
+        return new FromHostResult < Stru05Record >(cursor.getPos(), record);
+    }
+
+    private Stru05Record readStru05Record(HostCursor cursor) {
+        Stru05Record record = new Stru05Record();
+        record.put(0, readComItemA(cursor));
+        int comItemCOccurs = 3;
+        List < Object > comItemCList = new ArrayList < Object >(
+                comItemCOccurs);
+        for (int i = 0; i < comItemCOccurs; i++) {
+            comItemCList.add(readComItemC(cursor));
+        }
+        record.put(1, comItemCList);
+        record.put(2, readComItemD(cursor));
+        return record;
+    }
+
+    private ComItemA readComItemA(HostCursor cursor) {
+        ComItemA record = new ComItemA();
+        record.put(0, cursor.fromHost(comItemBType, "comItemB"));
+        return record;
+    }
+
+    private ComItemC readComItemC(HostCursor cursor) {
+        ComItemC record = new ComItemC();
+        record.put(0, cursor.fromHost(comItemB2Type, "comItemB"));
+        return record;
+    }
+
+    private ComItemD readComItemD(HostCursor cursor) {
+        ComItemD record = new ComItemD();
+        record.put(0, readComItemE(cursor));
+        return record;
+    }
+
+    private ComItemE readComItemE(HostCursor cursor) {
+        ComItemE record = new ComItemE();
+        record.put(0, cursor.fromHost(comItemB3Type, "comItemB"));
+        return record;
+    }
+
+    // -----------------------------------------------------------------------------
+    // Builder section
+    // -----------------------------------------------------------------------------
+    public static class Builder extends
+            AbstractCob2ObjectConverter.Builder < Stru05Record, Builder > {
+
+        public Builder() {
+            cobolComplexType(new CobolStru05Record());
+        }
+
+        public Cob2Stru05RecordConverter build() {
+            return new Cob2Stru05RecordConverter(this);
+        }
+
+        protected Builder self() {
+            return this;
+        }
+
+    }
+
+    // -----------------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------------
+    private Cob2Stru05RecordConverter(Builder builder) {
+        super(builder);
+        comItemBType = getPrimitiveType("comItemA", "comItemB");
+        comItemB2Type = getPrimitiveType("comItemC", "comItemB");
+        comItemB3Type = getPrimitiveType("comItemD", "comItemE", "comItemB");
+    }
+
+}